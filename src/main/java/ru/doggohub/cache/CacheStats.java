@@ -0,0 +1,32 @@
+package ru.doggohub.cache;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Снимок счётчиков кэша на момент вызова {@link TinyLfuCache#stats()}.
+ */
+@Value
+@Builder
+public class CacheStats {
+    long hitCount;
+    long missCount;
+    long loadCount;
+    long loadFailureCount;
+    long totalLoadNanos;
+    long evictionCount;
+    long evictionWeight;
+    long size;
+    long weightedSize;
+    long maximumWeight;
+
+    public double getHitRatio() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public double getAverageLoadMicros() {
+        long attempts = loadCount + loadFailureCount;
+        return attempts == 0 ? 0 : totalLoadNanos / 1_000.0 / attempts;
+    }
+}
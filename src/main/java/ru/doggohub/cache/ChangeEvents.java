@@ -0,0 +1,53 @@
+package ru.doggohub.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Рассылает сведения об изменениях собак, владельцев и историй болезни кэшам и индексам,
+ * которые должны их инвалидировать.
+ */
+public class ChangeEvents {
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<ChangeListener> trailingListeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Подписывает слушателя, которого уведомляют после всех остальных, — для тех, кто
+     * объявляет данные изменившимися (версии для ETag). Иначе читатель мог бы увидеть
+     * новую версию раньше, чем кэши сбросят старые данные, и пометить ими новую версию.
+     */
+    public void addTrailingListener(ChangeListener listener) {
+        trailingListeners.add(listener);
+    }
+
+    public void dogChanged(long dogId, Long ownerId, ChangeType type) {
+        for (ChangeListener listener : listeners) {
+            listener.dogChanged(dogId, ownerId, type);
+        }
+        for (ChangeListener listener : trailingListeners) {
+            listener.dogChanged(dogId, ownerId, type);
+        }
+    }
+
+    public void ownerChanged(long ownerId, ChangeType type) {
+        for (ChangeListener listener : listeners) {
+            listener.ownerChanged(ownerId, type);
+        }
+        for (ChangeListener listener : trailingListeners) {
+            listener.ownerChanged(ownerId, type);
+        }
+    }
+
+    public void healthStoryChanged(long storyId, Long dogId, ChangeType type) {
+        for (ChangeListener listener : listeners) {
+            listener.healthStoryChanged(storyId, dogId, type);
+        }
+        for (ChangeListener listener : trailingListeners) {
+            listener.healthStoryChanged(storyId, dogId, type);
+        }
+    }
+}
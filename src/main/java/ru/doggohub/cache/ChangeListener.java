@@ -0,0 +1,24 @@
+package ru.doggohub.cache;
+
+/**
+ * Подписчик на изменения данных, выполненные сервисами. Вызывается синхронно после
+ * успешной записи в базу.
+ */
+public interface ChangeListener {
+
+    /**
+     * @param ownerId владелец собаки или {@code null}, если он неизвестен; тогда подписчик
+     *                должен считать затронутым любого владельца
+     */
+    default void dogChanged(long dogId, Long ownerId, ChangeType type) {
+    }
+
+    default void ownerChanged(long ownerId, ChangeType type) {
+    }
+
+    /**
+     * @param dogId собака, к которой относится история, или {@code null}, если она неизвестна
+     */
+    default void healthStoryChanged(long storyId, Long dogId, ChangeType type) {
+    }
+}
@@ -0,0 +1,7 @@
+package ru.doggohub.cache;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
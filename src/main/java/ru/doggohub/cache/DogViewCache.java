@@ -0,0 +1,99 @@
+package ru.doggohub.cache;
+
+import ru.doggohub.dto.dog.DogResponseDto;
+import ru.doggohub.dto.user.UserResponseDto;
+
+import java.util.Locale;
+import java.util.function.LongFunction;
+
+/**
+ * Кэш готовых ответов о собаках по ID собаки.
+ * <p>
+ * Ответ о собаке содержит владельца со списком ID всех его собак, поэтому появление
+ * или удаление собаки, а также изменение владельца инвалидирует все закэшированные
+ * ответы этого владельца. Изменение самой собаки затрагивает только её ответ. Ответы о собаках сгруппированы по владельцу, поэтому инвалидация не
+ * обходит весь кэш. Ответы отдаются нескольким запросам сразу и не должны изменяться.
+ */
+public class DogViewCache implements ChangeListener {
+    public static final long DEFAULT_MAX_SIZE = 10_000;
+
+    private final TinyLfuCache<Long, DogResponseDto> views;
+
+    public DogViewCache(long maxSize, SizeUnit unit) {
+        if (unit == SizeUnit.BYTES) {
+            this.views = new TinyLfuCache<>("dogViews", maxSize, DogViewCache::estimateBytes, DogViewCache::ownerId);
+        } else {
+            this.views = new TinyLfuCache<>("dogViews", maxSize, view -> 1, DogViewCache::ownerId);
+        }
+    }
+
+    /**
+     * Меняет ограничение размера на лету. Единица измерения задаётся при создании и не меняется.
+     */
+    public void resize(long maxSize) {
+        views.setMaximumWeight(maxSize);
+    }
+
+    public DogResponseDto getView(long dogId, LongFunction<DogResponseDto> loader) {
+        return views.get(dogId, loader::apply);
+    }
+
+    @Override
+    public void dogChanged(long dogId, Long ownerId, ChangeType type) {
+        views.invalidate(dogId);
+        if (type == ChangeType.UPDATED) {
+            return;
+        }
+        if (ownerId == null) {
+            views.invalidateAll();
+        } else {
+            invalidateOwnedBy(ownerId);
+        }
+    }
+
+    @Override
+    public void ownerChanged(long ownerId, ChangeType type) {
+        invalidateOwnedBy(ownerId);
+    }
+
+    private void invalidateOwnedBy(long ownerId) {
+        views.invalidateGroup(ownerId);
+    }
+
+    private static Long ownerId(DogResponseDto view) {
+        return view.getOwner() == null ? null : view.getOwner().getId();
+    }
+
+    public TinyLfuCache<Long, DogResponseDto> getViews() {
+        return views;
+    }
+
+    /**
+     * Грубая оценка занимаемой ответом памяти: заголовки объектов, строки в UTF-16
+     * и упакованные ID собак владельца.
+     */
+    static long estimateBytes(DogResponseDto view) {
+        long bytes = 96 + stringBytes(view.getName());
+        UserResponseDto owner = view.getOwner();
+        if (owner != null) {
+            bytes += 64 + stringBytes(owner.getName());
+            if (owner.getDogs() != null) {
+                bytes += 24L * owner.getDogs().size();
+            }
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    public enum SizeUnit {
+        ENTRIES,
+        BYTES;
+
+        public static SizeUnit parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.doggohub.cache;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Множество заведомо занятых адресов электронной почты.
+ * <p>
+ * Индекс хранит только подтверждённые адреса: попадание означает, что адрес занят, и запрос
+ * к базе не нужен; промах проверяется в базе. Поэтому индекс может быть неполным и не обязан
+ * переживать перезапуск. Адреса хранятся в нормализованном виде, см. {@link #normalize(String)}.
+ */
+public class EmailIndex {
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+
+    private final Set<String> emails = ConcurrentHashMap.newKeySet();
+    private final int maxSize;
+
+    public EmailIndex(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean contains(String normalizedEmail) {
+        return emails.contains(normalizedEmail);
+    }
+
+    public void add(String normalizedEmail) {
+        if (emails.size() < maxSize) {
+            emails.add(normalizedEmail);
+        }
+    }
+
+    public void remove(String email) {
+        if (email != null) {
+            emails.remove(normalize(email));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package ru.doggohub.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Отсекает поиск по заведомо несуществующим ID до запроса в базу.
+ * <p>
+ * Две ступени: {@link BloomFilter} по всем ID таблицы, построенный при старте
+ * ({@link #build}) и пополняемый при вставках, и короткоживущий кэш промахов с TTL
+ * для ID, которые фильтр пропустил, но база не нашла (ложные срабатывания и удалённые
+ * записи). Пока фильтр не построен, работает только кэш промахов. Промах, прочитанный
+ * одновременно со вставкой, не запоминается: он мог быть прочитан до неё.
+ * <p>
+ * Фильтр видит только вставки через это приложение, поэтому рассчитан на один экземпляр,
+ * который пишет в базу.
+ */
+public class ExistenceFilter {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final String name;
+    private final long ttlNanos;
+    private final int maxMissing;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private final Map<Long, Long> missingUntil = new ConcurrentHashMap<>();
+    private final AtomicLong insertions = new AtomicLong();
+
+    private final LongAdder filtered = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param ttlMillis  сколько помнить подтверждённый базой промах; 0 — не помнить
+     * @param maxMissing сколько промахов помнить одновременно
+     */
+    public ExistenceFilter(String name, long ttlMillis, int maxMissing) {
+        this.name = name;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMillis));
+        this.maxMissing = maxMissing;
+    }
+
+    /**
+     * {@code true}, если записи с таким ID точно нет и в базу можно не ходить.
+     */
+    public boolean isKnownMissing(long id) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(id)) {
+            filtered.increment();
+            return true;
+        }
+        Long until = missingUntil.get(id);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            negativeHits.increment();
+            return true;
+        }
+        missingUntil.remove(id, until);
+        return false;
+    }
+
+    public long stamp() {
+        return insertions.get();
+    }
+
+    /**
+     * Запоминает, что база не нашла запись, если с момента {@code stamp} ничего не вставлялось.
+     * Вставка может успеть между проверкой и записью промаха, поэтому после записи отметка
+     * проверяется ещё раз и промах при расхождении забывается.
+     */
+    public void markMissing(long id, long stamp) {
+        misses.increment();
+        if (ttlNanos == 0 || insertions.get() != stamp) {
+            return;
+        }
+        remember(id);
+        if (insertions.get() != stamp) {
+            missingUntil.remove(id);
+        }
+    }
+
+    public void added(long id) {
+        insertions.incrementAndGet();
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(id);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(id);
+        }
+        missingUntil.remove(id);
+    }
+
+    public void removed(long id) {
+        if (ttlNanos > 0) {
+            remember(id);
+        }
+    }
+
+    /**
+     * Строит новый фильтр из всех ID таблицы, которые {@code scanner} передаёт в полученный
+     * {@link LongConsumer}. Вставки во время построения попадают и в новый фильтр.
+     *
+     * @return количество прочитанных ID
+     */
+    public synchronized long build(long expectedIds, Consumer<LongConsumer> scanner) {
+        BloomFilter next = new BloomFilter(expectedIds, FALSE_POSITIVE_RATE);
+        building = next;
+        long[] count = new long[1];
+        try {
+            scanner.accept(id -> {
+                next.put(id);
+                count[0]++;
+            });
+            filter = next;
+        } finally {
+            building = null;
+        }
+        return count[0];
+    }
+
+    private void remember(long id) {
+        long now = System.nanoTime();
+        if (missingUntil.size() >= maxMissing) {
+            Iterator<Long> iterator = missingUntil.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() - now <= 0) {
+                    iterator.remove();
+                }
+            }
+            if (missingUntil.size() >= maxMissing) {
+                return;
+            }
+        }
+        missingUntil.put(id, now + ttlNanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isBuilt() {
+        return filter != null;
+    }
+
+    /**
+     * Запросы, отсечённые фильтром Блума.
+     */
+    public long getFilteredCount() {
+        return filtered.sum();
+    }
+
+    /**
+     * Запросы, отсечённые кэшем промахов.
+     */
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    /**
+     * Промахи, дошедшие до базы.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int getMissingSize() {
+        return missingUntil.size();
+    }
+}
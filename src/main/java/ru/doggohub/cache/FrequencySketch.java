@@ -0,0 +1,75 @@
+package ru.doggohub.cache;
+
+/**
+ * Приблизительный счётчик частот обращений (Count-Min Sketch) для политики допуска TinyLFU.
+ * <p>
+ * Четыре строки по 4-битных счётчика упакованы в массив {@code long}; оценка частоты —
+ * минимум по строкам, не больше 15. После {@code 10 × ширина} приращений все счётчики
+ * делятся пополам, чтобы старая популярность постепенно забывалась. Не потокобезопасен:
+ * вызывается под блокировкой политики кэша.
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long expectedSize) {
+        int width = Integer.highestOneBit((int) Math.min(Math.max(expectedSize, 16), 1 << 26) - 1) << 1;
+        this.table = new long[width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = 15;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = indexHash(hash, row);
+            int shift = ((int) h & 15) << 2;
+            frequency = Math.min(frequency, (int) ((table[(int) (h >>> 32) & mask] >>> shift) & 15L));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = indexHash(hash, row);
+            int index = (int) (h >>> 32) & mask;
+            int shift = ((int) h & 15) << 2;
+            if (((table[index] >>> shift) & 15L) < 15L) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        hash *= 0xac4c1b51;
+        return hash ^ (hash >>> 15);
+    }
+
+    private static long indexHash(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,128 @@
+package ru.doggohub.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Индекс «владелец → отсортированные ID его собак» в памяти.
+ * <p>
+ * Массивы неизменяемы: каждое изменение создаёт новую копию (copy-on-write), поэтому
+ * чтение идёт без блокировок и отданный массив можно не копировать. Владельцы попадают
+ * в индекс при первом чтении или при прогреве; изменения приходят из репозиториев.
+ * Загрузка, пересёкшаяся с изменением, в индекс не попадает: она могла прочитать данные
+ * до записи. Индекс ограничен {@code maxOwners}, остальные владельцы читаются из базы.
+ */
+public class OwnerDogIndex {
+    public static final int DEFAULT_MAX_OWNERS = 100_000;
+    private static final long[] EMPTY = new long[0];
+
+    private final Map<Long, long[]> dogsByOwner = new ConcurrentHashMap<>();
+    private final Map<Long, Long> ownerByDog = new ConcurrentHashMap<>();
+    private final AtomicLong modifications = new AtomicLong();
+    private final int maxOwners;
+
+    public OwnerDogIndex(int maxOwners) {
+        this.maxOwners = maxOwners;
+    }
+
+    /**
+     * Возвращает ID собак владельца из индекса или загружает их и запоминает.
+     */
+    public long[] get(long ownerId, Supplier<long[]> loader) {
+        long[] dogIds = dogsByOwner.get(ownerId);
+        if (dogIds != null) {
+            return dogIds;
+        }
+        long stamp = modifications.get();
+        dogIds = sortedCopy(loader.get());
+        putSorted(ownerId, dogIds, stamp);
+        return dogIds;
+    }
+
+    public long[] getIfPresent(long ownerId) {
+        return dogsByOwner.get(ownerId);
+    }
+
+    public long stamp() {
+        return modifications.get();
+    }
+
+    /**
+     * Запоминает ID собак владельца, если с момента {@code stamp} индекс не изменялся.
+     */
+    public void putIfUnchanged(long ownerId, long[] dogIds, long stamp) {
+        putSorted(ownerId, sortedCopy(dogIds), stamp);
+    }
+
+    private synchronized void putSorted(long ownerId, long[] sorted, long stamp) {
+        if (modifications.get() != stamp || dogsByOwner.size() >= maxOwners || dogsByOwner.containsKey(ownerId)) {
+            return;
+        }
+        dogsByOwner.put(ownerId, sorted);
+        for (long dogId : sorted) {
+            ownerByDog.put(dogId, ownerId);
+        }
+    }
+
+    private static long[] sortedCopy(long[] dogIds) {
+        if (dogIds == null || dogIds.length == 0) {
+            return EMPTY;
+        }
+        long[] sorted = dogIds.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public synchronized void addDog(long ownerId, long dogId) {
+        modifications.incrementAndGet();
+        long[] dogIds = dogsByOwner.get(ownerId);
+        if (dogIds == null) {
+            return;
+        }
+        int position = Arrays.binarySearch(dogIds, dogId);
+        if (position >= 0) {
+            return;
+        }
+        int insertAt = -position - 1;
+        long[] updated = new long[dogIds.length + 1];
+        System.arraycopy(dogIds, 0, updated, 0, insertAt);
+        updated[insertAt] = dogId;
+        System.arraycopy(dogIds, insertAt, updated, insertAt + 1, dogIds.length - insertAt);
+        dogsByOwner.put(ownerId, updated);
+        ownerByDog.put(dogId, ownerId);
+    }
+
+    public synchronized void removeDog(long dogId) {
+        modifications.incrementAndGet();
+        Long ownerId = ownerByDog.remove(dogId);
+        if (ownerId == null) {
+            return;
+        }
+        long[] dogIds = dogsByOwner.get(ownerId);
+        int position = dogIds != null ? Arrays.binarySearch(dogIds, dogId) : -1;
+        if (position < 0) {
+            return;
+        }
+        long[] updated = new long[dogIds.length - 1];
+        System.arraycopy(dogIds, 0, updated, 0, position);
+        System.arraycopy(dogIds, position + 1, updated, position, dogIds.length - position - 1);
+        dogsByOwner.put(ownerId, updated);
+    }
+
+    public synchronized void removeOwner(long ownerId) {
+        modifications.incrementAndGet();
+        long[] dogIds = dogsByOwner.remove(ownerId);
+        if (dogIds != null) {
+            for (long dogId : dogIds) {
+                ownerByDog.remove(dogId, ownerId);
+            }
+        }
+    }
+
+    public int size() {
+        return dogsByOwner.size();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.doggohub.cache;
+
+import lombok.Value;
+import lombok.experimental.UtilityClass;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Карта идентичности в пределах одного HTTP-запроса.
+ * <p>
+ * Пока область открыта ({@link #begin()} / {@link #end()}, см. {@code RequestScopeFilter}),
+ * повторное чтение той же записи возвращает уже загруженный объект без обращения к базе.
+ * Репозитории сами вытесняют затронутые записи при изменениях. Вне области все методы
+ * ничего не делают, и {@link #get} просто вызывает загрузчик. Область принадлежит потоку
+ * запроса, поэтому синхронизация не требуется.
+ */
+@UtilityClass
+public class RequestCache {
+    private static final ThreadLocal<Map<Key, Object>> scope = new ThreadLocal<>();
+    private static final Object NULL = new Object();
+
+    public static void begin() {
+        scope.set(new HashMap<>());
+    }
+
+    public static void end() {
+        scope.remove();
+    }
+
+    public static boolean isActive() {
+        return scope.get() != null;
+    }
+
+    /**
+     * Возвращает запись из области или загружает её. Отсутствующая запись ({@code null})
+     * тоже запоминается.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String region, Object id, Supplier<T> loader) {
+        Map<Key, Object> entries = scope.get();
+        if (entries == null) {
+            return loader.get();
+        }
+        Key key = new Key(region, id);
+        Object value = entries.get(key);
+        if (value == null) {
+            T loaded = loader.get();
+            entries.put(key, loaded != null ? loaded : NULL);
+            return loaded;
+        }
+        return value == NULL ? null : (T) value;
+    }
+
+    public static void put(String region, Object id, Object value) {
+        Map<Key, Object> entries = scope.get();
+        if (entries != null) {
+            entries.put(new Key(region, id), value != null ? value : NULL);
+        }
+    }
+
+    public static void evict(String region, Object id) {
+        Map<Key, Object> entries = scope.get();
+        if (entries != null) {
+            entries.remove(new Key(region, id));
+        }
+    }
+
+    public static void evictRegion(String region) {
+        Map<Key, Object> entries = scope.get();
+        if (entries != null) {
+            entries.keySet().removeIf(key -> key.getRegion().equals(region));
+        }
+    }
+
+    @Value
+    private static class Key {
+        String region;
+        Object id;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.doggohub.cache;
+
+import lombok.Value;
+
+/**
+ * Готовые тела GET-ответов в UTF-8, чтобы на попадании не сериализовать и не кодировать
+ * ответ заново.
+ * <p>
+ * Ключ — адрес ресурса вместе с версией его данных из {@link VersionTracker}: после изменения
+ * версия растёт, старая запись больше не запрашивается и вытесняется, поэтому отдельная
+ * инвалидация не нужна. Размер ограничен суммарным объёмом тел, {@code 0} отключает кэш;
+ * ограничение можно поменять на лету через {@link #resize(long)}.
+ */
+public class ResponseCache {
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final TinyLfuCache<Key, byte[]> bodies;
+    private volatile boolean enabled;
+
+    public ResponseCache(long maxBytes) {
+        this.enabled = maxBytes > 0;
+        this.bodies = new TinyLfuCache<>("responses", maxBytes, body -> body.length + ENTRY_OVERHEAD);
+    }
+
+    public byte[] get(String resource, long version) {
+        return bodies.getIfPresent(new Key(resource, version));
+    }
+
+    public void put(String resource, long version, byte[] body) {
+        bodies.put(new Key(resource, version), body);
+    }
+
+    public void resize(long maxBytes) {
+        bodies.setMaximumWeight(maxBytes);
+        enabled = maxBytes > 0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public TinyLfuCache<?, ?> getBodies() {
+        return bodies;
+    }
+
+    @Value
+    private static class Key {
+        String resource;
+        long version;
+    }
+}
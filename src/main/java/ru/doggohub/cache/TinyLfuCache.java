@@ -0,0 +1,395 @@
+package ru.doggohub.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ограниченный по весу кэш с вытеснением W-TinyLFU.
+ * <p>
+ * Новые записи попадают в небольшое LRU-окно (1% веса), вытесненные из окна кандидаты
+ * допускаются в основную SLRU-область (испытательный и защищённый сегменты) только если
+ * по {@link FrequencySketch} к ним обращаются чаще, чем к жертве из испытательного сегмента.
+ * Так однократные запросы (сканирование по ID) не вымывают популярные записи.
+ * <p>
+ * Чтение идёт из {@link ConcurrentHashMap} без блокировок; учёт обращения в политике
+ * выполняется только если блокировка свободна, иначе обращение теряется — на точность
+ * частот это почти не влияет. Вес записи задаёт {@code weigher}: 1 для ограничения по
+ * количеству или оценка размера в байтах.
+ * <p>
+ * Необязательный {@code grouper} относит значение к группе (например, ответ о собаке —
+ * к её владельцу). Кэш хранит ключи каждой группы, и {@link #invalidateGroup(Object)}
+ * удаляет их за время, пропорциональное размеру группы, а не всего кэша.
+ */
+public class TinyLfuCache<K, V> {
+    private final String name;
+    private long maximumWeight;
+    private long maxWindowWeight;
+    private long maxProtectedWeight;
+    private final ToLongFunction<V> weigher;
+    private final Function<? super V, ?> grouper;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private FrequencySketch sketch;
+    private final LinkedHashMap<K, Node<K, V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+    private final Map<Object, Set<K>> groups = new HashMap<>();
+
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedWeight = new LongAdder();
+
+    public TinyLfuCache(String name, long maximumWeight, ToLongFunction<V> weigher) {
+        this(name, maximumWeight, weigher, null);
+    }
+
+    public TinyLfuCache(String name, long maximumWeight, ToLongFunction<V> weigher,
+                        Function<? super V, ?> grouper) {
+        this.name = name;
+        this.weigher = weigher;
+        this.grouper = grouper;
+        resize(maximumWeight);
+    }
+
+    /**
+     * Меняет ограничение веса на лету. При уменьшении лишние записи вытесняются сразу;
+     * счётчики частот пересоздаются под новый размер, поэтому история обращений теряется.
+     */
+    public void setMaximumWeight(long maximumWeight) {
+        lock.lock();
+        try {
+            if (Math.max(0, maximumWeight) != this.maximumWeight) {
+                resize(maximumWeight);
+                demoteProtectedOverflow();
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void resize(long maximumWeight) {
+        this.maximumWeight = Math.max(0, maximumWeight);
+        this.maxWindowWeight = Math.max(1, this.maximumWeight / 100);
+        this.maxProtectedWeight = (this.maximumWeight - maxWindowWeight) * 4 / 5;
+        this.sketch = new FrequencySketch(Math.min(this.maximumWeight, 1 << 20));
+    }
+
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Возвращает значение из кэша или загружает его. {@code null} и исключения загрузчика
+     * не кэшируются. Если во время загрузки кэш что-то инвалидировал, результат отдаётся
+     * вызывающему, но не сохраняется: он мог быть прочитан до изменения.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long stamp = invalidations.get();
+        long start = System.nanoTime();
+        try {
+            value = loader.apply(key);
+            loads.increment();
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            throw e;
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+        }
+        if (value != null) {
+            put(key, value, stamp);
+        }
+        return value;
+    }
+
+    /**
+     * Сохраняет значение, вычисленное вызывающим. Актуальность значения для ключа
+     * обеспечивает вызывающий, например включая версию данных в ключ.
+     */
+    public void put(K key, V value) {
+        put(key, value, invalidations.get());
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет все значения группы. Без {@code grouper} в конструкторе ничего не делает.
+     */
+    public void invalidateGroup(Object group) {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            Set<K> keys = groups.remove(group);
+            if (keys == null) {
+                return;
+            }
+            for (K key : keys) {
+                Node<K, V> node = data.remove(key);
+                if (node != null) {
+                    unlink(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateIf(Predicate<V> predicate) {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            Iterator<Node<K, V>> iterator = data.values().iterator();
+            while (iterator.hasNext()) {
+                Node<K, V> node = iterator.next();
+                if (predicate.test(node.value)) {
+                    iterator.remove();
+                    unlink(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        invalidateIf(value -> true);
+    }
+
+    private void put(K key, V value, long stamp) {
+        long weight = weigher.applyAsLong(value);
+        Object group = grouper == null ? null : grouper.apply(value);
+        lock.lock();
+        try {
+            if (invalidations.get() != stamp || weight > maximumWeight) {
+                return;
+            }
+            Node<K, V> previous = data.get(key);
+            if (previous != null) {
+                unlink(previous);
+            }
+            Node<K, V> node = new Node<>(key, value, weight, group);
+            data.put(key, node);
+            if (group != null) {
+                groups.computeIfAbsent(group, g -> new HashSet<>()).add(key);
+            }
+            sketch.increment(key);
+            node.segment = Segment.WINDOW;
+            window.put(key, node);
+            windowWeight += weight;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (data.get(node.key) != node) {
+            return;
+        }
+        sketch.increment(node.key);
+        switch (node.segment) {
+            case WINDOW -> window.get(node.key);
+            case PROTECTED -> protectedSegment.get(node.key);
+            case PROBATION -> {
+                probation.remove(node.key);
+                probationWeight -= node.weight;
+                node.segment = Segment.PROTECTED;
+                protectedSegment.put(node.key, node);
+                protectedWeight += node.weight;
+                demoteProtectedOverflow();
+            }
+        }
+    }
+
+    private void demoteProtectedOverflow() {
+        while (protectedWeight > maxProtectedWeight && !protectedSegment.isEmpty()) {
+            Node<K, V> eldest = protectedSegment.values().iterator().next();
+            protectedSegment.remove(eldest.key);
+            protectedWeight -= eldest.weight;
+            eldest.segment = Segment.PROBATION;
+            probation.put(eldest.key, eldest);
+            probationWeight += eldest.weight;
+        }
+    }
+
+    private void evict() {
+        while (windowWeight > maxWindowWeight && !window.isEmpty()) {
+            Node<K, V> candidate = window.values().iterator().next();
+            window.remove(candidate.key);
+            windowWeight -= candidate.weight;
+            admit(candidate);
+        }
+        while (windowWeight + probationWeight + protectedWeight > maximumWeight) {
+            Map<K, Node<K, V>> segment = !probation.isEmpty() ? probation
+                    : !protectedSegment.isEmpty() ? protectedSegment : window;
+            if (segment.isEmpty()) {
+                break;
+            }
+            Node<K, V> victim = segment.values().iterator().next();
+            data.remove(victim.key, victim);
+            unlink(victim);
+            recordEviction(victim);
+        }
+    }
+
+    /**
+     * Решает судьбу кандидата из окна: допускает его в испытательный сегмент, вытесняя
+     * более редкие записи, или вытесняет его самого.
+     */
+    private void admit(Node<K, V> candidate) {
+        long maxMainWeight = maximumWeight - maxWindowWeight;
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (probationWeight + protectedWeight + candidate.weight > maxMainWeight) {
+            Map<K, Node<K, V>> segment = !probation.isEmpty() ? probation : protectedSegment;
+            if (segment.isEmpty()) {
+                break;
+            }
+            Node<K, V> victim = segment.values().iterator().next();
+            if (candidateFrequency <= sketch.frequency(victim.key)) {
+                data.remove(candidate.key, candidate);
+                candidate.segment = null;
+                ungroup(candidate);
+                recordEviction(candidate);
+                return;
+            }
+            data.remove(victim.key, victim);
+            unlink(victim);
+            recordEviction(victim);
+        }
+        candidate.segment = Segment.PROBATION;
+        probation.put(candidate.key, candidate);
+        probationWeight += candidate.weight;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.segment == null) {
+            return;
+        }
+        ungroup(node);
+        switch (node.segment) {
+            case WINDOW -> {
+                window.remove(node.key);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> {
+                probation.remove(node.key);
+                probationWeight -= node.weight;
+            }
+            case PROTECTED -> {
+                protectedSegment.remove(node.key);
+                protectedWeight -= node.weight;
+            }
+        }
+        node.segment = null;
+    }
+
+    private void ungroup(Node<K, V> node) {
+        if (node.group == null) {
+            return;
+        }
+        Set<K> keys = groups.get(node.group);
+        if (keys != null && keys.remove(node.key) && keys.isEmpty()) {
+            groups.remove(node.group);
+        }
+    }
+
+    private void recordEviction(Node<K, V> node) {
+        evictions.increment();
+        evictedWeight.add(node.weight);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CacheStats stats() {
+        long weightedSize;
+        long maximum;
+        lock.lock();
+        try {
+            weightedSize = windowWeight + probationWeight + protectedWeight;
+            maximum = maximumWeight;
+        } finally {
+            lock.unlock();
+        }
+        return CacheStats.builder()
+                .hitCount(hits.sum())
+                .missCount(misses.sum())
+                .loadCount(loads.sum())
+                .loadFailureCount(loadFailures.sum())
+                .totalLoadNanos(loadNanos.sum())
+                .evictionCount(evictions.sum())
+                .evictionWeight(evictedWeight.sum())
+                .size(data.size())
+                .weightedSize(weightedSize)
+                .maximumWeight(maximum)
+                .build();
+    }
+
+    private enum Segment {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private static class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long weight;
+        private final Object group;
+        private Segment segment;
+
+        Node(K key, V value, long weight, Object group) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.group = group;
+        }
+    }
+}
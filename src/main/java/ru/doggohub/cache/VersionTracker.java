@@ -0,0 +1,224 @@
+package ru.doggohub.cache;
+
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии агрегатов (собака, владелец со списком собак, истории болезни собаки) для условных
+ * GET-запросов: по ним строятся ETag и Last-Modified без чтения данных.
+ * <p>
+ * Каждое изменение получает следующий номер из общего счётчика, версия ответа — наибольший
+ * номер среди агрегатов, из которых он собран. Хранятся только агрегаты, изменённые после
+ * запуска, остальные имеют базовую версию. ETag включает метку запуска, поэтому после
+ * перезапуска все клиенты один раз получат полный ответ. Когда записей становится больше
+ * {@code maxEntries}, они сбрасываются вместе с повышением базовой версии.
+ * <p>
+ * Базовая версия ничего не говорит о том, существует ли агрегат, поэтому клиентский кэш
+ * проверяется ({@link #knownValidator}) только для агрегатов, которые после запуска
+ * менялись или были прочитаны из базы и отданы ({@link #served}). Версии знают только
+ * об изменениях через это приложение: рассчитано на один экземпляр, который пишет в базу.
+ * Изменения в обход приложения клиенты увидят только после перезапуска.
+ */
+public class VersionTracker implements ChangeListener {
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Key, Version> versions = new ConcurrentHashMap<>();
+    private final Map<Key, Key> parents = new ConcurrentHashMap<>();
+    private final Set<Key> served = ConcurrentHashMap.newKeySet();
+    private final int maxEntries;
+    private volatile Version base = new Version(0, System.currentTimeMillis());
+
+    public VersionTracker(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public static Key dog(long dogId) {
+        return new Key(Aggregate.DOG, dogId);
+    }
+
+    public static Key owner(long ownerId) {
+        return new Key(Aggregate.OWNER, ownerId);
+    }
+
+    public static Key allOwners() {
+        return new Key(Aggregate.ALL_OWNERS, 0);
+    }
+
+    public static Key dogHealth(long dogId) {
+        return new Key(Aggregate.DOG_HEALTH, dogId);
+    }
+
+    public static Key healthStory(long storyId) {
+        return new Key(Aggregate.HEALTH_STORY, storyId);
+    }
+
+    /**
+     * Текущий номер изменения; запоминается до чтения данных для {@link #validatorSince}.
+     */
+    public long sequence() {
+        return sequence.get();
+    }
+
+    public Validator validator(Key... keys) {
+        Version current = base;
+        long version = current.number;
+        long modified = current.timeMillis;
+        for (Key key : keys) {
+            Version changed = versions.get(key);
+            if (changed != null) {
+                version = Math.max(version, changed.number);
+                modified = Math.max(modified, changed.timeMillis);
+            }
+        }
+        return new Validator('"' + bootId + '-' + Long.toString(version, 36) + '"', modified, version);
+    }
+
+    /**
+     * Валидатор для проверки клиентского кэша или {@code null}, если какой-то из агрегатов
+     * после запуска не менялся и не отдавался: у него только базовая версия, и ответ 304
+     * подтвердил бы клиенту даже запись, которой нет.
+     */
+    public Validator knownValidator(Key... keys) {
+        for (Key key : keys) {
+            if (!versions.containsKey(key) && !served.contains(key)) {
+                return null;
+            }
+        }
+        return validator(keys);
+    }
+
+    /**
+     * Отмечает агрегаты, ответ о которых прочитан из базы и отдан клиенту.
+     */
+    public void served(Key... keys) {
+        if (served.size() >= maxEntries) {
+            served.clear();
+        }
+        Collections.addAll(served, keys);
+    }
+
+    /**
+     * Валидатор для ответа, прочитанного после {@code sequence}, или {@code null}, если какой-то
+     * из агрегатов изменился во время чтения: ответ может не соответствовать ни одной версии.
+     */
+    public Validator validatorSince(long sequence, Key... keys) {
+        Validator validator = validator(keys);
+        return validator.getVersion() <= sequence ? validator : null;
+    }
+
+    /**
+     * Агрегат, от которого зависит ответ о {@code key}: владелец для собаки (в ответ входят его
+     * имя и список собак), истории болезни собаки для отдельной истории. Известен, если уже
+     * встречался в ответах или событиях; без него версию ответа до чтения проверить нельзя.
+     */
+    public Key parentOf(Key key) {
+        return parents.get(key);
+    }
+
+    public void rememberParent(Key key, Key parent) {
+        if (parents.size() < maxEntries) {
+            parents.put(key, parent);
+        }
+    }
+
+    @Override
+    public void dogChanged(long dogId, Long ownerId, ChangeType type) {
+        Key dog = dog(dogId);
+        Key owner = ownerId != null ? owner(ownerId) : parents.get(dog);
+        if (owner == null) {
+            reset();
+            return;
+        }
+        bump(dog);
+        bump(owner);
+        if (type != ChangeType.UPDATED) {
+            bump(allOwners());
+        }
+        if (type == ChangeType.DELETED) {
+            bump(dogHealth(dogId));
+            parents.remove(dog);
+        } else {
+            rememberParent(dog, owner);
+        }
+    }
+
+    @Override
+    public void ownerChanged(long ownerId, ChangeType type) {
+        bump(owner(ownerId));
+        bump(allOwners());
+        if (type == ChangeType.DELETED) {
+            parents.values().removeIf(owner(ownerId)::equals);
+        }
+    }
+
+    @Override
+    public void healthStoryChanged(long storyId, Long dogId, ChangeType type) {
+        Key story = healthStory(storyId);
+        Key dogHealth = dogId != null ? dogHealth(dogId) : parents.get(story);
+        if (dogHealth == null) {
+            reset();
+            return;
+        }
+        bump(story);
+        bump(dogHealth);
+        if (type == ChangeType.DELETED) {
+            parents.remove(story);
+        } else {
+            rememberParent(story, dogHealth);
+        }
+    }
+
+    private void bump(Key key) {
+        if (versions.size() >= maxEntries) {
+            reset();
+        }
+        versions.put(key, new Version(sequence.incrementAndGet(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Считает изменёнными все агрегаты сразу.
+     */
+    private void reset() {
+        base = new Version(sequence.incrementAndGet(), System.currentTimeMillis());
+        versions.clear();
+        served.clear();
+    }
+
+    public int size() {
+        return versions.size();
+    }
+
+    public enum Aggregate {
+        DOG, OWNER, ALL_OWNERS, DOG_HEALTH, HEALTH_STORY
+    }
+
+    @Value
+    public static class Key {
+        Aggregate aggregate;
+        long id;
+    }
+
+    @Value
+    public static class Validator {
+        String etag;
+        long lastModified;
+        long version;
+    }
+
+    private static class Version {
+        private final long number;
+        private final long timeMillis;
+
+        Version(long number, long timeMillis) {
+            this.number = number;
+            this.timeMillis = timeMillis;
+        }
+    }
+}
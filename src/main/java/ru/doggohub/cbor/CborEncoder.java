@@ -0,0 +1,8 @@
+package ru.doggohub.cbor;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface CborEncoder<T> {
+    void write(CborWriter out, T value) throws IOException;
+}
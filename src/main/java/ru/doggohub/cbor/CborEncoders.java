@@ -0,0 +1,112 @@
+package ru.doggohub.cbor;
+
+import lombok.experimental.UtilityClass;
+import ru.doggohub.dto.dog.DogResponseDto;
+import ru.doggohub.dto.health.HealthStoryResponseDto;
+import ru.doggohub.dto.user.UserResponseDto;
+import ru.doggohub.util.LongListView;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Компактное двоичное представление ответов: каждый DTO — CBOR-массив полей в порядке
+ * их объявления, без имён. Перечисления передаются порядковым номером, даты — числом
+ * дней от 1970-01-01, отсутствующие значения — {@code null}.
+ * <ul>
+ *     <li>владелец: {@code [id, name, [dogId...]]}</li>
+ *     <li>собака: {@code [id, name, birthDay, breed, color, gender, weight, владелец]}</li>
+ *     <li>история болезни: {@code [id, dogId, text, visit]}</li>
+ * </ul>
+ * Новые поля добавляются только в конец массива, чтобы старые клиенты могли их не читать.
+ */
+@UtilityClass
+public class CborEncoders {
+    private static final Map<Class<?>, CborEncoder<?>> ENCODERS = Map.of(
+            UserResponseDto.class, (CborEncoder<UserResponseDto>) CborEncoders::writeUser,
+            DogResponseDto.class, (CborEncoder<DogResponseDto>) CborEncoders::writeDog,
+            HealthStoryResponseDto.class, (CborEncoder<HealthStoryResponseDto>) CborEncoders::writeHealthStory);
+
+    @SuppressWarnings("unchecked")
+    public static <T> CborEncoder<T> forType(Class<T> type) {
+        CborEncoder<T> encoder = (CborEncoder<T>) ENCODERS.get(type);
+        if (encoder == null) {
+            throw new IllegalArgumentException("Нет двоичного представления для " + type.getName());
+        }
+        return encoder;
+    }
+
+    static void writeUser(CborWriter out, UserResponseDto dto) throws IOException {
+        if (dto == null) {
+            out.writeNull();
+            return;
+        }
+        out.beginArray(3);
+        out.writeLong(dto.getId());
+        out.writeString(dto.getName());
+        writeDogIds(out, dto.getDogs());
+    }
+
+    private static void writeDogIds(CborWriter out, List<Long> dogs) throws IOException {
+        if (dogs == null) {
+            out.writeNull();
+            return;
+        }
+        out.beginArray(dogs.size());
+        if (dogs instanceof LongListView view) {
+            for (int i = 0; i < view.size(); i++) {
+                out.writeLong(view.getLong(i));
+            }
+        } else {
+            for (Long dogId : dogs) {
+                out.writeLong(dogId);
+            }
+        }
+    }
+
+    static void writeDog(CborWriter out, DogResponseDto dto) throws IOException {
+        if (dto == null) {
+            out.writeNull();
+            return;
+        }
+        out.beginArray(8);
+        out.writeLong(dto.getId());
+        out.writeString(dto.getName());
+        writeDate(out, dto.getBirthDay());
+        writeOrdinal(out, dto.getBreed());
+        writeOrdinal(out, dto.getColor());
+        writeOrdinal(out, dto.getGender());
+        out.writeInt(dto.getWeight());
+        writeUser(out, dto.getOwner());
+    }
+
+    static void writeHealthStory(CborWriter out, HealthStoryResponseDto dto) throws IOException {
+        if (dto == null) {
+            out.writeNull();
+            return;
+        }
+        out.beginArray(4);
+        out.writeLong(dto.getId());
+        out.writeLong(dto.getDogId());
+        out.writeString(dto.getText());
+        writeDate(out, dto.getVisit());
+    }
+
+    private static void writeDate(CborWriter out, LocalDate date) throws IOException {
+        if (date == null) {
+            out.writeNull();
+        } else {
+            out.writeLong(date.toEpochDay());
+        }
+    }
+
+    private static void writeOrdinal(CborWriter out, Enum<?> value) throws IOException {
+        if (value == null) {
+            out.writeNull();
+        } else {
+            out.writeLong(value.ordinal());
+        }
+    }
+}
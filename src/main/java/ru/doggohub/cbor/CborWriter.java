@@ -0,0 +1,120 @@
+package ru.doggohub.cbor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Запись значений в CBOR (RFC 8949): целые, строки UTF-8, массивы и {@code null}.
+ * Целые кодируются переменной длиной — от одного байта для значений до 23 до девяти
+ * для 64-битных. Массив неизвестной заранее длины открывается {@link #beginArray()}
+ * и закрывается {@link #end()}, что позволяет писать списки по мере чтения.
+ */
+public class CborWriter {
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1;
+    private static final int TEXT = 3;
+    private static final int ARRAY = 4;
+    private static final int NULL = 0xf6;
+    private static final int INDEFINITE_ARRAY = 0x9f;
+    private static final int BREAK = 0xff;
+
+    private final OutputStream out;
+    private final byte[] header = new byte[9];
+
+    public CborWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void writeNull() throws IOException {
+        out.write(NULL);
+    }
+
+    public void writeLong(long value) throws IOException {
+        if (value >= 0) {
+            writeHeader(UNSIGNED, value);
+        } else {
+            writeHeader(NEGATIVE, -1 - value);
+        }
+    }
+
+    public void writeLong(Long value) throws IOException {
+        if (value == null) {
+            writeNull();
+        } else {
+            writeLong(value.longValue());
+        }
+    }
+
+    public void writeInt(Integer value) throws IOException {
+        if (value == null) {
+            writeNull();
+        } else {
+            writeLong(value.longValue());
+        }
+    }
+
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeHeader(TEXT, bytes.length);
+        out.write(bytes);
+    }
+
+    public void beginArray(int size) throws IOException {
+        writeHeader(ARRAY, size);
+    }
+
+    /**
+     * Открывает массив, длина которого станет известна только в конце.
+     */
+    public void beginArray() throws IOException {
+        out.write(INDEFINITE_ARRAY);
+    }
+
+    public void end() throws IOException {
+        out.write(BREAK);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Пишет старший тип и аргумент, который для отрицательных чисел и 64-битных значений
+     * трактуется как беззнаковый.
+     */
+    private void writeHeader(int majorType, long argument) throws IOException {
+        int type = majorType << 5;
+        int length;
+        if (argument >= 0 && argument < 24) {
+            header[0] = (byte) (type | argument);
+            length = 1;
+        } else if (argument >= 0 && argument < 0x100) {
+            header[0] = (byte) (type | 24);
+            header[1] = (byte) argument;
+            length = 2;
+        } else if (argument >= 0 && argument < 0x10000) {
+            header[0] = (byte) (type | 25);
+            header[1] = (byte) (argument >>> 8);
+            header[2] = (byte) argument;
+            length = 3;
+        } else if (argument >= 0 && argument < 0x100000000L) {
+            header[0] = (byte) (type | 26);
+            for (int i = 1; i <= 4; i++) {
+                header[i] = (byte) (argument >>> (8 * (4 - i)));
+            }
+            length = 5;
+        } else {
+            header[0] = (byte) (type | 27);
+            for (int i = 1; i <= 8; i++) {
+                header[i] = (byte) (argument >>> (8 * (8 - i)));
+            }
+            length = 9;
+        }
+        out.write(header, 0, length);
+    }
+}
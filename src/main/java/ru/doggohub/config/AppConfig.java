@@ -0,0 +1,59 @@
+package ru.doggohub.config;
+
+import lombok.Builder;
+import lombok.ToString;
+import lombok.Value;
+import ru.doggohub.pool.PoolSettings;
+
+/**
+ * Неизменяемый снимок настроек приложения. Новый снимок создаётся при каждой
+ * перезагрузке конфигурации, поэтому его можно свободно передавать между потоками.
+ */
+@Value
+@Builder(toBuilder = true)
+public class AppConfig {
+    String url;
+    String user;
+    @ToString.Exclude
+    String password;
+    String schema;
+    int poolMinSize;
+    int poolMaxSize;
+    long poolAcquireTimeoutMs;
+    long poolIdleTimeoutMs;
+    long poolValidationIntervalMs;
+    long poolLeakDetectionThresholdMs;
+    int statementCacheSize;
+    int emailIndexMaxSize;
+    long batchWindowMicros;
+    int batchMaxSize;
+    long groupCommitMaxWaitMicros;
+    int groupCommitMaxRows;
+    int groupCommitCapacity;
+    long dogCacheMaxSize;
+    String dogCacheSizeUnit;
+    int ownerIndexMaxOwners;
+    boolean ownerIndexWarmUp;
+    long missingIdsExpectedIds;
+    long missingIdsTtlMillis;
+    int missingIdsMaxSize;
+    long responseCacheMaxBytes;
+    boolean compressionEnabled;
+    int compressionMinBytes;
+
+    public PoolSettings toPoolSettings() {
+        return PoolSettings.builder()
+                .url(url)
+                .user(user)
+                .password(password)
+                .schema(schema)
+                .minSize(poolMinSize)
+                .maxSize(poolMaxSize)
+                .acquireTimeoutMs(poolAcquireTimeoutMs)
+                .idleTimeoutMs(poolIdleTimeoutMs)
+                .validationIntervalMs(poolValidationIntervalMs)
+                .leakDetectionThresholdMs(poolLeakDetectionThresholdMs)
+                .statementCacheSize(statementCacheSize)
+                .build();
+    }
+}
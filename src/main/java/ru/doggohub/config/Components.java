@@ -0,0 +1,179 @@
+package ru.doggohub.config;
+
+import lombok.experimental.UtilityClass;
+import ru.doggohub.cache.ChangeEvents;
+import ru.doggohub.cache.DogViewCache;
+import ru.doggohub.cache.EmailIndex;
+import ru.doggohub.cache.ExistenceFilter;
+import ru.doggohub.cache.OwnerDogIndex;
+import ru.doggohub.cache.ResponseCache;
+import ru.doggohub.cache.VersionTracker;
+import ru.doggohub.repository.DogRepository;
+import ru.doggohub.repository.HealthStoryRepository;
+import ru.doggohub.repository.UserRepository;
+import ru.doggohub.service.dog.DogServiceImpl;
+import ru.doggohub.service.export.ExportServiceImpl;
+import ru.doggohub.service.health.HealthStoryServiceImpl;
+import ru.doggohub.service.user.UserServiceImpl;
+import ru.doggohub.util.DatabaseUtil;
+import ru.doggohub.util.SingleFlight;
+
+/**
+ * Общие для всех сервлетов экземпляры репозиториев и сервисов. Сервлеты создаются контейнером
+ * по отдельности, а объединение запросов и кэши работают только при общем экземпляре.
+ */
+@UtilityClass
+public class Components {
+    private static final SingleFlight dogReads = new SingleFlight();
+    private static final SingleFlight userReads = new SingleFlight();
+    private static final ChangeEvents changeEvents = new ChangeEvents();
+    private static DogViewCache dogViewCache;
+    private static OwnerDogIndex ownerDogIndex;
+    private static VersionTracker versionTracker;
+    private static ResponseCache responseCache;
+
+    private static DogRepository dogRepository;
+    private static UserRepository userRepository;
+    private static HealthStoryRepository healthStoryRepository;
+    private static DogServiceImpl dogService;
+    private static UserServiceImpl userService;
+    private static HealthStoryServiceImpl healthStoryService;
+    private static ExportServiceImpl exportService;
+
+    static {
+        Configuration.addListener(Components::applyCacheLimits);
+    }
+
+    public static synchronized DogRepository dogRepository() {
+        if (dogRepository == null) {
+            AppConfig config = Configuration.get();
+            dogRepository = new DogRepository(DatabaseUtil.getDataSource(),
+                    config.getBatchWindowMicros(), config.getBatchMaxSize(), ownerDogIndex(),
+                    existenceFilter("dogs", config));
+        }
+        return dogRepository;
+    }
+
+    public static synchronized UserRepository userRepository() {
+        if (userRepository == null) {
+            AppConfig config = Configuration.get();
+            userRepository = new UserRepository(DatabaseUtil.getDataSource(),
+                    config.getBatchWindowMicros(), config.getBatchMaxSize(), ownerDogIndex(),
+                    existenceFilter("owners", config));
+        }
+        return userRepository;
+    }
+
+    public static synchronized HealthStoryRepository healthStoryRepository() {
+        if (healthStoryRepository == null) {
+            AppConfig config = Configuration.get();
+            healthStoryRepository = new HealthStoryRepository(DatabaseUtil.getDataSource(),
+                    config.getBatchWindowMicros(), config.getBatchMaxSize(), existenceFilter("healthStories", config),
+                    config.getGroupCommitMaxWaitMicros(), config.getGroupCommitMaxRows(),
+                    config.getGroupCommitCapacity());
+        }
+        return healthStoryRepository;
+    }
+
+    public static synchronized DogServiceImpl dogService() {
+        if (dogService == null) {
+            dogService = new DogServiceImpl(userRepository(), dogRepository(), dogReads, dogViewCache(),
+                    changeEvents);
+        }
+        return dogService;
+    }
+
+    public static synchronized UserServiceImpl userService() {
+        if (userService == null) {
+            userService = new UserServiceImpl(userRepository(), dogRepository(),
+                    new EmailIndex(Configuration.get().getEmailIndexMaxSize()), userReads, changeEvents);
+        }
+        return userService;
+    }
+
+    public static synchronized HealthStoryServiceImpl healthStoryService() {
+        if (healthStoryService == null) {
+            healthStoryService = new HealthStoryServiceImpl(healthStoryRepository(), dogRepository(), changeEvents);
+        }
+        return healthStoryService;
+    }
+
+    public static synchronized ExportServiceImpl exportService() {
+        if (exportService == null) {
+            exportService = new ExportServiceImpl(userRepository(), dogRepository(), healthStoryRepository());
+        }
+        return exportService;
+    }
+
+    public static synchronized OwnerDogIndex ownerDogIndex() {
+        if (ownerDogIndex == null) {
+            ownerDogIndex = new OwnerDogIndex(Configuration.get().getOwnerIndexMaxOwners());
+        }
+        return ownerDogIndex;
+    }
+
+    /**
+     * Версии агрегатов для ETag; подписывается на {@link #changeEvents()} при первом обращении.
+     */
+    public static synchronized VersionTracker versionTracker() {
+        if (versionTracker == null) {
+            versionTracker = new VersionTracker(VersionTracker.DEFAULT_MAX_ENTRIES);
+            changeEvents.addTrailingListener(versionTracker);
+        }
+        return versionTracker;
+    }
+
+    public static synchronized ResponseCache responseCache() {
+        if (responseCache == null) {
+            responseCache = new ResponseCache(Configuration.get().getResponseCacheMaxBytes());
+        }
+        return responseCache;
+    }
+
+    public static synchronized DogViewCache dogViewCache() {
+        if (dogViewCache == null) {
+            AppConfig config = Configuration.get();
+            dogViewCache = new DogViewCache(config.getDogCacheMaxSize(),
+                    DogViewCache.SizeUnit.parse(config.getDogCacheSizeUnit()));
+        }
+        return dogViewCache;
+    }
+
+    /**
+     * Применяет новые ограничения кэшей к уже созданным экземплярам; ещё не созданные
+     * прочитают их из конфигурации сами.
+     */
+    static synchronized void applyCacheLimits(AppConfig config) {
+        if (dogViewCache != null) {
+            dogViewCache.resize(config.getDogCacheMaxSize());
+        }
+        if (responseCache != null) {
+            responseCache.resize(config.getResponseCacheMaxBytes());
+        }
+    }
+
+    private static ExistenceFilter existenceFilter(String name, AppConfig config) {
+        return new ExistenceFilter(name, config.getMissingIdsTtlMillis(), config.getMissingIdsMaxSize());
+    }
+
+    public static ChangeEvents changeEvents() {
+        return changeEvents;
+    }
+
+    public static SingleFlight dogReads() {
+        return dogReads;
+    }
+
+    public static SingleFlight userReads() {
+        return userReads;
+    }
+
+    /**
+     * Дописывает отложенные записи созданных компонентов; вызывается до закрытия пула.
+     */
+    public static synchronized void shutdown() {
+        if (healthStoryRepository != null) {
+            healthStoryRepository.shutdown();
+        }
+    }
+}
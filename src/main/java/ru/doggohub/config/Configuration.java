@@ -0,0 +1,227 @@
+package ru.doggohub.config;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.java.Log;
+import ru.doggohub.cache.DogViewCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Точка доступа к настройкам приложения.
+ * <p>
+ * Файл {@code database.properties} читается с classpath один раз; значения из него можно
+ * переопределить переменной окружения ({@code pool.maxSize} → {@code DOGGOHUB_POOL_MAXSIZE})
+ * или системным свойством ({@code -Ddoggohub.pool.maxSize=...}), у которого приоритет выше.
+ * {@link #reload()} перечитывает источники и уведомляет подписчиков о новом снимке.
+ * <p>
+ * На лету применяются размеры и таймауты пула соединений, а также размеры кэша ответов
+ * о собаках ({@code dogCache.maxSize}) и кэша готовых ответов ({@code responseCache.maxBytes}).
+ * Остальные настройки (единица размера кэша собак, индексы, объединение запросов, групповая
+ * фиксация, сжатие) читаются при создании компонентов и вступают в силу после перезапуска приложения.
+ */
+@Log
+@UtilityClass
+public class Configuration {
+    private static final String PROPERTIES_FILE = "database.properties";
+    private static final String SYSTEM_PREFIX = "doggohub.";
+    private static final String ENV_PREFIX = "DOGGOHUB_";
+
+    private static final List<Consumer<AppConfig>> listeners = new CopyOnWriteArrayList<>();
+    private static volatile AppConfig current;
+
+    public static AppConfig get() {
+        AppConfig config = current;
+        if (config == null) {
+            synchronized (Configuration.class) {
+                config = current;
+                if (config == null) {
+                    config = load();
+                    current = config;
+                }
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Перечитывает настройки. Если новые значения некорректны, действующий снимок сохраняется,
+     * а метод бросает {@link IllegalArgumentException}.
+     */
+    public static AppConfig reload() {
+        AppConfig config;
+        synchronized (Configuration.class) {
+            config = load();
+            AppConfig previous = current;
+            if (previous != null && !withLiveSettings(previous, config).equals(config)) {
+                log.warning("Настройки, кроме пула и размеров кэшей ответов, изменятся только после перезапуска приложения");
+            }
+            current = config;
+        }
+        for (Consumer<AppConfig> listener : listeners) {
+            try {
+                listener.accept(config);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Ошибка применения новых настроек", e);
+            }
+        }
+        return config;
+    }
+
+    public static void addListener(Consumer<AppConfig> listener) {
+        listeners.add(listener);
+    }
+
+    private static AppConfig load() {
+        Properties properties = new Properties();
+        try (InputStream in = Configuration.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE)) {
+            if (in == null) {
+                throw new IllegalStateException("Файл свойств " + PROPERTIES_FILE + " не найден в classpath");
+            }
+            properties.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка при загрузке файла свойств", e);
+        }
+        return load(properties, System.getProperties(), System.getenv());
+    }
+
+    /**
+     * Собирает и проверяет снимок: системное свойство важнее переменной окружения, та — файла.
+     */
+    static AppConfig load(Properties file, Properties system, Map<String, String> env) {
+        Source source = new Source(file, system, env);
+
+        AppConfig config = AppConfig.builder()
+                .url(source.string("url", null))
+                .user(source.string("user", null))
+                .password(source.string("password", null))
+                .schema(source.string("schema", "schema_name"))
+                .poolMinSize(source.integer("pool.minSize", 2))
+                .poolMaxSize(source.integer("pool.maxSize", 10))
+                .poolAcquireTimeoutMs(source.number("pool.acquireTimeoutMs", 5_000))
+                .poolIdleTimeoutMs(source.number("pool.idleTimeoutMs", 600_000))
+                .poolValidationIntervalMs(source.number("pool.validationIntervalMs", 500))
+                .poolLeakDetectionThresholdMs(source.number("pool.leakDetectionThresholdMs", 0))
+                .statementCacheSize(source.integer("statementCache.size", 64))
+                .emailIndexMaxSize(source.integer("emailIndex.maxSize", 100_000))
+                .batchWindowMicros(source.number("batch.windowMicros", 0))
+                .batchMaxSize(source.integer("batch.maxSize", 64))
+                .groupCommitMaxWaitMicros(source.number("groupCommit.maxWaitMicros", 0))
+                .groupCommitMaxRows(source.integer("groupCommit.maxRows", 256))
+                .groupCommitCapacity(source.integer("groupCommit.capacity", 10_000))
+                .dogCacheMaxSize(source.number("dogCache.maxSize", 10_000))
+                .dogCacheSizeUnit(source.string("dogCache.sizeUnit", "entries"))
+                .ownerIndexMaxOwners(source.integer("ownerIndex.maxOwners", 100_000))
+                .ownerIndexWarmUp(Boolean.parseBoolean(source.string("ownerIndex.warmUp", "false")))
+                .missingIdsExpectedIds(source.number("missingIds.expectedIds", 0))
+                .missingIdsTtlMillis(source.number("missingIds.ttlMillis", 0))
+                .missingIdsMaxSize(source.integer("missingIds.maxSize", 10_000))
+                .responseCacheMaxBytes(source.number("responseCache.maxBytes", 0))
+                .compressionEnabled(Boolean.parseBoolean(source.string("compression.enabled", "false")))
+                .compressionMinBytes(source.integer("compression.minBytes", 1024))
+                .build();
+        validate(config);
+        return config;
+    }
+
+    private static void validate(AppConfig config) {
+        if (config.getPoolMaxSize() <= 0 || config.getPoolMinSize() < 0
+                || config.getPoolMinSize() > config.getPoolMaxSize()) {
+            throw new IllegalArgumentException(String.format(
+                    "Некорректные размеры пула соединений: pool.minSize=%d, pool.maxSize=%d",
+                    config.getPoolMinSize(), config.getPoolMaxSize()));
+        }
+        requireNonNegative("pool.acquireTimeoutMs", config.getPoolAcquireTimeoutMs());
+        requireNonNegative("pool.idleTimeoutMs", config.getPoolIdleTimeoutMs());
+        requireNonNegative("pool.validationIntervalMs", config.getPoolValidationIntervalMs());
+        requireNonNegative("pool.leakDetectionThresholdMs", config.getPoolLeakDetectionThresholdMs());
+        requireNonNegative("statementCache.size", config.getStatementCacheSize());
+        requireNonNegative("emailIndex.maxSize", config.getEmailIndexMaxSize());
+        requireNonNegative("batch.windowMicros", config.getBatchWindowMicros());
+        requireNonNegative("batch.maxSize", config.getBatchMaxSize());
+        requireNonNegative("groupCommit.maxWaitMicros", config.getGroupCommitMaxWaitMicros());
+        requireNonNegative("groupCommit.maxRows", config.getGroupCommitMaxRows());
+        requireNonNegative("groupCommit.capacity", config.getGroupCommitCapacity());
+        requireNonNegative("dogCache.maxSize", config.getDogCacheMaxSize());
+        requireNonNegative("ownerIndex.maxOwners", config.getOwnerIndexMaxOwners());
+        requireNonNegative("missingIds.expectedIds", config.getMissingIdsExpectedIds());
+        requireNonNegative("missingIds.ttlMillis", config.getMissingIdsTtlMillis());
+        requireNonNegative("missingIds.maxSize", config.getMissingIdsMaxSize());
+        requireNonNegative("responseCache.maxBytes", config.getResponseCacheMaxBytes());
+        requireNonNegative("compression.minBytes", config.getCompressionMinBytes());
+        try {
+            DogViewCache.SizeUnit.parse(config.getDogCacheSizeUnit());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректное значение настройки dogCache.sizeUnit: "
+                    + config.getDogCacheSizeUnit(), e);
+        }
+    }
+
+    private static void requireNonNegative(String key, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(String.format("Некорректное значение настройки %s: %d", key, value));
+        }
+    }
+
+    /**
+     * Снимок {@code base} с настройками из {@code next}, которые применяются без перезапуска.
+     */
+    private static AppConfig withLiveSettings(AppConfig base, AppConfig next) {
+        return base.toBuilder()
+                .dogCacheMaxSize(next.getDogCacheMaxSize())
+                .responseCacheMaxBytes(next.getResponseCacheMaxBytes())
+                .poolMinSize(next.getPoolMinSize())
+                .poolMaxSize(next.getPoolMaxSize())
+                .poolAcquireTimeoutMs(next.getPoolAcquireTimeoutMs())
+                .poolIdleTimeoutMs(next.getPoolIdleTimeoutMs())
+                .poolValidationIntervalMs(next.getPoolValidationIntervalMs())
+                .poolLeakDetectionThresholdMs(next.getPoolLeakDetectionThresholdMs())
+                .build();
+    }
+
+    private static class Source {
+        private final Properties properties;
+        private final Properties system;
+        private final Map<String, String> env;
+
+        Source(Properties properties, Properties system, Map<String, String> env) {
+            this.properties = properties;
+            this.system = system;
+            this.env = env;
+        }
+
+        String string(String key, String defaultValue) {
+            String value = system.getProperty(SYSTEM_PREFIX + key);
+            if (value == null) {
+                value = env.get(ENV_PREFIX + key.replace('.', '_').toUpperCase(Locale.ROOT));
+            }
+            if (value == null) {
+                value = properties.getProperty(key);
+            }
+            return value != null ? value.trim() : defaultValue;
+        }
+
+        int integer(String key, int defaultValue) {
+            return (int) number(key, defaultValue);
+        }
+
+        long number(String key, long defaultValue) {
+            String value = string(key, null);
+            if (value == null || value.isEmpty()) {
+                return defaultValue;
+            }
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Некорректное значение настройки %s: %s", key, value), e);
+            }
+        }
+    }
+}
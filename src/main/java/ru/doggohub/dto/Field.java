@@ -0,0 +1,11 @@
+package ru.doggohub.dto;
+
+/**
+ * Поле ответа, которое клиент может запросить в параметре {@code fields}.
+ */
+public interface Field {
+    /**
+     * Имя поля в JSON-ответе.
+     */
+    String jsonName();
+}
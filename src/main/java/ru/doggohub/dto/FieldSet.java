@@ -0,0 +1,73 @@
+package ru.doggohub.dto;
+
+import lombok.EqualsAndHashCode;
+import ru.doggohub.exception.ValidationException;
+
+import java.util.EnumSet;
+import java.util.StringJoiner;
+
+/**
+ * Набор полей ответа из параметра {@code fields} (sparse fieldset), например {@code id,name,breed}.
+ * Репозитории читают только нужные столбцы, сервисы пропускают запросы за неиспользуемыми
+ * связями, а незапрошенные поля остаются {@code null} и в JSON не попадают. Первая константа
+ * перечисления — идентификатор, он входит в набор всегда.
+ */
+@EqualsAndHashCode
+public final class FieldSet<E extends Enum<E> & Field> {
+    private final EnumSet<E> fields;
+    private final boolean all;
+
+    private FieldSet(EnumSet<E> fields, Class<E> type) {
+        this.fields = fields;
+        this.all = fields.size() == type.getEnumConstants().length;
+    }
+
+    public static <E extends Enum<E> & Field> FieldSet<E> all(Class<E> type) {
+        return new FieldSet<>(EnumSet.allOf(type), type);
+    }
+
+    /**
+     * Разбирает список имён через запятую; {@code null} или пустая строка — все поля.
+     */
+    public static <E extends Enum<E> & Field> FieldSet<E> parse(String names, Class<E> type) {
+        if (names == null || names.isBlank()) {
+            return all(type);
+        }
+        E[] constants = type.getEnumConstants();
+        EnumSet<E> fields = EnumSet.of(constants[0]);
+        for (String name : names.split(",")) {
+            fields.add(byName(name.trim(), constants));
+        }
+        return new FieldSet<>(fields, type);
+    }
+
+    private static <E extends Enum<E> & Field> E byName(String name, E[] constants) {
+        for (E constant : constants) {
+            if (constant.jsonName().equals(name)) {
+                return constant;
+            }
+        }
+        throw new ValidationException(String.format("Неизвестное поле: %s", name));
+    }
+
+    public boolean contains(E field) {
+        return fields.contains(field);
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * Имена полей через запятую в порядке объявления: одинаковые наборы дают одинаковую строку,
+     * поэтому она годится в ключ кэша.
+     */
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(",");
+        for (E field : fields) {
+            joiner.add(field.jsonName());
+        }
+        return joiner.toString();
+    }
+}
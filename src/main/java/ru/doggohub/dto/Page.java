@@ -0,0 +1,42 @@
+package ru.doggohub.dto;
+
+import lombok.Value;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.util.PageCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка и курсор следующей страницы; {@code nextCursor == null} — страница последняя.
+ */
+@Value
+public class Page<T> {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    List<T> items;
+    PageCursor nextCursor;
+
+    /**
+     * Собирает страницу из {@code limit + 1} прочитанных строк: лишняя строка только
+     * показывает, что дальше есть ещё записи, и в страницу не входит.
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, PageCursor> cursor) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, cursor.apply(items.get(limit - 1)));
+    }
+
+    public <R> Page<R> map(Function<T, R> mapper) {
+        return new Page<>(items.stream().map(mapper).toList(), nextCursor);
+    }
+
+    public static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidationException(String.format("Размер страницы должен быть от 1 до %d", MAX_LIMIT));
+        }
+    }
+}
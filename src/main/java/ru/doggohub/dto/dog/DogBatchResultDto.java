@@ -0,0 +1,34 @@
+package ru.doggohub.dto.dog;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Результат пакетного добавления собак: ID добавленных собак в порядке запроса или, если
+ * хоть одна собака не прошла проверку, ошибки по номерам элементов — тогда не добавляется ни одна.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+@EqualsAndHashCode
+public class DogBatchResultDto {
+    private List<Long> ids;
+    private List<ItemError> errors;
+
+    public boolean hasErrors() {
+        return errors != null && !errors.isEmpty();
+    }
+
+    /**
+     * Ошибка элемента с номером {@code index} (с нуля) во входном массиве.
+     */
+    @Value
+    public static class ItemError {
+        int index;
+        String message;
+    }
+}
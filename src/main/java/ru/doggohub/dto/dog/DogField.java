@@ -0,0 +1,28 @@
+package ru.doggohub.dto.dog;
+
+import ru.doggohub.dto.Field;
+
+/**
+ * Поля {@link DogResponseDto} для параметра {@code fields}.
+ */
+public enum DogField implements Field {
+    ID("id"),
+    NAME("name"),
+    BIRTH_DAY("birthDay"),
+    BREED("breed"),
+    COLOR("color"),
+    GENDER("gender"),
+    WEIGHT("weight"),
+    OWNER("owner");
+
+    private final String jsonName;
+
+    DogField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    @Override
+    public String jsonName() {
+        return jsonName;
+    }
+}
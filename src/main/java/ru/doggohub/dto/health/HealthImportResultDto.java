@@ -0,0 +1,30 @@
+package ru.doggohub.dto.health;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Итог загрузки историй болезни: сколько строк загружено и отклонено, первые ошибки
+ * с номерами строк входных данных и скорость загрузки.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+@EqualsAndHashCode
+public class HealthImportResultDto {
+    private long loaded;
+    private long rejected;
+    private List<RowError> errors;
+    private long millis;
+    private long rowsPerSecond;
+
+    @Value
+    public static class RowError {
+        long line;
+        String message;
+    }
+}
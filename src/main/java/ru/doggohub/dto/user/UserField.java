@@ -0,0 +1,23 @@
+package ru.doggohub.dto.user;
+
+import ru.doggohub.dto.Field;
+
+/**
+ * Поля {@link UserResponseDto} для параметра {@code fields}.
+ */
+public enum UserField implements Field {
+    ID("id"),
+    NAME("name"),
+    DOGS("dogs");
+
+    private final String jsonName;
+
+    UserField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    @Override
+    public String jsonName() {
+        return jsonName;
+    }
+}
@@ -1,11 +1,15 @@
 package ru.doggohub.exception;
 
+/**
+ * Запрошенной записи нет. Стек вызовов не заполняется: исключение отдаётся клиенту как 404,
+ * а на поиске несуществующих ID заполнение стека стоило дороже самого ответа.
+ */
 public class NotFoundException extends RuntimeException {
     public NotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     public NotFoundException(String message, Object... args) {
-        super(String.format(message, args));
+        this(message.indexOf('%') < 0 ? message : String.format(message, args));
     }
 }
@@ -0,0 +1,99 @@
+package ru.doggohub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.dto.dog.DogBatchResultDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DogBatchResultDtoAdapter extends TypeAdapter<DogBatchResultDto> {
+
+    @Override
+    public void write(JsonWriter out, DogBatchResultDto dto) throws IOException {
+        if (dto == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (dto.getIds() != null) {
+            out.name("ids").beginArray();
+            for (Long id : dto.getIds()) {
+                out.value(id);
+            }
+            out.endArray();
+        }
+        if (dto.getErrors() != null) {
+            out.name("errors").beginArray();
+            for (DogBatchResultDto.ItemError error : dto.getErrors()) {
+                out.beginObject();
+                out.name("index").value(error.getIndex());
+                out.name("message").value(error.getMessage());
+                out.endObject();
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public DogBatchResultDto read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        DogBatchResultDto dto = new DogBatchResultDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "ids" -> dto.setIds(readIds(in));
+                case "errors" -> dto.setErrors(readErrors(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return dto;
+    }
+
+    private static List<Long> readIds(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<Long> ids = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            ids.add(Json.readLong(in));
+        }
+        in.endArray();
+        return ids;
+    }
+
+    private static List<DogBatchResultDto.ItemError> readErrors(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<DogBatchResultDto.ItemError> errors = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            int index = 0;
+            String message = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "index" -> index = in.nextInt();
+                    case "message" -> message = Json.readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            errors.add(new DogBatchResultDto.ItemError(index, message));
+        }
+        in.endArray();
+        return errors;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.doggohub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.dto.dog.DogRequestDto;
+import ru.doggohub.model.enums.Breed;
+import ru.doggohub.model.enums.Color;
+import ru.doggohub.model.enums.Gender;
+
+import java.io.IOException;
+
+public class DogRequestDtoAdapter extends TypeAdapter<DogRequestDto> {
+    private final LocalDateAdapter dates = new LocalDateAdapter();
+
+    @Override
+    public void write(JsonWriter out, DogRequestDto dto) throws IOException {
+        if (dto == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("name").value(dto.getName());
+        out.name("birthDay");
+        dates.write(out, dto.getBirthDay());
+        out.name("breed").value(Json.enumName(dto.getBreed()));
+        out.name("color").value(Json.enumName(dto.getColor()));
+        out.name("gender").value(Json.enumName(dto.getGender()));
+        out.name("weight").value(dto.getWeight());
+        out.name("ownerId").value(dto.getOwnerId());
+        out.endObject();
+    }
+
+    @Override
+    public DogRequestDto read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        DogRequestDto dto = new DogRequestDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name" -> dto.setName(Json.readString(in));
+                case "birthDay" -> dto.setBirthDay(dates.read(in));
+                case "breed" -> dto.setBreed(Json.readEnum(in, Breed.class));
+                case "color" -> dto.setColor(Json.readEnum(in, Color.class));
+                case "gender" -> dto.setGender(Json.readEnum(in, Gender.class));
+                case "weight" -> dto.setWeight(Json.readInteger(in));
+                case "ownerId" -> dto.setOwnerId(Json.readLong(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return dto;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.doggohub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.dto.dog.DogResponseDto;
+import ru.doggohub.model.enums.Breed;
+import ru.doggohub.model.enums.Color;
+import ru.doggohub.model.enums.Gender;
+
+import java.io.IOException;
+
+public class DogResponseDtoAdapter extends TypeAdapter<DogResponseDto> {
+    private final LocalDateAdapter dates = new LocalDateAdapter();
+    private final UserResponseDtoAdapter owners = new UserResponseDtoAdapter();
+
+    @Override
+    public void write(JsonWriter out, DogResponseDto dto) throws IOException {
+        if (dto == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(dto.getId());
+        out.name("name").value(dto.getName());
+        out.name("birthDay");
+        dates.write(out, dto.getBirthDay());
+        out.name("breed").value(Json.enumName(dto.getBreed()));
+        out.name("color").value(Json.enumName(dto.getColor()));
+        out.name("gender").value(Json.enumName(dto.getGender()));
+        out.name("weight").value(dto.getWeight());
+        out.name("owner");
+        owners.write(out, dto.getOwner());
+        out.endObject();
+    }
+
+    @Override
+    public DogResponseDto read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        DogResponseDto dto = new DogResponseDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" -> dto.setId(Json.readLong(in));
+                case "name" -> dto.setName(Json.readString(in));
+                case "birthDay" -> dto.setBirthDay(dates.read(in));
+                case "breed" -> dto.setBreed(Json.readEnum(in, Breed.class));
+                case "color" -> dto.setColor(Json.readEnum(in, Color.class));
+                case "gender" -> dto.setGender(Json.readEnum(in, Gender.class));
+                case "weight" -> dto.setWeight(Json.readInteger(in));
+                case "owner" -> dto.setOwner(owners.read(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return dto;
+    }
+}
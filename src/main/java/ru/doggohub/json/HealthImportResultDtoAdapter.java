@@ -0,0 +1,85 @@
+package ru.doggohub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.dto.health.HealthImportResultDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HealthImportResultDtoAdapter extends TypeAdapter<HealthImportResultDto> {
+
+    @Override
+    public void write(JsonWriter out, HealthImportResultDto dto) throws IOException {
+        if (dto == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("loaded").value(dto.getLoaded());
+        out.name("rejected").value(dto.getRejected());
+        if (dto.getErrors() != null) {
+            out.name("errors").beginArray();
+            for (HealthImportResultDto.RowError error : dto.getErrors()) {
+                out.beginObject();
+                out.name("line").value(error.getLine());
+                out.name("message").value(error.getMessage());
+                out.endObject();
+            }
+            out.endArray();
+        }
+        out.name("millis").value(dto.getMillis());
+        out.name("rowsPerSecond").value(dto.getRowsPerSecond());
+        out.endObject();
+    }
+
+    @Override
+    public HealthImportResultDto read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        HealthImportResultDto dto = new HealthImportResultDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "loaded" -> dto.setLoaded(in.nextLong());
+                case "rejected" -> dto.setRejected(in.nextLong());
+                case "errors" -> dto.setErrors(readErrors(in));
+                case "millis" -> dto.setMillis(in.nextLong());
+                case "rowsPerSecond" -> dto.setRowsPerSecond(in.nextLong());
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return dto;
+    }
+
+    private static List<HealthImportResultDto.RowError> readErrors(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<HealthImportResultDto.RowError> errors = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            long line = 0;
+            String message = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "line" -> line = in.nextLong();
+                    case "message" -> message = Json.readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            errors.add(new HealthImportResultDto.RowError(line, message));
+        }
+        in.endArray();
+        return errors;
+    }
+}
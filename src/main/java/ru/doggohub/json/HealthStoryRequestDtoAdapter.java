@@ -0,0 +1,43 @@
+package ru.doggohub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.dto.health.HealthStoryRequestDto;
+
+import java.io.IOException;
+
+public class HealthStoryRequestDtoAdapter extends TypeAdapter<HealthStoryRequestDto> {
+
+    @Override
+    public void write(JsonWriter out, HealthStoryRequestDto dto) throws IOException {
+        if (dto == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("dogId").value(dto.getDogId());
+        out.name("text").value(dto.getText());
+        out.endObject();
+    }
+
+    @Override
+    public HealthStoryRequestDto read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        HealthStoryRequestDto dto = new HealthStoryRequestDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "dogId" -> dto.setDogId(Json.readLong(in));
+                case "text" -> dto.setText(Json.readString(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return dto;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.doggohub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.dto.health.HealthStoryResponseDto;
+
+import java.io.IOException;
+
+public class HealthStoryResponseDtoAdapter extends TypeAdapter<HealthStoryResponseDto> {
+    private final LocalDateAdapter dates = new LocalDateAdapter();
+
+    @Override
+    public void write(JsonWriter out, HealthStoryResponseDto dto) throws IOException {
+        if (dto == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(dto.getId());
+        out.name("dogId").value(dto.getDogId());
+        out.name("text").value(dto.getText());
+        out.name("visit");
+        dates.write(out, dto.getVisit());
+        out.endObject();
+    }
+
+    @Override
+    public HealthStoryResponseDto read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        HealthStoryResponseDto dto = new HealthStoryResponseDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" -> dto.setId(Json.readLong(in));
+                case "dogId" -> dto.setDogId(Json.readLong(in));
+                case "text" -> dto.setText(Json.readString(in));
+                case "visit" -> dto.setVisit(dates.read(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return dto;
+    }
+}
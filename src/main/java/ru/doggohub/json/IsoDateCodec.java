@@ -0,0 +1,64 @@
+package ru.doggohub.json;
+
+import lombok.experimental.UtilityClass;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Даты в формате {@code yyyy-MM-dd} без {@link DateTimeFormatter} для обычных дат: запись
+ * в массив из десяти символов и разбор по позициям. Годы вне 1–9999 и дни после 28-го,
+ * которые надо сверять с длиной месяца, обрабатывает форматтер, чтобы результат не отличался.
+ */
+@UtilityClass
+public class IsoDateCodec {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public static String format(LocalDate date) {
+        int year = date.getYear();
+        if (year < 1 || year > 9999) {
+            return date.format(FORMATTER);
+        }
+        char[] chars = new char[10];
+        writeDigits(chars, 0, year, 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, date.getMonthValue(), 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, date.getDayOfMonth(), 2);
+        return new String(chars);
+    }
+
+    public static LocalDate parse(String text) {
+        if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            int year = readDigits(text, 0, 4);
+            int month = readDigits(text, 5, 2);
+            int day = readDigits(text, 8, 2);
+            if (year >= 1 && month >= 1 && month <= 12 && day >= 1 && day <= 28) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(text, FORMATTER);
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * @return число или {@code -1}, если среди символов есть не цифра
+     */
+    private static int readDigits(String text, int offset, int width) {
+        int value = 0;
+        for (int i = offset; i < offset + width; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
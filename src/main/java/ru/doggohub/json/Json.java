@@ -0,0 +1,95 @@
+package ru.doggohub.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import lombok.experimental.UtilityClass;
+import ru.doggohub.dto.dog.DogBatchResultDto;
+import ru.doggohub.dto.dog.DogRequestDto;
+import ru.doggohub.dto.dog.DogResponseDto;
+import ru.doggohub.dto.health.HealthImportResultDto;
+import ru.doggohub.dto.health.HealthStoryRequestDto;
+import ru.doggohub.dto.health.HealthStoryResponseDto;
+import ru.doggohub.dto.user.UserRequestDto;
+import ru.doggohub.dto.user.UserResponseDto;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Общий для приложения {@link Gson} с написанными вручную адаптерами DTO: без рефлексии
+ * и промежуточных {@code JsonElement}. Адаптеры пишут поля в порядке объявления и пропускают
+ * {@code null}, как это делал бы Gson по умолчанию, поэтому формат ответов не меняется.
+ * Экземпляр потокобезопасен.
+ */
+@UtilityClass
+public class Json {
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+            .registerTypeAdapter(UserRequestDto.class, new UserRequestDtoAdapter())
+            .registerTypeAdapter(UserResponseDto.class, new UserResponseDtoAdapter())
+            .registerTypeAdapter(DogRequestDto.class, new DogRequestDtoAdapter())
+            .registerTypeAdapter(DogResponseDto.class, new DogResponseDtoAdapter())
+            .registerTypeAdapter(DogBatchResultDto.class, new DogBatchResultDtoAdapter())
+            .registerTypeAdapter(HealthStoryRequestDto.class, new HealthStoryRequestDtoAdapter())
+            .registerTypeAdapter(HealthStoryResponseDto.class, new HealthStoryResponseDtoAdapter())
+            .registerTypeAdapter(HealthImportResultDto.class, new HealthImportResultDtoAdapter())
+            .create();
+
+    static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    static Long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            return in.nextLong();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    static Integer readInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Неизвестное имя константы даёт {@code null}, как у встроенного адаптера перечислений.
+     */
+    static <E extends Enum<E>> E readEnum(JsonReader in, Class<E> type) throws IOException {
+        String name = readString(in);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException ignore) {
+            return null;
+        }
+    }
+
+    static String enumName(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+}
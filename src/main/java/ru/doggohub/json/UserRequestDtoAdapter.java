@@ -0,0 +1,43 @@
+package ru.doggohub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.dto.user.UserRequestDto;
+
+import java.io.IOException;
+
+public class UserRequestDtoAdapter extends TypeAdapter<UserRequestDto> {
+
+    @Override
+    public void write(JsonWriter out, UserRequestDto dto) throws IOException {
+        if (dto == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("name").value(dto.getName());
+        out.name("email").value(dto.getEmail());
+        out.endObject();
+    }
+
+    @Override
+    public UserRequestDto read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        UserRequestDto.UserRequestDtoBuilder builder = UserRequestDto.builder();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name" -> builder.name(Json.readString(in));
+                case "email" -> builder.email(Json.readString(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return builder.build();
+    }
+}
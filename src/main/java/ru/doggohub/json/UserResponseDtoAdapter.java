@@ -0,0 +1,84 @@
+package ru.doggohub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.dto.user.UserResponseDto;
+import ru.doggohub.util.LongListView;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Список ID собак из {@link LongListView} пишется прямо из массива, без упаковки в {@link Long}.
+ */
+public class UserResponseDtoAdapter extends TypeAdapter<UserResponseDto> {
+
+    @Override
+    public void write(JsonWriter out, UserResponseDto dto) throws IOException {
+        if (dto == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(dto.getId());
+        out.name("name").value(dto.getName());
+        out.name("dogs");
+        writeDogs(out, dto.getDogs());
+        out.endObject();
+    }
+
+    private static void writeDogs(JsonWriter out, List<Long> dogs) throws IOException {
+        if (dogs == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        if (dogs instanceof LongListView view) {
+            for (int i = 0; i < view.size(); i++) {
+                out.value(view.getLong(i));
+            }
+        } else {
+            for (Long dogId : dogs) {
+                out.value(dogId);
+            }
+        }
+        out.endArray();
+    }
+
+    @Override
+    public UserResponseDto read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        UserResponseDto dto = new UserResponseDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" -> dto.setId(Json.readLong(in));
+                case "name" -> dto.setName(Json.readString(in));
+                case "dogs" -> dto.setDogs(readDogs(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return dto;
+    }
+
+    private static List<Long> readDogs(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<Long> dogs = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            dogs.add(Json.readLong(in));
+        }
+        in.endArray();
+        return dogs;
+    }
+}
@@ -34,7 +34,7 @@ public class DogMapper {
                 .color(dog.getColor())
                 .gender(dog.getGender())
                 .weight(dog.getWeight())
-                .owner(UserMapper.toDto(user))
+                .owner(user != null ? UserMapper.toDto(user) : null)
                 .build();
     }
 }
@@ -1,6 +1,8 @@
 package ru.doggohub.mapper;
 
 import lombok.experimental.UtilityClass;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.user.UserField;
 import ru.doggohub.dto.user.UserRequestDto;
 import ru.doggohub.dto.user.UserResponseDto;
 import ru.doggohub.model.User;
@@ -23,4 +25,15 @@ public class UserMapper {
                 .dogs(user.getDogIds() != null ? user.getDogIds() : new ArrayList<>())
                 .build();
     }
+
+    public UserResponseDto toDto(User user, FieldSet<UserField> fields) {
+        if (fields.isAll()) {
+            return toDto(user);
+        }
+        return UserResponseDto.builder()
+                .id(user.getId())
+                .name(fields.contains(UserField.NAME) ? user.getName() : null)
+                .dogs(fields.contains(UserField.DOGS) && user.getDogIds() != null ? user.getDogIds() : null)
+                .build();
+    }
 }
@@ -0,0 +1,325 @@
+package ru.doggohub.pool;
+
+import lombok.extern.java.Log;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ограниченный пул JDBC-соединений.
+ * <p>
+ * Число одновременно выданных соединений ограничено {@code maxSize}; при исчерпании пула
+ * поток ждёт не дольше {@code acquireTimeoutMs}. Простаивающие соединения хранятся в стеке
+ * (LIFO), проверяются перед выдачей и закрываются фоновой задачей после {@code idleTimeoutMs},
+ * пока в пуле больше {@code minSize} соединений. Та же задача сообщает о соединениях,
+ * удерживаемых дольше {@code leakDetectionThresholdMs}.
+ */
+@Log
+public class ConnectionPool implements DataSource, AutoCloseable {
+    private final ResizableSemaphore permits;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+    private volatile PoolSettings settings;
+    private volatile boolean closed;
+
+    public ConnectionPool(PoolSettings settings) {
+        checkSizes(settings);
+        this.settings = settings;
+        this.permits = new ResizableSemaphore(settings.getMaxSize());
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "doggohub-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fillToMinimum();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, settings.getHousekeepingPeriodMs(),
+                settings.getHousekeepingPeriodMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getAcquireTimeoutMs());
+        try {
+            if (!permits.tryAcquire(settings.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(String.format(
+                        "Не удалось получить соединение за %d мс (выдано: %d, всего: %d)",
+                        settings.getAcquireTimeoutMs(), borrowed.size(), total.get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения из пула прервано", e);
+        }
+
+        try {
+            PooledConnection entry = takeIdleOrOpen(deadline);
+            borrowed.add(entry);
+            return entry.borrow(settings.getLeakDetectionThresholdMs() > 0);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Пул работает только с учётными данными из настроек");
+    }
+
+    /**
+     * Применяет новые размеры и таймауты без пересоздания пула. Параметры подключения
+     * (адрес, пользователь, схема) вступают в силу только после перезапуска приложения.
+     */
+    public synchronized void reconfigure(PoolSettings next) {
+        checkSizes(next);
+        PoolSettings previous = settings;
+        if (!Objects.equals(previous.getUrl(), next.getUrl()) || !Objects.equals(previous.getUser(), next.getUser())
+                || !Objects.equals(previous.getPassword(), next.getPassword())
+                || !Objects.equals(previous.getSchema(), next.getSchema())) {
+            log.warning("Параметры подключения к базе данных изменятся только после перезапуска приложения");
+        }
+        settings = next.toBuilder()
+                .url(previous.getUrl())
+                .user(previous.getUser())
+                .password(previous.getPassword())
+                .schema(previous.getSchema())
+                .housekeepingPeriodMs(previous.getHousekeepingPeriodMs())
+                .build();
+
+        int delta = next.getMaxSize() - previous.getMaxSize();
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        fillToMinimum();
+    }
+
+    public PoolSettings getSettings() {
+        return settings;
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getTotalCount() {
+        return total.get();
+    }
+
+    public long getStatementCacheHits() {
+        return statementHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementMisses.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry);
+        }
+    }
+
+    void release(PooledConnection entry) {
+        borrowed.remove(entry);
+        try {
+            if (closed || total.get() > settings.getMaxSize() || !entry.reset()) {
+                discard(entry);
+            } else {
+                idle.offerFirst(entry);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledConnection takeIdleOrOpen(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection entry = idle.pollFirst();
+            if (entry == null) {
+                if (reserveSlot()) {
+                    return open();
+                }
+                entry = awaitIdle(deadline);
+            }
+            if (entry.isAlive(settings.getValidationIntervalMs(), settings.getValidationTimeoutSec())) {
+                return entry;
+            }
+            discard(entry);
+        }
+    }
+
+    private PooledConnection awaitIdle(long deadline) throws SQLException {
+        try {
+            PooledConnection entry = idle.pollFirst(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (entry == null) {
+                throw new SQLTransientConnectionException("Не удалось получить соединение: пул заполнен");
+            }
+            return entry;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения из пула прервано", e);
+        }
+    }
+
+    private static void checkSizes(PoolSettings settings) {
+        if (settings.getMaxSize() <= 0 || settings.getMinSize() < 0 || settings.getMinSize() > settings.getMaxSize()) {
+            throw new IllegalArgumentException("Некорректные размеры пула соединений: " + settings);
+        }
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = total.get();
+            if (current >= settings.getMaxSize()) {
+                return false;
+            }
+        } while (!total.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private PooledConnection open() throws SQLException {
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("user", settings.getUser());
+            properties.setProperty("password", settings.getPassword());
+            if (settings.getSchema() != null) {
+                properties.setProperty("currentSchema", settings.getSchema());
+            }
+            Connection raw = DriverManager.getConnection(settings.getUrl(), properties);
+            int cacheSize = settings.getStatementCacheSize();
+            StatementCache cache = cacheSize > 0
+                    ? new StatementCache(raw, cacheSize, statementHits, statementMisses)
+                    : null;
+            return new PooledConnection(this, raw, cache);
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void discard(PooledConnection entry) {
+        total.decrementAndGet();
+        entry.closeQuietly();
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            for (PooledConnection entry : idle) {
+                if (total.get() <= settings.getMinSize()) {
+                    break;
+                }
+                if (now - entry.getLastUsed() > settings.getIdleTimeoutMs() && idle.remove(entry)) {
+                    discard(entry);
+                }
+            }
+
+            long leakThreshold = settings.getLeakDetectionThresholdMs();
+            if (leakThreshold > 0) {
+                for (PooledConnection entry : borrowed) {
+                    if (entry.isLeakSuspected(now, leakThreshold)) {
+                        log.log(Level.WARNING, "Возможная утечка: соединение не возвращено в пул дольше "
+                                + leakThreshold + " мс", entry.getBorrowTrace());
+                    }
+                }
+            }
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Ошибка обслуживания пула соединений", e);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < settings.getMinSize() && reserveSlot()) {
+            try {
+                idle.offerLast(open());
+            } catch (SQLException e) {
+                log.log(Level.WARNING, "Не удалось открыть соединение для пула", e);
+                return;
+            }
+        }
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return log.getParent();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Пул соединений не является обёрткой над " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
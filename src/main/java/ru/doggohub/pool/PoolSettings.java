@@ -0,0 +1,38 @@
+package ru.doggohub.pool;
+
+import lombok.Builder;
+import lombok.ToString;
+import lombok.Value;
+
+/**
+ * Параметры пула соединений. Все интервалы задаются в миллисекундах,
+ * нулевое значение {@code leakDetectionThresholdMs} отключает поиск утечек,
+ * нулевое значение {@code statementCacheSize} — кэш подготовленных выражений.
+ */
+@Value
+@Builder(toBuilder = true)
+public class PoolSettings {
+    String url;
+    String user;
+    @ToString.Exclude
+    String password;
+    String schema;
+    @Builder.Default
+    int minSize = 2;
+    @Builder.Default
+    int maxSize = 10;
+    @Builder.Default
+    long acquireTimeoutMs = 5_000;
+    @Builder.Default
+    long idleTimeoutMs = 600_000;
+    @Builder.Default
+    long validationIntervalMs = 500;
+    @Builder.Default
+    int validationTimeoutSec = 2;
+    @Builder.Default
+    long leakDetectionThresholdMs = 0;
+    @Builder.Default
+    long housekeepingPeriodMs = 30_000;
+    @Builder.Default
+    int statementCacheSize = 64;
+}
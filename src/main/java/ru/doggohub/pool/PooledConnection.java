@@ -0,0 +1,162 @@
+package ru.doggohub.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Физическое соединение, принадлежащее пулу. Наружу выдаётся только прокси-обёртка,
+ * у которой {@link Connection#close()} возвращает соединение в пул, а не закрывает его.
+ */
+class PooledConnection {
+    private final ConnectionPool pool;
+    private final Connection raw;
+    private final StatementCache statementCache;
+    private volatile long lastUsed;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowTrace;
+    private volatile boolean leakReported;
+    private boolean autoCommitChanged;
+    private boolean readOnlyChanged;
+
+    PooledConnection(ConnectionPool pool, Connection raw, StatementCache statementCache) {
+        this.pool = pool;
+        this.raw = raw;
+        this.statementCache = statementCache;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    Connection getRaw() {
+        return raw;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    Throwable getBorrowTrace() {
+        return borrowTrace;
+    }
+
+    Connection borrow(boolean traceLeaks) {
+        borrowedAt = System.currentTimeMillis();
+        borrowTrace = traceLeaks ? new Exception("Соединение получено из пула здесь") : null;
+        leakReported = false;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handle());
+    }
+
+    boolean isLeakSuspected(long now, long thresholdMs) {
+        if (leakReported || now - borrowedAt < thresholdMs) {
+            return false;
+        }
+        leakReported = true;
+        return true;
+    }
+
+    boolean isAlive(long validationIntervalMs, int validationTimeoutSec) {
+        if (System.currentTimeMillis() - lastUsed < validationIntervalMs) {
+            return true;
+        }
+        try {
+            return raw.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает соединение в исходное состояние перед повторной выдачей.
+     *
+     * @return {@code false}, если соединение непригодно и его нужно закрыть
+     */
+    boolean reset() {
+        try {
+            if (autoCommitChanged) {
+                if (!raw.getAutoCommit()) {
+                    raw.rollback();
+                    raw.setAutoCommit(true);
+                }
+                autoCommitChanged = false;
+            }
+            if (readOnlyChanged) {
+                raw.setReadOnly(false);
+                readOnlyChanged = false;
+            }
+            raw.clearWarnings();
+            lastUsed = System.currentTimeMillis();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closeQuietly() {
+        try {
+            raw.close();
+        } catch (SQLException ignore) {
+            // соединение уже недоступно, закрывать нечего
+        }
+    }
+
+    private static boolean isCacheable(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        return types.length == 1 || types.length == 2 && types[1] == int.class;
+    }
+
+    private class Handle implements InvocationHandler {
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || raw.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(raw)) {
+                        return raw;
+                    }
+                    return raw.unwrap((Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(raw) || raw.isWrapperFor((Class<?>) args[0]);
+                case "toString":
+                    return "PooledConnection[" + raw + "]";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "setAutoCommit":
+                    autoCommitChanged = true;
+                    break;
+                case "setReadOnly":
+                    readOnlyChanged = true;
+                    break;
+                case "prepareStatement":
+                    if (statementCache != null && !closed.get() && isCacheable(method)) {
+                        int autoGeneratedKeys = args.length == 1 ? StatementCache.PLAIN : (Integer) args[1];
+                        return statementCache.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (closed.get()) {
+                throw new SQLException("Соединение уже возвращено в пул");
+            }
+            try {
+                return method.invoke(raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
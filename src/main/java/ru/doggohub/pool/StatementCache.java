@@ -0,0 +1,192 @@
+package ru.doggohub.pool;
+
+import lombok.Value;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU-кэш подготовленных выражений одного физического соединения, ключ — текст SQL.
+ * <p>
+ * Выражение, полученное из кэша, при {@code close()} не закрывается, а очищает параметры,
+ * восстанавливает изменённые {@code fetchSize}, {@code maxRows} и {@code queryTimeout}
+ * и возвращается в кэш. Вытесненные выражения закрываются сразу или, если они ещё
+ * используются, при возврате. Соединением одновременно владеет один поток, поэтому
+ * синхронизация не требуется.
+ */
+class StatementCache {
+    static final int PLAIN = -1;
+
+    private final Connection raw;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection raw, int capacity, LongAdder hits, LongAdder misses) {
+        this.raw = raw;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            hits.increment();
+            entry.inUse = true;
+            return entry.newHandle(owner);
+        }
+
+        misses.increment();
+        PreparedStatement statement = autoGeneratedKeys == PLAIN
+                ? raw.prepareStatement(sql)
+                : raw.prepareStatement(sql, autoGeneratedKeys);
+        if (entry != null) {
+            return statement;
+        }
+
+        entry = new Entry(key, statement);
+        entry.inUse = true;
+        entries.put(key, entry);
+        evictOverflow();
+        return entry.newHandle(owner);
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > capacity && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            eldest.evicted = true;
+            if (!eldest.inUse) {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    @Value
+    private static class Key {
+        String sql;
+        int autoGeneratedKeys;
+    }
+
+    private class Entry {
+        private final Key key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+        private Integer fetchSize;
+        private Integer maxRows;
+        private Integer queryTimeout;
+
+        Entry(Key key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        PreparedStatement newHandle(Connection owner) {
+            boolean[] closed = {false};
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (!closed[0]) {
+                                    closed[0] = true;
+                                    giveBack();
+                                }
+                                return null;
+                            case "isClosed":
+                                return closed[0] || statement.isClosed();
+                            case "getConnection":
+                                return owner;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                break;
+                        }
+                        if (closed[0]) {
+                            throw new SQLException("Выражение уже закрыто");
+                        }
+                        rememberDefaults(method.getName());
+                        try {
+                            return method.invoke(statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        /**
+         * Запоминает исходное значение настройки перед первым изменением, чтобы вернуть его при возврате.
+         */
+        private void rememberDefaults(String method) throws SQLException {
+            switch (method) {
+                case "setFetchSize":
+                    if (fetchSize == null) {
+                        fetchSize = statement.getFetchSize();
+                    }
+                    break;
+                case "setMaxRows":
+                    if (maxRows == null) {
+                        maxRows = statement.getMaxRows();
+                    }
+                    break;
+                case "setQueryTimeout":
+                    if (queryTimeout == null) {
+                        queryTimeout = statement.getQueryTimeout();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void giveBack() {
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+                if (fetchSize != null) {
+                    statement.setFetchSize(fetchSize);
+                    fetchSize = null;
+                }
+                if (maxRows != null) {
+                    statement.setMaxRows(maxRows);
+                    maxRows = null;
+                }
+                if (queryTimeout != null) {
+                    statement.setQueryTimeout(queryTimeout);
+                    queryTimeout = null;
+                }
+            } catch (SQLException e) {
+                evicted = true;
+                entries.remove(key, this);
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignore) {
+                // выражение уже недоступно вместе с соединением
+            }
+        }
+    }
+}
@@ -1,37 +1,189 @@
 package ru.doggohub.repository;
 
+import ru.doggohub.cache.ExistenceFilter;
+import ru.doggohub.cache.OwnerDogIndex;
+import ru.doggohub.cache.RequestCache;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.dog.DogField;
+import ru.doggohub.dto.dog.DogResponseDto;
+import ru.doggohub.dto.user.UserResponseDto;
 import ru.doggohub.model.Dog;
 import ru.doggohub.model.enums.Breed;
 import ru.doggohub.model.enums.Color;
 import ru.doggohub.model.enums.Gender;
+import ru.doggohub.pool.SingleConnectionDataSource;
+import ru.doggohub.util.BatchLoader;
 import ru.doggohub.util.DatabaseUtil;
+import ru.doggohub.util.LongListView;
+import ru.doggohub.util.PageCursor;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 public class DogRepository {
-    private final Connection connection;
+    static final String DOGS = "dogs";
+    static final String DOGS_BY_OWNER = "dogsByOwner";
+    private static final long[] EMPTY_IDS = new long[0];
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private final DataSource dataSource;
+    private final BatchLoader<Dog> batchLoader;
+    private final OwnerDogIndex ownerDogIndex;
+    private final ExistenceFilter existenceFilter;
+
+    public DogRepository(DataSource dataSource) {
+        this(dataSource, 0, 0, new OwnerDogIndex(OwnerDogIndex.DEFAULT_MAX_OWNERS));
+    }
+
+    public DogRepository(DataSource dataSource, long batchWindowMicros, int batchMaxSize,
+                         OwnerDogIndex ownerDogIndex) {
+        this(dataSource, batchWindowMicros, batchMaxSize, ownerDogIndex, new ExistenceFilter(DOGS, 0, 0));
+    }
+
+    /**
+     * При {@code batchWindowMicros > 0} одновременные {@link #findById} из разных потоков
+     * объединяются в один запрос, см. {@link BatchLoader}. Индекс {@code ownerDogIndex}
+     * должен быть общим с {@link UserRepository}, который сообщает об удалении владельцев.
+     * Поиск по ID, которых точно нет, {@code existenceFilter} отсекает до запроса в базу.
+     */
+    public DogRepository(DataSource dataSource, long batchWindowMicros, int batchMaxSize,
+                         OwnerDogIndex ownerDogIndex, ExistenceFilter existenceFilter) {
+        this.dataSource = dataSource;
+        this.ownerDogIndex = ownerDogIndex;
+        this.existenceFilter = existenceFilter;
+        this.batchLoader = batchWindowMicros > 0
+                ? new BatchLoader<>("dogs", this::findAllByIds,
+                        dog -> dog.toBuilder().build(), batchWindowMicros, batchMaxSize)
+                : null;
+    }
 
     public DogRepository(Connection connection) {
-        this.connection = connection;
+        this(new SingleConnectionDataSource(connection));
     }
 
     public DogRepository() {
-        try {
-            connection = DatabaseUtil.getConnection();
+        this(DatabaseUtil.getDataSource());
+    }
+
+    public Dog findById(long id) {
+        if (existenceFilter.isKnownMissing(id)) {
+            return null;
+        }
+        long stamp = existenceFilter.stamp();
+        Dog dog = RequestCache.get(DOGS, id, () -> batchLoader != null ? batchLoader.load(id) : loadById(id));
+        if (dog == null) {
+            existenceFilter.markMissing(id, stamp);
+        }
+        return dog;
+    }
+
+    public Map<Long, Dog> findAllByIds(long[] ids) {
+        Map<Long, Dog> dogs = new HashMap<>();
+        String query = "SELECT * FROM schema_name.dogs d " +
+                "JOIN schema_name.dog_owners dow ON d.id = dow.dog_id " +
+                "WHERE d.id = ANY(?)";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setArray(1, connection.createArrayOf("bigint", Arrays.stream(ids).boxed().toArray()));
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    dogs.putIfAbsent(resultSet.getLong("id"), Dog.builder()
+                            .id(resultSet.getLong("id"))
+                            .name(resultSet.getString("name"))
+                            .birthDay(resultSet.getDate("birth_day").toLocalDate())
+                            .breed(Breed.valueOf(resultSet.getString("breed")))
+                            .color(Color.valueOf(resultSet.getString("color")))
+                            .gender(Gender.valueOf(resultSet.getString("gender")))
+                            .weight(resultSet.getInt("weight"))
+                            .registrationTime(resultSet.getTimestamp("reg_time").toLocalDateTime())
+                            .ownerId(resultSet.getLong("owner_id"))
+                            .build());
+                }
+            }
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            throw new RuntimeException("Ошибка базы данных при поиске информации о собаках", e);
         }
+        return dogs;
     }
 
-    public Dog findById(long id) {
+    public BatchLoader<Dog> getBatchLoader() {
+        return batchLoader;
+    }
+
+    public ExistenceFilter getExistenceFilter() {
+        return existenceFilter;
+    }
+
+    /**
+     * Строит фильтр существующих ID собак по всей таблице.
+     *
+     * @return количество прочитанных ID
+     */
+    public long warmUpExistenceFilter(long expectedIds) {
+        return existenceFilter.build(expectedIds, this::scanIds);
+    }
+
+    /**
+     * Все ID собак по возрастанию — для проверки больших загрузок без запроса на каждую строку.
+     */
+    public long[] findAllIds() {
+        long[] ids = new long[1024];
+        int size = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(
+                    "SELECT id FROM schema_name.dogs ORDER BY id")) {
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        if (size == ids.length) {
+                            ids = Arrays.copyOf(ids, size * 2);
+                        }
+                        ids[size++] = resultSet.getLong(1);
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении идентификаторов собак", e);
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    private void scanIds(LongConsumer consumer) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT id FROM schema_name.dogs")) {
+                preparedStatement.setFetchSize(10_000);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getLong(1));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении идентификаторов собак", e);
+        }
+    }
+
+    private Dog loadById(long id) {
         Dog dog = null;
         String query = "SELECT * FROM schema_name.dogs d " +
                 "JOIN schema_name.dog_owners dow ON d.id = dow.dog_id " +
                 "WHERE d.id = ?";
 
-        try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, id);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet.next()) {
@@ -56,30 +208,231 @@ public class DogRepository {
         }
     }
 
+    /**
+     * Читает собаку вместе с владельцем и идентификаторами всех его собак одним запросом
+     * и сразу собирает ответ. Если у собаки нет владельца, поле {@code owner} остаётся пустым.
+     */
+    public DogResponseDto findViewById(long id) {
+        if (existenceFilter.isKnownMissing(id)) {
+            return null;
+        }
+        long stamp = existenceFilter.stamp();
+        DogResponseDto view = loadViewById(id);
+        if (view == null) {
+            existenceFilter.markMissing(id, stamp);
+        }
+        return view;
+    }
+
+    private DogResponseDto loadViewById(long id) {
+        DogResponseDto view = null;
+        String query = "SELECT d.id, d.name, d.birth_day, d.breed, d.color, d.gender, d.weight, " +
+                "o.id AS owner_id, o.name AS owner_name, " +
+                "(SELECT array_agg(od.dog_id ORDER BY od.dog_id) FROM schema_name.dog_owners od " +
+                "WHERE od.owner_id = o.id) AS owner_dog_ids " +
+                "FROM schema_name.dogs d " +
+                "JOIN schema_name.dog_owners dow ON d.id = dow.dog_id " +
+                "LEFT JOIN schema_name.owners o ON o.id = dow.owner_id " +
+                "WHERE d.id = ?";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setLong(1, id);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    view = DogResponseDto.builder()
+                            .id(resultSet.getLong("id"))
+                            .name(resultSet.getString("name"))
+                            .birthDay(resultSet.getDate("birth_day").toLocalDate())
+                            .breed(Breed.valueOf(resultSet.getString("breed")))
+                            .color(Color.valueOf(resultSet.getString("color")))
+                            .gender(Gender.valueOf(resultSet.getString("gender")))
+                            .weight(resultSet.getInt("weight"))
+                            .owner(readOwnerView(resultSet))
+                            .build();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при поиске информации о собаке", e);
+        }
+        return view;
+    }
+
+    private UserResponseDto readOwnerView(ResultSet resultSet) throws SQLException {
+        long ownerId = resultSet.getLong("owner_id");
+        if (resultSet.wasNull()) {
+            return null;
+        }
+        List<Long> dogIds = new ArrayList<>();
+        Array array = resultSet.getArray("owner_dog_ids");
+        if (array != null) {
+            for (Object dogId : (Object[]) array.getArray()) {
+                dogIds.add(((Number) dogId).longValue());
+            }
+        }
+        return UserResponseDto.builder()
+                .id(ownerId)
+                .name(resultSet.getString("owner_name"))
+                .dogs(dogIds)
+                .build();
+    }
+
     public List<Dog> findAllByOwnerId(long ownerId) {
+        return RequestCache.get(DOGS_BY_OWNER, ownerId, () -> loadAllByOwnerId(ownerId));
+    }
+
+    private List<Dog> loadAllByOwnerId(long ownerId) {
         List<Dog> dogList = new ArrayList<>();
         String query = "SELECT * FROM schema_name.dogs d " +
                 "JOIN schema_name.dog_owners dow ON d.id = dow.dog_id " +
-                "WHERE dow.owner_id = ?";
+                "WHERE dow.owner_id = ? ORDER BY d.reg_time, d.id";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, ownerId);
 
-            ResultSet resultSet = preparedStatement.executeQuery();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    dogList.add(Dog.builder()
+                            .id(resultSet.getLong("id"))
+                            .name(resultSet.getString("name"))
+                            .birthDay(resultSet.getDate("birth_day").toLocalDate())
+                            .breed(Breed.valueOf(resultSet.getString("breed")))
+                            .color(Color.valueOf(resultSet.getString("color")))
+                            .gender(Gender.valueOf(resultSet.getString("gender")))
+                            .weight(resultSet.getInt("weight"))
+                            .registrationTime(resultSet.getTimestamp("reg_time").toLocalDateTime())
+                            .ownerId(resultSet.getLong("owner_id"))
+                            .build());
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при поиске информации по владельцу", e);
+        }
 
-            while (resultSet.next()) {
-                dogList.add(Dog.builder()
-                        .id(resultSet.getLong("id"))
-                        .name(resultSet.getString("name"))
-                        .birthDay(resultSet.getDate("birth_day").toLocalDate())
-                        .breed(Breed.valueOf(resultSet.getString("breed")))
-                        .color(Color.valueOf(resultSet.getString("color")))
-                        .gender(Gender.valueOf(resultSet.getString("gender")))
-                        .weight(resultSet.getInt("weight"))
-                        .registrationTime(resultSet.getTimestamp("reg_time").toLocalDateTime())
-                        .ownerId(resultSet.getLong("owner_id"))
-                        .build());
+        return dogList;
+    }
+
+    /**
+     * Передаёт {@code action} собак владельца в порядке регистрации по мере чтения курсором,
+     * не собирая список в памяти. Соединение занято, пока {@code action} обрабатывает строки.
+     */
+    public void streamByOwnerId(long ownerId, Consumer<Dog> action) {
+        String query = "SELECT * FROM schema_name.dogs d " +
+                "JOIN schema_name.dog_owners dow ON d.id = dow.dog_id " +
+                "WHERE dow.owner_id = ? ORDER BY d.reg_time, d.id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setLong(1, ownerId);
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        action.accept(Dog.builder()
+                                .id(resultSet.getLong("id"))
+                                .name(resultSet.getString("name"))
+                                .birthDay(resultSet.getDate("birth_day").toLocalDate())
+                                .breed(Breed.valueOf(resultSet.getString("breed")))
+                                .color(Color.valueOf(resultSet.getString("color")))
+                                .gender(Gender.valueOf(resultSet.getString("gender")))
+                                .weight(resultSet.getInt("weight"))
+                                .registrationTime(resultSet.getTimestamp("reg_time").toLocalDateTime())
+                                .ownerId(resultSet.getLong("owner_id"))
+                                .build());
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при поиске информации по владельцу", e);
+        }
+    }
+
+    /**
+     * Возвращает собаку только со столбцами из {@code fields}, остальные поля остаются {@code null}.
+     * Владелец не читается: за ним сервис обращается отдельно, если он запрошен.
+     */
+    public Dog findFieldsById(long id, FieldSet<DogField> fields) {
+        if (existenceFilter.isKnownMissing(id)) {
+            return null;
+        }
+        long stamp = existenceFilter.stamp();
+        String query = "SELECT " + columns(fields) + " FROM schema_name.dogs d WHERE d.id = ?";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setLong(1, id);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    existenceFilter.markMissing(id, stamp);
+                    return null;
+                }
+                return readDog(resultSet, fields);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при поиске собаки", e);
+        }
+    }
+
+    /**
+     * Как {@link #streamByOwnerId(long, Consumer)}, но читает только столбцы из {@code fields}.
+     */
+    public void streamByOwnerId(long ownerId, FieldSet<DogField> fields, Consumer<Dog> action) {
+        String query = "SELECT " + columns(fields) + " FROM schema_name.dogs d " +
+                "JOIN schema_name.dog_owners dow ON d.id = dow.dog_id " +
+                "WHERE dow.owner_id = ? ORDER BY d.reg_time, d.id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setLong(1, ownerId);
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        action.accept(readDog(resultSet, fields));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при поиске информации по владельцу", e);
+        }
+    }
+
+    /**
+     * Возвращает до {@code limit} собак владельца в порядке регистрации, начиная после {@code after}
+     * ({@code null} — с начала), только со столбцами из {@code fields}. Порядок по {@code (reg_time, id)}
+     * однозначен и при одинаковом времени; время регистрации читается всегда, оно нужно для курсора.
+     */
+    public List<Dog> findPageByOwnerId(long ownerId, FieldSet<DogField> fields, PageCursor after, int limit) {
+        List<Dog> dogList = new ArrayList<>();
+        String query = "SELECT " + columns(fields) + ", d.reg_time FROM schema_name.dogs d " +
+                "JOIN schema_name.dog_owners dow ON d.id = dow.dog_id " +
+                "WHERE dow.owner_id = ? " +
+                (after != null ? "AND (d.reg_time, d.id) > (?, ?) " : "") +
+                "ORDER BY d.reg_time, d.id LIMIT ?";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            int index = 1;
+            preparedStatement.setLong(index++, ownerId);
+            if (after != null) {
+                preparedStatement.setTimestamp(index++, Timestamp.valueOf(after.requireTime()));
+                preparedStatement.setLong(index++, after.getId());
+            }
+            preparedStatement.setInt(index, limit);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    Dog dog = readDog(resultSet, fields);
+                    dog.setRegistrationTime(resultSet.getTimestamp("reg_time").toLocalDateTime());
+                    dogList.add(dog);
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка базы данных при поиске информации по владельцу", e);
@@ -88,89 +441,420 @@ public class DogRepository {
         return dogList;
     }
 
-    public Dog save(Dog dog) {
+    /**
+     * Передаёт {@code action} все собаки с ID больше {@code afterId} в порядке ID для выгрузки.
+     * Чтение идёт курсором в транзакции только для чтения, поэтому память не зависит от размера
+     * таблицы, а выгрузку можно продолжить с последнего полученного ID. Собака без владельца
+     * выгружается с {@code ownerId == null}.
+     */
+    public void exportAfter(long afterId, Consumer<Dog> action) {
+        String query = "SELECT d.id, d.name, d.birth_day, d.breed, d.color, d.gender, d.weight, d.reg_time, " +
+                "dow.owner_id FROM schema_name.dogs d " +
+                "LEFT JOIN schema_name.dog_owners dow ON d.id = dow.dog_id " +
+                "WHERE d.id > ? ORDER BY d.id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setLong(1, afterId);
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        long ownerId = resultSet.getLong("owner_id");
+                        action.accept(Dog.builder()
+                                .id(resultSet.getLong("id"))
+                                .name(resultSet.getString("name"))
+                                .birthDay(resultSet.getDate("birth_day").toLocalDate())
+                                .breed(Breed.valueOf(resultSet.getString("breed")))
+                                .color(Color.valueOf(resultSet.getString("color")))
+                                .gender(Gender.valueOf(resultSet.getString("gender")))
+                                .weight(resultSet.getInt("weight"))
+                                .registrationTime(resultSet.getTimestamp("reg_time").toLocalDateTime())
+                                .ownerId(resultSet.getObject("owner_id", Long.class))
+                                .build());
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при выгрузке собак", e);
+        }
+    }
+
+    private static String columns(FieldSet<DogField> fields) {
+        StringBuilder columns = new StringBuilder("d.id");
+        for (DogField field : DogField.values()) {
+            String column = switch (field) {
+                case NAME -> "d.name";
+                case BIRTH_DAY -> "d.birth_day";
+                case BREED -> "d.breed";
+                case COLOR -> "d.color";
+                case GENDER -> "d.gender";
+                case WEIGHT -> "d.weight";
+                case ID, OWNER -> null;
+            };
+            if (column != null && fields.contains(field)) {
+                columns.append(", ").append(column);
+            }
+        }
+        return columns.toString();
+    }
+
+    private static Dog readDog(ResultSet resultSet, FieldSet<DogField> fields) throws SQLException {
+        Dog dog = new Dog();
+        dog.setId(resultSet.getLong("id"));
+        if (fields.contains(DogField.NAME)) {
+            dog.setName(resultSet.getString("name"));
+        }
+        if (fields.contains(DogField.BIRTH_DAY)) {
+            dog.setBirthDay(resultSet.getDate("birth_day").toLocalDate());
+        }
+        if (fields.contains(DogField.BREED)) {
+            dog.setBreed(Breed.valueOf(resultSet.getString("breed")));
+        }
+        if (fields.contains(DogField.COLOR)) {
+            dog.setColor(Color.valueOf(resultSet.getString("color")));
+        }
+        if (fields.contains(DogField.GENDER)) {
+            dog.setGender(Gender.valueOf(resultSet.getString("gender")));
+        }
+        if (fields.contains(DogField.WEIGHT)) {
+            dog.setWeight(resultSet.getInt("weight"));
+        }
+        return dog;
+    }
+
+    /**
+     * Возвращает отсортированные ID собак владельца, по возможности из {@link OwnerDogIndex}.
+     * Возвращённый массив изменять нельзя.
+     */
+    public long[] findDogIdsByOwnerId(long ownerId) {
+        return ownerDogIndex.get(ownerId, () -> loadDogIdsByOwnerIds(new long[]{ownerId}).get(ownerId));
+    }
+
+    /**
+     * Возвращает идентификаторы собак сразу для нескольких владельцев: известные берутся
+     * из {@link OwnerDogIndex}, остальные загружаются одним запросом.
+     * Владельцы без собак в результат не попадают, идентификаторы отсортированы по возрастанию.
+     */
+    public Map<Long, long[]> findDogIdsByOwnerIds(long[] ownerIds) {
+        Map<Long, long[]> dogIdsByOwner = new HashMap<>();
+        long[] missing = new long[ownerIds.length];
+        int missingCount = 0;
+        for (long ownerId : ownerIds) {
+            long[] dogIds = ownerDogIndex.getIfPresent(ownerId);
+            if (dogIds == null) {
+                missing[missingCount++] = ownerId;
+            } else if (dogIds.length > 0) {
+                dogIdsByOwner.put(ownerId, dogIds);
+            }
+        }
+        if (missingCount == 0) {
+            return dogIdsByOwner;
+        }
+
+        long stamp = ownerDogIndex.stamp();
+        Map<Long, long[]> loaded = loadDogIdsByOwnerIds(Arrays.copyOf(missing, missingCount));
+        for (int i = 0; i < missingCount; i++) {
+            long[] dogIds = loaded.getOrDefault(missing[i], EMPTY_IDS);
+            ownerDogIndex.putIfUnchanged(missing[i], dogIds, stamp);
+            if (dogIds.length > 0) {
+                dogIdsByOwner.put(missing[i], dogIds);
+            }
+        }
+        return dogIdsByOwner;
+    }
+
+    /**
+     * Заполняет {@link OwnerDogIndex} всеми владельцами, у которых есть собаки, одним запросом.
+     */
+    public int warmUpOwnerDogIndex() {
+        String query = "SELECT dow.owner_id, array_agg(dow.dog_id ORDER BY dow.dog_id) AS dog_ids " +
+                "FROM schema_name.dog_owners dow " +
+                "GROUP BY dow.owner_id";
+
+        long stamp = ownerDogIndex.stamp();
+        int owners = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    ownerDogIndex.putIfUnchanged(resultSet.getLong("owner_id"), readIds(resultSet.getArray("dog_ids")), stamp);
+                    owners++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при загрузке собак владельцев", e);
+        }
+        return owners;
+    }
+
+    private Map<Long, long[]> loadDogIdsByOwnerIds(long[] ownerIds) {
+        Map<Long, long[]> dogIdsByOwner = new HashMap<>();
+        String query = "SELECT dow.owner_id, array_agg(dow.dog_id ORDER BY dow.dog_id) AS dog_ids " +
+                "FROM schema_name.dog_owners dow " +
+                "WHERE dow.owner_id = ANY(?) " +
+                "GROUP BY dow.owner_id";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setArray(1, connection.createArrayOf("bigint", Arrays.stream(ownerIds).boxed().toArray()));
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    dogIdsByOwner.put(resultSet.getLong("owner_id"), readIds(resultSet.getArray("dog_ids")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при поиске собак владельцев", e);
+        }
+        return dogIdsByOwner;
+    }
+
+    private long[] readIds(Array array) throws SQLException {
+        Object[] values = (Object[]) array.getArray();
+        long[] ids = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ids[i] = ((Number) values[i]).longValue();
+        }
+        return ids;
+    }
+
+    /**
+     * Добавляет собаку и запись о её владельце одним запросом: оба {@code INSERT} выполняются в одном
+     * CTE, поэтому собака без владельца не появится. Тот же запрос проверяет владельца и возвращает
+     * его имя, а ID его собак берутся из {@link OwnerDogIndex}.
+     *
+     * @return созданная собака с владельцем или {@code null}, если владельца {@code dog.getOwnerId()} нет
+     */
+    public DogResponseDto save(Dog dog) {
+        String query = "WITH owner AS (SELECT id, name FROM schema_name.owners WHERE id = ?), " +
+                "inserted AS (INSERT INTO schema_name.dogs (name, birth_day, breed, color, gender, weight, reg_time) " +
+                "SELECT ?, ?::date, ?, ?, ?, ?, ?::timestamp FROM owner RETURNING *), " +
+                "linked AS (INSERT INTO schema_name.dog_owners (dog_id, owner_id) " +
+                "SELECT inserted.id, owner.id FROM inserted, owner RETURNING dog_id, owner_id) " +
+                "SELECT inserted.*, owner.id AS owner_id, owner.name AS owner_name " +
+                "FROM inserted JOIN linked ON linked.dog_id = inserted.id JOIN owner ON owner.id = linked.owner_id";
+
+        long ownerId = dog.getOwnerId();
+        DogResponseDto created;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setLong(1, ownerId);
+            preparedStatement.setString(2, dog.getName());
+            preparedStatement.setDate(3, Date.valueOf(dog.getBirthDay()));
+            preparedStatement.setString(4, String.valueOf(dog.getBreed()));
+            preparedStatement.setString(5, String.valueOf(dog.getColor()));
+            preparedStatement.setString(6, String.valueOf(dog.getGender()));
+            preparedStatement.setInt(7, dog.getWeight());
+            preparedStatement.setTimestamp(8, Timestamp.valueOf(dog.getRegistrationTime()));
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                created = readChangedView(resultSet);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при добавлении новой собаки", e);
+        }
+
+        long dogId = created.getId();
+        dog.setId(dogId);
+        ownerDogIndex.addDog(ownerId, dogId);
+        existenceFilter.added(dogId);
+        RequestCache.evict(DOGS, dogId);
+        RequestCache.evict(DOGS_BY_OWNER, ownerId);
+        RequestCache.evict(UserRepository.OWNER_BY_DOG, dogId);
+        return withOwnerDogs(created);
+    }
+
+    /**
+     * Добавляет собак и записи об их владельцах в одной транзакции: пакетами по
+     * {@value #INSERT_BATCH_SIZE} строк через {@code addBatch}, ID берутся из сгенерированных ключей.
+     * При ошибке не добавляется ни одна собака. Владельцы должны существовать.
+     */
+    public void saveAll(List<Dog> dogs) {
         String insertDogQuery = "INSERT INTO schema_name.dogs (name, birth_day, breed, color, gender, weight, reg_time)" +
                 " VALUES (?,?,?,?,?,?,?)";
+        String insertDogOwnerQuery = "INSERT INTO schema_name.dog_owners (dog_id, owner_id) VALUES (?, ?)";
 
-        try {
-            PreparedStatement insertStatement = connection.prepareStatement(insertDogQuery, Statement.RETURN_GENERATED_KEYS);
-            insertStatement.setString(1, dog.getName());
-            insertStatement.setDate(2, Date.valueOf(dog.getBirthDay()));
-            insertStatement.setString(3, String.valueOf(dog.getBreed()));
-            insertStatement.setString(4, String.valueOf(dog.getColor()));
-            insertStatement.setString(5, String.valueOf(dog.getGender()));
-            insertStatement.setInt(6, dog.getWeight());
-            insertStatement.setTimestamp(7, Timestamp.valueOf(dog.getRegistrationTime()));
-
-            int affectedRows = insertStatement.executeUpdate();
-
-            if (affectedRows == 0) {
-                throw new SQLException("Вставка записи не выполнена, ни одна строка не была изменена.");
-            }
-            try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    long dogId = generatedKeys.getLong(1);
-                    dog.setId(dogId);
-                    return dog;
-                } else {
-                    throw new SQLException("Ошибка при добавлении новой собаки. ID не сгенерировано");
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insertDogs = connection.prepareStatement(insertDogQuery, new String[]{"id"});
+                 PreparedStatement insertOwners = connection.prepareStatement(insertDogOwnerQuery)) {
+                for (int from = 0; from < dogs.size(); from += INSERT_BATCH_SIZE) {
+                    List<Dog> chunk = dogs.subList(from, Math.min(dogs.size(), from + INSERT_BATCH_SIZE));
+                    for (Dog dog : chunk) {
+                        insertDogs.setString(1, dog.getName());
+                        insertDogs.setDate(2, Date.valueOf(dog.getBirthDay()));
+                        insertDogs.setString(3, String.valueOf(dog.getBreed()));
+                        insertDogs.setString(4, String.valueOf(dog.getColor()));
+                        insertDogs.setString(5, String.valueOf(dog.getGender()));
+                        insertDogs.setInt(6, dog.getWeight());
+                        insertDogs.setTimestamp(7, Timestamp.valueOf(dog.getRegistrationTime()));
+                        insertDogs.addBatch();
+                    }
+                    insertDogs.executeBatch();
+                    try (ResultSet generatedKeys = insertDogs.getGeneratedKeys()) {
+                        for (Dog dog : chunk) {
+                            if (!generatedKeys.next()) {
+                                throw new SQLException("Ошибка при добавлении собак. ID не сгенерировано");
+                            }
+                            dog.setId(generatedKeys.getLong(1));
+                        }
+                    }
+                    for (Dog dog : chunk) {
+                        insertOwners.setLong(1, dog.getId());
+                        insertOwners.setLong(2, dog.getOwnerId());
+                        insertOwners.addBatch();
+                    }
+                    insertOwners.executeBatch();
                 }
-            } catch (SQLException e) {
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
                 connection.rollback();
-                throw new RuntimeException(e);
+                dogs.forEach(dog -> dog.setId(null));
+                throw e;
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Ошибка базы данных при добавлении новой собаки", e);
+            throw new RuntimeException("Ошибка базы данных при добавлении собак", e);
+        }
+
+        for (Dog dog : dogs) {
+            ownerDogIndex.addDog(dog.getOwnerId(), dog.getId());
+            existenceFilter.added(dog.getId());
+            RequestCache.evict(DOGS, dog.getId());
+            RequestCache.evict(DOGS_BY_OWNER, dog.getOwnerId());
+            RequestCache.evict(UserRepository.OWNER_BY_DOG, dog.getId());
         }
     }
 
     public void saveDogOwner(long dogId, long ownerId) {
         String insertDogOwnerQuery = "INSERT INTO schema_name.dog_owners (dog_id, owner_id) VALUES (?, ?)";
-        try {
-            PreparedStatement statement = connection.prepareStatement(insertDogOwnerQuery);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(insertDogOwnerQuery)) {
             statement.setLong(1, dogId);
             statement.setLong(2, ownerId);
 
             statement.executeUpdate();
 
+            ownerDogIndex.addDog(ownerId, dogId);
+            existenceFilter.added(dogId);
+            RequestCache.evict(DOGS, dogId);
+            RequestCache.evict(DOGS_BY_OWNER, ownerId);
+            RequestCache.evict(UserRepository.OWNER_BY_DOG, dogId);
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка при заполнении таблицы владельцев собак" + e);
         }
     }
 
-    public void removeById(long id) {
-        String query = "DELETE FROM schema_name.dogs WHERE id = ?";
+    /**
+     * Удаляет собаку одним запросом {@code DELETE ... RETURNING}.
+     *
+     * @return удалённая собака с ID владельца или {@code null}, если собаки не было
+     */
+    public Dog removeById(long id) {
+        String query = "WITH deleted AS (DELETE FROM schema_name.dogs WHERE id = ? RETURNING *) " +
+                "SELECT deleted.*, dow.owner_id FROM deleted " +
+                "LEFT JOIN schema_name.dog_owners dow ON dow.dog_id = deleted.id";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        Dog dog;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, id);
-
-            preparedStatement.executeUpdate();
-
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                dog = resultSet.next() ? readChangedDog(resultSet) : null;
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка базы данных при удалении объекта", e);
         }
+
+        ownerDogIndex.removeDog(id);
+        existenceFilter.removed(id);
+        RequestCache.evict(DOGS, id);
+        RequestCache.evictRegion(DOGS_BY_OWNER);
+        RequestCache.evict(UserRepository.OWNER_BY_DOG, id);
+        return dog;
     }
 
-    public Dog update(Dog dog) {
-        String query = "UPDATE schema_name.dogs SET name = ?, weight =? WHERE id =?";
+    /**
+     * Меняет кличку и вес одним запросом {@code UPDATE ... RETURNING}; поле {@code null} остаётся прежним.
+     * Имя владельца возвращает тот же запрос, ID его собак берутся из {@link OwnerDogIndex}.
+     *
+     * @return собака после изменения с владельцем или {@code null}, если собаки с {@code dog.getId()} нет
+     */
+    public DogResponseDto update(Dog dog) {
+        String query = "WITH updated AS (UPDATE schema_name.dogs " +
+                "SET name = coalesce(?, name), weight = coalesce(?, weight) WHERE id = ? RETURNING *) " +
+                "SELECT updated.*, o.id AS owner_id, o.name AS owner_name FROM updated " +
+                "LEFT JOIN schema_name.dog_owners dow ON dow.dog_id = updated.id " +
+                "LEFT JOIN schema_name.owners o ON o.id = dow.owner_id";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        DogResponseDto updated;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setString(1, dog.getName());
-            preparedStatement.setInt(2, dog.getWeight());
+            preparedStatement.setObject(2, dog.getWeight(), Types.INTEGER);
             preparedStatement.setLong(3, dog.getId());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                updated = resultSet.next() ? readChangedView(resultSet) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при обновлении информации: " + dog, e);
+        }
 
-            int affectedRows = preparedStatement.executeUpdate();
+        if (updated == null) {
+            return null;
+        }
+        RequestCache.evict(DOGS, updated.getId());
+        RequestCache.evictRegion(DOGS_BY_OWNER);
+        return withOwnerDogs(updated);
+    }
 
-            if (affectedRows == 0) {
-                throw new SQLException("Вставка записи не выполнена, ни одна строка не была изменена.");
-            }
-            return dog;
+    private static Dog readChangedDog(ResultSet resultSet) throws SQLException {
+        return Dog.builder()
+                .id(resultSet.getLong("id"))
+                .name(resultSet.getString("name"))
+                .birthDay(resultSet.getDate("birth_day").toLocalDate())
+                .breed(Breed.valueOf(resultSet.getString("breed")))
+                .color(Color.valueOf(resultSet.getString("color")))
+                .gender(Gender.valueOf(resultSet.getString("gender")))
+                .weight(resultSet.getInt("weight"))
+                .registrationTime(resultSet.getTimestamp("reg_time").toLocalDateTime())
+                .ownerId(resultSet.getObject("owner_id", Long.class))
+                .build();
+    }
 
+    /**
+     * Ответ по строке изменившей собаку команды; ID собак владельца добавляет {@link #withOwnerDogs}
+     * уже после того, как соединение возвращено в пул.
+     */
+    private static DogResponseDto readChangedView(ResultSet resultSet) throws SQLException {
+        Long ownerId = resultSet.getObject("owner_id", Long.class);
+        return DogResponseDto.builder()
+                .id(resultSet.getLong("id"))
+                .name(resultSet.getString("name"))
+                .birthDay(resultSet.getDate("birth_day").toLocalDate())
+                .breed(Breed.valueOf(resultSet.getString("breed")))
+                .color(Color.valueOf(resultSet.getString("color")))
+                .gender(Gender.valueOf(resultSet.getString("gender")))
+                .weight(resultSet.getInt("weight"))
+                .owner(ownerId != null ? UserResponseDto.builder()
+                        .id(ownerId)
+                        .name(resultSet.getString("owner_name"))
+                        .build() : null)
+                .build();
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Ошибка базы данных при обновлении информации: " + dog, e);
+    private DogResponseDto withOwnerDogs(DogResponseDto view) {
+        UserResponseDto owner = view.getOwner();
+        if (owner != null) {
+            owner.setDogs(new LongListView(findDogIdsByOwnerId(owner.getId())));
         }
+        return view;
     }
-}
\ No newline at end of file
+}
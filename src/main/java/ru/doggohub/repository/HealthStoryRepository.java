@@ -1,25 +1,81 @@
 package ru.doggohub.repository;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import ru.doggohub.cache.ExistenceFilter;
 import ru.doggohub.model.HealthStory;
+import ru.doggohub.pool.SingleConnectionDataSource;
+import ru.doggohub.util.BatchLoader;
 import ru.doggohub.util.DatabaseUtil;
+import ru.doggohub.util.GroupCommit;
 
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 public class HealthStoryRepository {
-    private final Connection connection;
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+    private static final long GROUP_COMMIT_TIMEOUT_MILLIS = 5_000;
+
+    private final DataSource dataSource;
+    private final BatchLoader<HealthStory> batchLoader;
+    private final ExistenceFilter existenceFilter;
+    private final GroupCommit<HealthStory> groupCommit;
+
+    public HealthStoryRepository(DataSource dataSource) {
+        this(dataSource, 0, 0);
+    }
+
+    public HealthStoryRepository(DataSource dataSource, long batchWindowMicros, int batchMaxSize) {
+        this(dataSource, batchWindowMicros, batchMaxSize, new ExistenceFilter("healthStories", 0, 0));
+    }
+
+    /**
+     * При {@code batchWindowMicros > 0} одновременные {@link #findById} из разных потоков
+     * объединяются в один запрос, см. {@link BatchLoader}. Поиск по ID, которых точно нет,
+     * {@code existenceFilter} отсекает до запроса в базу.
+     */
+    public HealthStoryRepository(DataSource dataSource, long batchWindowMicros, int batchMaxSize,
+                                 ExistenceFilter existenceFilter) {
+        this(dataSource, batchWindowMicros, batchMaxSize, existenceFilter, 0, 0, 0);
+    }
+
+    /**
+     * При {@code groupCommitMaxWaitMicros > 0} {@link #save} из разных потоков записываются
+     * пачками до {@code groupCommitMaxRows} строк одной транзакцией, см. {@link GroupCommit}.
+     * Очередь ограничена {@code groupCommitCapacity}; при переполнении, а также если история
+     * прождала в очереди дольше {@value #GROUP_COMMIT_TIMEOUT_MILLIS} мс, она записывается сразу.
+     */
+    public HealthStoryRepository(DataSource dataSource, long batchWindowMicros, int batchMaxSize,
+                                 ExistenceFilter existenceFilter, long groupCommitMaxWaitMicros,
+                                 int groupCommitMaxRows, int groupCommitCapacity) {
+        this.dataSource = dataSource;
+        this.existenceFilter = existenceFilter;
+        this.batchLoader = batchWindowMicros > 0
+                ? new BatchLoader<>("healthStories", this::findAllByIds,
+                        story -> story.toBuilder().build(), batchWindowMicros, batchMaxSize)
+                : null;
+        this.groupCommit = groupCommitMaxWaitMicros > 0
+                ? new GroupCommit<>("healthStories", this::insertAll,
+                        groupCommitMaxWaitMicros, groupCommitMaxRows, groupCommitCapacity)
+                : null;
+    }
 
     public HealthStoryRepository(Connection connection) {
-        this.connection = connection;
+        this(new SingleConnectionDataSource(connection));
     }
 
     public HealthStoryRepository() {
-        try {
-            connection = DatabaseUtil.getConnection();
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        this(DatabaseUtil.getDataSource());
     }
 
     public List<HealthStory> findByDogId(long dogId) {
@@ -27,12 +83,13 @@ public class HealthStoryRepository {
 
         String query = "SELECT * FROM schema_name.dog_details " + "WHERE dog_id = ?";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, dogId);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                storyList.add(HealthStory.builder().id(resultSet.getLong("id")).dogId(resultSet.getLong("dog_id")).text(resultSet.getString("health_history")).visit(resultSet.getDate("visit_time").toLocalDate()).build());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    storyList.add(HealthStory.builder().id(resultSet.getLong("id")).dogId(resultSet.getLong("dog_id")).text(resultSet.getString("health_history")).visit(resultSet.getDate("visit_time").toLocalDate()).build());
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -40,11 +97,92 @@ public class HealthStoryRepository {
         return storyList;
     }
 
+    /**
+     * Передаёт {@code action} истории болезни собаки по мере чтения курсором, не собирая
+     * список в памяти. Соединение занято, пока {@code action} обрабатывает строки.
+     */
+    public void streamByDogId(long dogId, Consumer<HealthStory> action) {
+        String query = "SELECT * FROM schema_name.dog_details WHERE dog_id = ? ORDER BY id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setLong(1, dogId);
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        action.accept(HealthStory.builder().id(resultSet.getLong("id")).dogId(resultSet.getLong("dog_id")).text(resultSet.getString("health_history")).visit(resultSet.getDate("visit_time").toLocalDate()).build());
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении историй болезни", e);
+        }
+    }
+
+    /**
+     * Возвращает до {@code limit} историй болезни собаки с ID больше {@code afterId} в порядке ID.
+     */
+    public List<HealthStory> findPageByDogId(long dogId, long afterId, int limit) {
+        List<HealthStory> storyList = new ArrayList<>();
+        String query = "SELECT * FROM schema_name.dog_details WHERE dog_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setLong(1, dogId);
+            preparedStatement.setLong(2, afterId);
+            preparedStatement.setInt(3, limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    storyList.add(HealthStory.builder().id(resultSet.getLong("id")).dogId(resultSet.getLong("dog_id")).text(resultSet.getString("health_history")).visit(resultSet.getDate("visit_time").toLocalDate()).build());
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении историй болезни", e);
+        }
+        return storyList;
+    }
+
+    /**
+     * Передаёт {@code action} все истории болезни с ID больше {@code afterId} в порядке ID для
+     * выгрузки: курсором в транзакции только для чтения, с продолжением по последнему ID.
+     */
+    public void exportAfter(long afterId, Consumer<HealthStory> action) {
+        String query = "SELECT * FROM schema_name.dog_details WHERE id > ? ORDER BY id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setLong(1, afterId);
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        action.accept(HealthStory.builder().id(resultSet.getLong("id")).dogId(resultSet.getLong("dog_id")).text(resultSet.getString("health_history")).visit(resultSet.getDate("visit_time").toLocalDate()).build());
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при выгрузке историй болезни", e);
+        }
+    }
+
     public HealthStory save(HealthStory healthStory) {
+        CompletableFuture<Long> committed = groupCommit != null ? groupCommit.submit(healthStory) : null;
+        Long committedId = committed != null ? groupCommit.await(committed, GROUP_COMMIT_TIMEOUT_MILLIS) : null;
+        if (committedId != null) {
+            healthStory.setId(committedId);
+            return healthStory;
+        }
+
         String query = "INSERT INTO schema_name.dog_details (dog_id, health_history, visit_time)" + " VALUES (?,?,?)";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             preparedStatement.setLong(1, healthStory.getDogId());
             preparedStatement.setString(2, healthStory.getText());
             preparedStatement.setDate(3, Date.valueOf(healthStory.getVisit()));
@@ -59,6 +197,7 @@ public class HealthStoryRepository {
                 if (generatedKeys.next()) {
                     long storyId = generatedKeys.getLong(1);
                     healthStory.setId(storyId);
+                    existenceFilter.added(storyId);
                     return healthStory;
 
                 } else {
@@ -72,17 +211,233 @@ public class HealthStoryRepository {
         }
     }
 
+    /**
+     * Вставляет истории одним многострочным {@code INSERT} из массивов и одной фиксацией.
+     * Порядок строк {@code RETURNING} не гарантирован, поэтому ID берутся из последовательности
+     * заранее, вставляются явно и возвращаются вместе с номером строки во входных массивах.
+     *
+     * @return ID историй в порядке списка
+     */
+    private long[] insertAll(List<HealthStory> stories) {
+        String query = "WITH numbered AS (" +
+                "SELECT nextval(pg_get_serial_sequence('schema_name.dog_details', 'id')) AS id, " +
+                "dog_id, health_history, visit_time, ordinality " +
+                "FROM unnest(?::bigint[], ?::text[], ?::date[]) WITH ORDINALITY " +
+                "AS t(dog_id, health_history, visit_time, ordinality) ORDER BY ordinality), " +
+                "inserted AS (INSERT INTO schema_name.dog_details (id, dog_id, health_history, visit_time) " +
+                "SELECT id, dog_id, health_history, visit_time FROM numbered) " +
+                "SELECT id, ordinality FROM numbered";
+
+        Long[] dogIds = new Long[stories.size()];
+        String[] texts = new String[stories.size()];
+        Date[] visits = new Date[stories.size()];
+        for (int i = 0; i < stories.size(); i++) {
+            HealthStory story = stories.get(i);
+            dogIds[i] = story.getDogId();
+            texts[i] = story.getText();
+            visits[i] = Date.valueOf(story.getVisit());
+        }
+
+        long[] ids = new long[stories.size()];
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setArray(1, connection.createArrayOf("bigint", dogIds));
+            preparedStatement.setArray(2, connection.createArrayOf("text", texts));
+            preparedStatement.setArray(3, connection.createArrayOf("date", visits));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                int count = 0;
+                while (resultSet.next()) {
+                    long ordinality = resultSet.getLong("ordinality");
+                    if (ordinality < 1 || ordinality > ids.length || ids[(int) ordinality - 1] != 0) {
+                        throw new SQLException("Ошибка при добавлении историй болезни. Неверный номер строки " + ordinality);
+                    }
+                    ids[(int) ordinality - 1] = resultSet.getLong("id");
+                    count++;
+                }
+                if (count != ids.length) {
+                    throw new SQLException("Ошибка при добавлении историй болезни. ID не сгенерировано");
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при добавлении историй болезни", e);
+        }
+        for (long id : ids) {
+            existenceFilter.added(id);
+        }
+        return ids;
+    }
+
+    public GroupCommit<HealthStory> getGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Дописывает истории, ожидающие групповой фиксации; вызывается до закрытия пула соединений.
+     */
+    public void shutdown() {
+        if (groupCommit != null) {
+            groupCommit.close();
+        }
+    }
+
+    /**
+     * Загружает истории болезни командой {@code COPY ... FROM STDIN} во временную таблицу и переносит
+     * их в основную одним {@code INSERT ... SELECT ... RETURNING}: строки уходят на сервер по мере
+     * чтения {@code stories}, даты визитов сохраняются как есть. Всё выполняется одной транзакцией:
+     * при ошибке, в том числе при чтении {@code stories}, не загружается ни одна строка. После фиксации
+     * передаёт {@code loaded} ID и собаку каждой новой истории, чтобы кэши узнали о ней; одновременные
+     * вставки в таблицу сюда не попадают.
+     *
+     * @return число загруженных строк
+     */
+    public long copyIn(Iterator<HealthStory> stories, Consumer<HealthStory> loaded) {
+        String stagingQuery = "CREATE TEMPORARY TABLE health_story_load "
+                + "(dog_id bigint, health_history text, visit_time date) ON COMMIT DROP";
+        String copyQuery = "COPY health_story_load (dog_id, health_history, visit_time) FROM STDIN WITH (FORMAT csv)";
+        String insertQuery = "INSERT INTO schema_name.dog_details (dog_id, health_history, visit_time) "
+                + "SELECT dog_id, health_history, visit_time FROM health_story_load RETURNING id, dog_id";
+
+        long[] ids = new long[64];
+        long[] dogIds = new long[64];
+        int count = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(stagingQuery);
+                }
+
+                CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copyQuery);
+                try {
+                    StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+                    while (stories.hasNext()) {
+                        HealthStory story = stories.next();
+                        buffer.append(story.getDogId()).append(",\"")
+                                .append(story.getText().replace("\"", "\"\""))
+                                .append("\",").append(story.getVisit()).append('\n');
+                        if (buffer.length() >= COPY_BUFFER_CHARS) {
+                            writeToCopy(copyIn, buffer);
+                        }
+                    }
+                    writeToCopy(copyIn, buffer);
+                    copyIn.endCopy();
+                } catch (SQLException | RuntimeException e) {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                    throw e;
+                }
+
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery(insertQuery)) {
+                    while (resultSet.next()) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                            dogIds = Arrays.copyOf(dogIds, count * 2);
+                        }
+                        ids[count] = resultSet.getLong("id");
+                        dogIds[count] = resultSet.getLong("dog_id");
+                        count++;
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при загрузке историй болезни", e);
+        }
+
+        for (int i = 0; i < count; i++) {
+            existenceFilter.added(ids[i]);
+            loaded.accept(HealthStory.builder().id(ids[i]).dogId(dogIds[i]).build());
+        }
+        return count;
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
     public HealthStory findById(long storyId) {
+        if (existenceFilter.isKnownMissing(storyId)) {
+            return null;
+        }
+        long stamp = existenceFilter.stamp();
+        HealthStory story = batchLoader != null ? batchLoader.load(storyId) : loadById(storyId);
+        if (story == null) {
+            existenceFilter.markMissing(storyId, stamp);
+        }
+        return story;
+    }
+
+    public Map<Long, HealthStory> findAllByIds(long[] ids) {
+        Map<Long, HealthStory> stories = new HashMap<>();
+        String query = "SELECT * FROM schema_name.dog_details " + "WHERE id = ANY(?)";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setArray(1, connection.createArrayOf("bigint", Arrays.stream(ids).boxed().toArray()));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    stories.put(resultSet.getLong("id"), HealthStory.builder().id(resultSet.getLong("id")).dogId(resultSet.getLong("dog_id")).text(resultSet.getString("health_history")).visit(resultSet.getDate("visit_time").toLocalDate()).build());
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return stories;
+    }
+
+    public BatchLoader<HealthStory> getBatchLoader() {
+        return batchLoader;
+    }
+
+    public ExistenceFilter getExistenceFilter() {
+        return existenceFilter;
+    }
+
+    /**
+     * Строит фильтр существующих ID историй болезни по всей таблице.
+     *
+     * @return количество прочитанных ID
+     */
+    public long warmUpExistenceFilter(long expectedIds) {
+        return existenceFilter.build(expectedIds, this::scanIds);
+    }
+
+    private void scanIds(LongConsumer consumer) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT id FROM schema_name.dog_details")) {
+                preparedStatement.setFetchSize(10_000);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getLong(1));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении идентификаторов историй болезни", e);
+        }
+    }
+
+    private HealthStory loadById(long storyId) {
         HealthStory healthStory = null;
 
         String query = "SELECT * FROM schema_name.dog_details " + "WHERE id = ?";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, storyId);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                healthStory = HealthStory.builder().id(resultSet.getLong("id")).dogId(resultSet.getLong("dog_id")).text(resultSet.getString("health_history")).visit(resultSet.getDate("visit_time").toLocalDate()).build();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    healthStory = HealthStory.builder().id(resultSet.getLong("id")).dogId(resultSet.getLong("dog_id")).text(resultSet.getString("health_history")).visit(resultSet.getDate("visit_time").toLocalDate()).build();
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -93,12 +448,13 @@ public class HealthStoryRepository {
     public void removeById(long id) {
         String query = "DELETE FROM schema_name.dog_details WHERE id = ?";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, id);
 
             preparedStatement.executeUpdate();
 
+            existenceFilter.removed(id);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -1,43 +1,84 @@
 package ru.doggohub.repository;
 
+import ru.doggohub.cache.ExistenceFilter;
+import ru.doggohub.cache.OwnerDogIndex;
+import ru.doggohub.cache.RequestCache;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.user.UserField;
 import ru.doggohub.model.User;
+import ru.doggohub.pool.SingleConnectionDataSource;
+import ru.doggohub.util.BatchLoader;
 import ru.doggohub.util.DatabaseUtil;
+import ru.doggohub.util.LongListView;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 public class UserRepository {
-    private final Connection connection;
+    static final String USERS = "users";
+    static final String OWNER_BY_DOG = "ownerByDog";
 
-    public UserRepository(Connection connection) {
-        this.connection = connection;
+    private final DataSource dataSource;
+    private final BatchLoader<User> batchLoader;
+    private final OwnerDogIndex ownerDogIndex;
+    private final ExistenceFilter existenceFilter;
+
+    public UserRepository(DataSource dataSource) {
+        this(dataSource, 0, 0, new OwnerDogIndex(OwnerDogIndex.DEFAULT_MAX_OWNERS));
+    }
+
+    public UserRepository(DataSource dataSource, long batchWindowMicros, int batchMaxSize,
+                          OwnerDogIndex ownerDogIndex) {
+        this(dataSource, batchWindowMicros, batchMaxSize, ownerDogIndex, new ExistenceFilter(USERS, 0, 0));
+    }
+
+    /**
+     * При {@code batchWindowMicros > 0} одновременные {@link #findById} из разных потоков
+     * объединяются в один запрос, см. {@link BatchLoader}. Удалённые владельцы убираются
+     * из {@code ownerDogIndex}, общего с {@link DogRepository}. Поиск по ID, которых точно
+     * нет, {@code existenceFilter} отсекает до запроса в базу.
+     */
+    public UserRepository(DataSource dataSource, long batchWindowMicros, int batchMaxSize,
+                          OwnerDogIndex ownerDogIndex, ExistenceFilter existenceFilter) {
+        this.dataSource = dataSource;
+        this.ownerDogIndex = ownerDogIndex;
+        this.existenceFilter = existenceFilter;
+        this.batchLoader = batchWindowMicros > 0
+                ? new BatchLoader<>("owners", this::findAllByIds,
+                        user -> user.toBuilder().build(), batchWindowMicros, batchMaxSize)
+                : null;
     }
 
+    public UserRepository(Connection connection) {
+        this(new SingleConnectionDataSource(connection));
+    }
 
     public UserRepository() {
-        try {
-            connection = DatabaseUtil.getConnection();
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        this(DatabaseUtil.getDataSource());
     }
 
     public List<User> findAll() {
         List<User> users = new ArrayList<>();
         String query = "SELECT * FROM schema_name.owners";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
-
-            ResultSet resultSet = preparedStatement.executeQuery();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
 
-            while (resultSet.next()) {
-                users.add(User.builder()
-                        .id(resultSet.getLong("id"))
-                        .name(resultSet.getString("name"))
-                        .email(resultSet.getString("email"))
-                        .build());
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    users.add(User.builder()
+                            .id(resultSet.getLong("id"))
+                            .name(resultSet.getString("name"))
+                            .email(resultSet.getString("email"))
+                            .build());
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка базы данных");
@@ -46,22 +87,240 @@ public class UserRepository {
     }
 
 
+    /**
+     * Передаёт {@code action} всех владельцев с ID их собак по мере чтения курсором, не собирая
+     * список в памяти. Соединение занято, пока {@code action} обрабатывает строки.
+     */
+    public void streamAllWithDogIds(Consumer<User> action) {
+        String query = "SELECT o.id, o.name, o.email, " +
+                "ARRAY(SELECT dow.dog_id FROM schema_name.dog_owners dow " +
+                "WHERE dow.owner_id = o.id ORDER BY dow.dog_id) AS dog_ids " +
+                "FROM schema_name.owners o ORDER BY o.id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        action.accept(User.builder()
+                                .id(resultSet.getLong("id"))
+                                .name(resultSet.getString("name"))
+                                .email(resultSet.getString("email"))
+                                .dogIds(new LongListView(toLongArray(resultSet.getArray("dog_ids"))))
+                                .build());
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении списка владельцев", e);
+        }
+    }
+
+    /**
+     * Как {@link #streamAllWithDogIds(Consumer)}, но ID собак читаются, только если они
+     * есть в {@code fields}: без них не выполняется подзапрос к {@code dog_owners}.
+     */
+    public void streamAll(FieldSet<UserField> fields, Consumer<User> action) {
+        String query = "SELECT " + columns(fields) + " FROM schema_name.owners o ORDER BY o.id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        action.accept(readUser(resultSet, fields));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении списка владельцев", e);
+        }
+    }
+
+    /**
+     * Возвращает до {@code limit} владельцев с ID больше {@code afterId} в порядке ID, только со
+     * столбцами из {@code fields}. Условие и сортировка идут по первичному ключу, поэтому
+     * глубина страницы на время не влияет.
+     */
+    public List<User> findPage(FieldSet<UserField> fields, long afterId, int limit) {
+        List<User> users = new ArrayList<>();
+        String query = "SELECT " + columns(fields) + " FROM schema_name.owners o WHERE o.id > ? ORDER BY o.id LIMIT ?";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setLong(1, afterId);
+            preparedStatement.setInt(2, limit);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    users.add(readUser(resultSet, fields));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении списка владельцев", e);
+        }
+        return users;
+    }
+
+    /**
+     * Передаёт {@code action} владельцев с ID больше {@code afterId} в порядке ID для выгрузки:
+     * курсором в транзакции только для чтения. Читаются только ID и имя, без адресов почты.
+     */
+    public void exportAfter(long afterId, Consumer<User> action) {
+        String query = "SELECT o.id, o.name FROM schema_name.owners o WHERE o.id > ? ORDER BY o.id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setLong(1, afterId);
+                preparedStatement.setFetchSize(DatabaseUtil.STREAM_FETCH_SIZE);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        action.accept(User.builder()
+                                .id(resultSet.getLong("id"))
+                                .name(resultSet.getString("name"))
+                                .build());
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при выгрузке владельцев", e);
+        }
+    }
+
+    private static String columns(FieldSet<UserField> fields) {
+        StringBuilder columns = new StringBuilder("o.id");
+        if (fields.contains(UserField.NAME)) {
+            columns.append(", o.name");
+        }
+        if (fields.contains(UserField.DOGS)) {
+            columns.append(", ARRAY(SELECT dow.dog_id FROM schema_name.dog_owners dow " +
+                    "WHERE dow.owner_id = o.id ORDER BY dow.dog_id) AS dog_ids");
+        }
+        return columns.toString();
+    }
+
+    /**
+     * Незапрошенный список собак остаётся {@code null}, а не пустым списком.
+     */
+    private static User readUser(ResultSet resultSet, FieldSet<UserField> fields) throws SQLException {
+        User user = new User();
+        user.setId(resultSet.getLong("id"));
+        user.setDogIds(fields.contains(UserField.DOGS)
+                ? new LongListView(toLongArray(resultSet.getArray("dog_ids"))) : null);
+        if (fields.contains(UserField.NAME)) {
+            user.setName(resultSet.getString("name"));
+        }
+        return user;
+    }
+
+    private static long[] toLongArray(Array array) throws SQLException {
+        if (array == null) {
+            return new long[0];
+        }
+        Object[] values = (Object[]) array.getArray();
+        long[] result = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = ((Number) values[i]).longValue();
+        }
+        array.free();
+        return result;
+    }
+
     public User findById(long id) {
+        if (existenceFilter.isKnownMissing(id)) {
+            return null;
+        }
+        long stamp = existenceFilter.stamp();
+        User user = RequestCache.get(USERS, id, () -> batchLoader != null ? batchLoader.load(id) : loadById(id));
+        if (user == null) {
+            existenceFilter.markMissing(id, stamp);
+        }
+        return user;
+    }
+
+    public Map<Long, User> findAllByIds(long[] ids) {
+        Map<Long, User> users = new HashMap<>();
+        String query = "SELECT * FROM schema_name.owners o WHERE o.id = ANY(?)";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setArray(1, connection.createArrayOf("bigint", Arrays.stream(ids).boxed().toArray()));
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    users.put(resultSet.getLong("id"), User.builder()
+                            .id(resultSet.getLong("id"))
+                            .name(resultSet.getString("name"))
+                            .email(resultSet.getString("email"))
+                            .build());
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при поиске пользователей", e);
+        }
+        return users;
+    }
+
+    public BatchLoader<User> getBatchLoader() {
+        return batchLoader;
+    }
+
+    public ExistenceFilter getExistenceFilter() {
+        return existenceFilter;
+    }
+
+    /**
+     * Строит фильтр существующих ID владельцев по всей таблице.
+     *
+     * @return количество прочитанных ID
+     */
+    public long warmUpExistenceFilter(long expectedIds) {
+        return existenceFilter.build(expectedIds, this::scanIds);
+    }
+
+    private void scanIds(LongConsumer consumer) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT id FROM schema_name.owners")) {
+                preparedStatement.setFetchSize(10_000);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getLong(1));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при чтении идентификаторов владельцев", e);
+        }
+    }
+
+    private User loadById(long id) {
         User user = null;
         String query = "SELECT * FROM schema_name.owners o WHERE o.id = ?";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, id);
 
-            ResultSet resultSet = preparedStatement.executeQuery();
-
-            if (resultSet.next()) {
-                user = User.builder()
-                        .id(resultSet.getLong("id"))
-                        .name(resultSet.getString("name"))
-                        .email(resultSet.getString("email"))
-                        .build();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    user = User.builder()
+                            .id(resultSet.getLong("id"))
+                            .name(resultSet.getString("name"))
+                            .email(resultSet.getString("email"))
+                            .build();
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Пользователь не найден", e);
@@ -72,8 +331,8 @@ public class UserRepository {
     public User save(User user) {
         String insertQuery = "INSERT INTO schema_name.owners (name, email) VALUES (?,?)";
 
-        try {
-            PreparedStatement insertStatement = connection.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insertStatement = connection.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
             insertStatement.setString(1, user.getName());
             insertStatement.setString(2, user.getEmail());
 
@@ -88,6 +347,8 @@ public class UserRepository {
 
                     long userId = generatedKeys.getLong(1);
                     user.setId(userId);
+                    existenceFilter.added(userId);
+                    RequestCache.put(USERS, userId, user);
                     return user;
                 } else {
                     throw new SQLException("Сгенерированный ключ не был получен.");
@@ -101,9 +362,8 @@ public class UserRepository {
     public User update(User user) {
         String query = "UPDATE schema_name.owners SET name = ?, email = ? WHERE id = ?";
 
-        try {
-
-            PreparedStatement updateStatement = connection.prepareStatement(query);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement updateStatement = connection.prepareStatement(query)) {
             updateStatement.setString(1, user.getName());
             updateStatement.setString(2, user.getEmail());
             updateStatement.setLong(3, user.getId());
@@ -114,6 +374,8 @@ public class UserRepository {
                 throw new SQLException("Вставка записи не выполнена, ни одна строка не была изменена.");
             }
 
+            RequestCache.put(USERS, user.getId(), user);
+            RequestCache.evictRegion(OWNER_BY_DOG);
             return user;
 
         } catch (SQLException e) {
@@ -121,24 +383,64 @@ public class UserRepository {
         }
     }
 
+    /**
+     * Проверяет, занят ли адрес. Ожидает адрес, нормализованный {@code EmailIndex.normalize}, так же
+     * адреса и хранятся: сравнение с {@code lower(email)} использует уникальный индекс
+     * owners_email_lower_uidx из {@code db/indexes.sql}.
+     */
+    public boolean existsByEmail(String normalizedEmail) {
+        String query = "SELECT EXISTS (SELECT 1 FROM schema_name.owners o WHERE lower(o.email) = ?)";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setString(1, normalizedEmail);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при проверке адреса электронной почты", e);
+        }
+    }
+
+    /**
+     * Есть ли индекс, на который рассчитан {@link #existsByEmail}; без него проверка читает всю таблицу.
+     */
+    public boolean hasEmailIndex() {
+        String query = "SELECT EXISTS (SELECT 1 FROM pg_indexes " +
+                "WHERE schemaname = 'schema_name' AND indexname = 'owners_email_lower_uidx')";
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            return resultSet.next() && resultSet.getBoolean(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("Ошибка базы данных при проверке индексов", e);
+        }
+    }
+
     public User findOwnerByDogId(long dogId) {
+        return RequestCache.get(OWNER_BY_DOG, dogId, () -> loadOwnerByDogId(dogId));
+    }
+
+    private User loadOwnerByDogId(long dogId) {
         User user = null;
         String query = "SELECT * FROM schema_name.owners o " +
                 "JOIN schema_name.dog_owners dow ON o.id = dow.owner_id " +
                 "WHERE dow.dog_id = ?";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, dogId);
 
-            ResultSet resultSet = preparedStatement.executeQuery();
-
-            if (resultSet.next()) {
-                user = User.builder()
-                        .id(resultSet.getLong("id"))
-                        .name(resultSet.getString("name"))
-                        .email(resultSet.getString("email"))
-                        .build();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    user = User.builder()
+                            .id(resultSet.getLong("id"))
+                            .name(resultSet.getString("name"))
+                            .email(resultSet.getString("email"))
+                            .build();
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Пользователь не найден", e);
@@ -150,12 +452,18 @@ public class UserRepository {
 
         String query = "DELETE FROM schema_name.owners WHERE id = ?";
 
-        try {
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setLong(1, userId);
 
             preparedStatement.executeUpdate();
 
+            ownerDogIndex.removeOwner(userId);
+            existenceFilter.removed(userId);
+            RequestCache.evict(USERS, userId);
+            RequestCache.evictRegion(OWNER_BY_DOG);
+            RequestCache.evictRegion(DogRepository.DOGS_BY_OWNER);
+            RequestCache.evictRegion(DogRepository.DOGS);
         } catch (SQLException e) {
             throw new RuntimeException("Ошибка базы данных при удалении объекта", e);
         }
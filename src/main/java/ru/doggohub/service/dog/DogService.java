@@ -1,17 +1,53 @@
 package ru.doggohub.service.dog;
 
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.Page;
+import ru.doggohub.dto.dog.DogBatchResultDto;
+import ru.doggohub.dto.dog.DogField;
 import ru.doggohub.dto.dog.DogRequestDto;
 import ru.doggohub.dto.dog.DogResponseDto;
 
+import ru.doggohub.util.PageCursor;
+
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface DogService {
+    /**
+     * Наибольшее число собак в одном пакетном добавлении.
+     */
+    int MAX_BATCH_SIZE = 10_000;
+
     DogResponseDto getById(long id);
 
+    /**
+     * Собака только с полями из {@code fields}; без {@code owner} владелец не читается.
+     */
+    DogResponseDto getById(long id, FieldSet<DogField> fields);
+
     List<DogResponseDto> getByOwnerId(long id);
 
+    /**
+     * Передаёт {@code action} собак владельца по одному, не собирая список в памяти.
+     * Отсутствие владельца проверяется до первой собаки.
+     */
+    void streamByOwnerId(long id, Consumer<DogResponseDto> action);
+
+    void streamByOwnerId(long id, FieldSet<DogField> fields, Consumer<DogResponseDto> action);
+
+    /**
+     * Страница собак владельца в порядке регистрации после {@code after} ({@code null} — первая страница).
+     */
+    Page<DogResponseDto> getPageByOwnerId(long id, FieldSet<DogField> fields, PageCursor after, int limit);
+
     DogResponseDto add(DogRequestDto dogRequestDto);
 
+    /**
+     * Проверяет все собаки и добавляет их одной транзакцией; если хоть одна не прошла
+     * проверку, не добавляется ни одна, а в результате перечислены ошибки по элементам.
+     */
+    DogBatchResultDto addBatch(List<DogRequestDto> dogRequestDtos);
+
     DogResponseDto update(DogRequestDto dogRequestDto, long dogId);
 
     void deleteById(long id);
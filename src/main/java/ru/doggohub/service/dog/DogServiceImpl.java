@@ -1,6 +1,12 @@
 package ru.doggohub.service.dog;
 
-import lombok.RequiredArgsConstructor;
+import ru.doggohub.cache.ChangeEvents;
+import ru.doggohub.cache.ChangeType;
+import ru.doggohub.cache.DogViewCache;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.Page;
+import ru.doggohub.dto.dog.DogBatchResultDto;
+import ru.doggohub.dto.dog.DogField;
 import ru.doggohub.dto.dog.DogRequestDto;
 import ru.doggohub.dto.dog.DogResponseDto;
 import ru.doggohub.exception.NotFoundException;
@@ -10,72 +16,212 @@ import ru.doggohub.model.Dog;
 import ru.doggohub.model.User;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.UserRepository;
+import ru.doggohub.util.LongListView;
+import ru.doggohub.util.PageCursor;
+import ru.doggohub.util.SingleFlight;
 
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
-import static java.util.stream.Collectors.toList;
 
-
-@RequiredArgsConstructor
 public class DogServiceImpl implements DogService {
 
     private final UserRepository userRepository;
     private final DogRepository dogRepository;
+    private final SingleFlight singleFlight;
+    private final DogViewCache viewCache;
+    private final ChangeEvents changeEvents;
+
+    public DogServiceImpl(UserRepository userRepository, DogRepository dogRepository) {
+        this(userRepository, dogRepository, new SingleFlight(),
+                new DogViewCache(DogViewCache.DEFAULT_MAX_SIZE, DogViewCache.SizeUnit.ENTRIES), new ChangeEvents());
+    }
+
+    /**
+     * Кэш ответов подписывается на {@code changeEvents}: туда же должны сообщать
+     * об изменениях владельцев, см. {@code UserServiceImpl}.
+     */
+    public DogServiceImpl(UserRepository userRepository, DogRepository dogRepository, SingleFlight singleFlight,
+                          DogViewCache viewCache, ChangeEvents changeEvents) {
+        this.userRepository = userRepository;
+        this.dogRepository = dogRepository;
+        this.singleFlight = singleFlight;
+        this.viewCache = viewCache;
+        this.changeEvents = changeEvents;
+        changeEvents.addListener(viewCache);
+    }
 
     @Override
     public DogResponseDto add(DogRequestDto dogRequestDto) {
         validNewDog(dogRequestDto);
 
         long userId = dogRequestDto.getOwnerId();
-        validAndGetUser(userId);
+        if (userId <= 0) {
+            throw new ValidationException("ID пользователя не может быть отрицательным");
+        }
 
-        Dog dog = dogRepository.save(DogMapper.fromDto(dogRequestDto, userId));
-        dogRepository.saveDogOwner(dog.getId(), userId);
-        User user = getUserByDogId(dog.getId());
+        DogResponseDto created = Optional.ofNullable(dogRepository.save(DogMapper.fromDto(dogRequestDto, userId)))
+                .orElseThrow(() -> new NotFoundException("Пользователь с ID={} не найден", userId));
+        changeEvents.dogChanged(created.getId(), userId, ChangeType.CREATED);
+        return created;
+    }
 
-        return DogMapper.toDto(dog, user);
+    @Override
+    public DogBatchResultDto addBatch(List<DogRequestDto> dtos) {
+        if (dtos.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException(String.format("За один запрос можно добавить не больше %d собак", MAX_BATCH_SIZE));
+        }
+        if (dtos.isEmpty()) {
+            return DogBatchResultDto.builder().ids(List.of()).build();
+        }
+        List<DogBatchResultDto.ItemError> errors = new ArrayList<>();
+        Map<Long, User> owners = userRepository.findAllByIds(dtos.stream()
+                .map(dto -> dto != null ? dto.getOwnerId() : null)
+                .filter(ownerId -> ownerId != null && ownerId > 0)
+                .mapToLong(Long::longValue)
+                .distinct()
+                .toArray());
+        for (int i = 0; i < dtos.size(); i++) {
+            DogRequestDto dto = dtos.get(i);
+            try {
+                validNewDog(dto);
+                if (dto.getOwnerId() == null || dto.getOwnerId() <= 0) {
+                    throw new ValidationException("ID пользователя не может быть отрицательным");
+                }
+                if (!owners.containsKey(dto.getOwnerId())) {
+                    throw new NotFoundException(String.format("Пользователь с ID=%d не найден", dto.getOwnerId()));
+                }
+            } catch (ValidationException | NotFoundException e) {
+                errors.add(new DogBatchResultDto.ItemError(i, e.getMessage()));
+            }
+        }
+        if (!errors.isEmpty()) {
+            return DogBatchResultDto.builder().errors(errors).build();
+        }
+
+        List<Dog> dogs = dtos.stream()
+                .map(dto -> DogMapper.fromDto(dto, dto.getOwnerId()))
+                .toList();
+        dogRepository.saveAll(dogs);
+        long[] ids = new long[dogs.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Dog dog = dogs.get(i);
+            ids[i] = dog.getId();
+            changeEvents.dogChanged(dog.getId(), dog.getOwnerId(), ChangeType.CREATED);
+        }
+        return DogBatchResultDto.builder().ids(new LongListView(ids)).build();
     }
 
     @Override
     public DogResponseDto getById(long dogId) {
-        Dog dog = validAndGetDog(dogId);
+        validDogId(dogId);
+        return viewCache.getView(dogId, id -> singleFlight.execute("dog", id, () -> loadView(id)));
+    }
 
-        return DogMapper.toDto(dog, getUserByDogId(dogId));
+    @Override
+    public DogResponseDto getById(long dogId, FieldSet<DogField> fields) {
+        if (fields.isAll()) {
+            return getById(dogId);
+        }
+        validDogId(dogId);
+        Dog dog = Optional.ofNullable(dogRepository.findFieldsById(dogId, fields))
+                .orElseThrow(() -> new NotFoundException(String.format("Собака с ID=%d не найдена", dogId)));
+        return DogMapper.toDto(dog, fields.contains(DogField.OWNER) ? getUserByDogId(dogId) : null);
+    }
+
+    private DogResponseDto loadView(long dogId) {
+        DogResponseDto view = Optional.ofNullable(dogRepository.findViewById(dogId))
+                .orElseThrow(() -> new NotFoundException(String.format("Собака с ID=%d не найдена", dogId)));
+        if (view.getOwner() == null) {
+            throw new NotFoundException("Владелец собаки с ID={} не найден", dogId);
+        }
+        return view;
     }
 
     @Override
     public List<DogResponseDto> getByOwnerId(long ownerId) {
+        return singleFlight.execute("dogsByOwner", ownerId, () -> loadByOwnerId(ownerId));
+    }
+
+    private List<DogResponseDto> loadByOwnerId(long ownerId) {
         User user = validAndGetUser(ownerId);
 
         List<Dog> dogList = dogRepository.findAllByOwnerId(ownerId);
 
         return dogList
                 .stream()
-                .sorted(Comparator.comparing(Dog::getRegistrationTime))
                 .map((Dog dog) -> DogMapper.toDto(dog, user))
-                .collect(toList());
+                .toList();
     }
 
     @Override
-    public DogResponseDto update(DogRequestDto dto, long dogId) {
-        Dog dog = validAndGetDog(dogId);
+    public void streamByOwnerId(long ownerId, Consumer<DogResponseDto> action) {
+        User user = validAndGetUser(ownerId);
+        dogRepository.streamByOwnerId(ownerId, dog -> action.accept(DogMapper.toDto(dog, user)));
+    }
+
+    @Override
+    public void streamByOwnerId(long ownerId, FieldSet<DogField> fields, Consumer<DogResponseDto> action) {
+        if (fields.isAll()) {
+            streamByOwnerId(ownerId, action);
+            return;
+        }
+        User user = ownerFor(ownerId, fields);
+        dogRepository.streamByOwnerId(ownerId, fields, dog -> action.accept(DogMapper.toDto(dog, user)));
+    }
 
-        if (dto.getName() != null) {
-            dog.setName(dto.getName());
+    @Override
+    public Page<DogResponseDto> getPageByOwnerId(long ownerId, FieldSet<DogField> fields, PageCursor after, int limit) {
+        Page.checkLimit(limit);
+        User user = ownerFor(ownerId, fields);
+        List<Dog> dogs = dogRepository.findPageByOwnerId(ownerId, fields, after, limit + 1);
+        return Page.of(dogs, limit, dog -> PageCursor.of(dog.getRegistrationTime(), dog.getId()))
+                .map(dog -> DogMapper.toDto(dog, user));
+    }
+
+    /**
+     * Владелец для ответа со списком его собак или {@code null}, если он не запрошен:
+     * тогда проверяется только его существование, без чтения списка собак.
+     */
+    private User ownerFor(long ownerId, FieldSet<DogField> fields) {
+        if (fields.contains(DogField.OWNER)) {
+            return validAndGetUser(ownerId);
+        }
+        if (ownerId <= 0) {
+            throw new ValidationException("ID пользователя не может быть отрицательным");
         }
-        if (dto.getWeight() != null) {
-            dog.setWeight(dto.getWeight());
+        if (userRepository.findById(ownerId) == null) {
+            throw new NotFoundException("Пользователь с ID={} не найден", ownerId);
         }
+        return null;
+    }
+
+    @Override
+    public DogResponseDto update(DogRequestDto dto, long dogId) {
+        validDogId(dogId);
 
-        return DogMapper.toDto(dogRepository.update(dog), getUserByDogId(dogId));
+        Dog changes = Dog.builder()
+                .id(dogId)
+                .name(dto.getName())
+                .weight(dto.getWeight())
+                .build();
+
+        DogResponseDto updated = Optional.ofNullable(dogRepository.update(changes))
+                .orElseThrow(() -> dogNotFound(dogId));
+        changeEvents.dogChanged(dogId, updated.getOwner() != null ? updated.getOwner().getId() : null,
+                ChangeType.UPDATED);
+        return updated;
     }
 
     @Override
     public void deleteById(long dogId) {
-        validAndGetDog(dogId);
-        dogRepository.removeById(dogId);
+        validDogId(dogId);
+        Dog deleted = Optional.ofNullable(dogRepository.removeById(dogId))
+                .orElseThrow(() -> dogNotFound(dogId));
+        changeEvents.dogChanged(dogId, deleted.getOwnerId(), ChangeType.DELETED);
     }
 
     private User validAndGetUser(long userId) {
@@ -86,30 +232,30 @@ public class DogServiceImpl implements DogService {
         User user = Optional.ofNullable(userRepository.findById(userId))
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID={} не найден", userId));
 
-        List<Long> dogIdList = dogRepository.findAllByOwnerId(userId)
-                .stream()
-                .map(Dog::getId)
-                .toList();
-
-        user.setDogIds(dogIdList);
+        user.setDogIds(getDogIds(userId));
         return user;
     }
 
     private User getUserByDogId(long dogId) {
         User user = Optional.ofNullable(userRepository.findOwnerByDogId(dogId)).orElseThrow(()
                 -> new NotFoundException("Владелец собаки с ID={} не найден", dogId));
-        List<Dog> dogList = dogRepository.findAllByOwnerId(user.getId());
-        List<Long> dogIdList = dogList.stream().map(Dog::getId).toList();
-        user.setDogIds(dogIdList);
+        user.setDogIds(getDogIds(user.getId()));
         return user;
     }
 
-    private Dog validAndGetDog(long dogId) {
+    private List<Long> getDogIds(long ownerId) {
+        long[] dogIds = dogRepository.findDogIdsByOwnerId(ownerId);
+        return dogIds != null ? new LongListView(dogIds) : new ArrayList<>();
+    }
+
+    private static NotFoundException dogNotFound(long dogId) {
+        return new NotFoundException(String.format("Собака с ID=%d не найдена", dogId));
+    }
+
+    private void validDogId(long dogId) {
         if (dogId < 0) {
             throw new ValidationException("ID собаки не может быть отрицательным");
         }
-        return Optional.ofNullable(dogRepository.findById(dogId))
-                .orElseThrow(() -> new NotFoundException(String.format("Собака с ID=%d не найдена", dogId)));
     }
 
     private void validNewDog(DogRequestDto dto) {
@@ -0,0 +1,19 @@
+package ru.doggohub.service.export;
+
+import ru.doggohub.model.Dog;
+import ru.doggohub.model.HealthStory;
+import ru.doggohub.model.User;
+
+import java.util.function.Consumer;
+
+/**
+ * Полная выгрузка таблиц для аналитики. Записи передаются {@code action} по одной в порядке ID,
+ * начиная после {@code afterId}: прерванную выгрузку продолжают с последнего полученного ID.
+ */
+public interface ExportService {
+    void exportDogs(long afterId, Consumer<Dog> action);
+
+    void exportOwners(long afterId, Consumer<User> action);
+
+    void exportHealthStories(long afterId, Consumer<HealthStory> action);
+}
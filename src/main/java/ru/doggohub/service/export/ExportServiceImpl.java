@@ -0,0 +1,43 @@
+package ru.doggohub.service.export;
+
+import lombok.RequiredArgsConstructor;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.model.Dog;
+import ru.doggohub.model.HealthStory;
+import ru.doggohub.model.User;
+import ru.doggohub.repository.DogRepository;
+import ru.doggohub.repository.HealthStoryRepository;
+import ru.doggohub.repository.UserRepository;
+
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class ExportServiceImpl implements ExportService {
+    private final UserRepository userRepository;
+    private final DogRepository dogRepository;
+    private final HealthStoryRepository healthStoryRepository;
+
+    @Override
+    public void exportDogs(long afterId, Consumer<Dog> action) {
+        validAfterId(afterId);
+        dogRepository.exportAfter(afterId, action);
+    }
+
+    @Override
+    public void exportOwners(long afterId, Consumer<User> action) {
+        validAfterId(afterId);
+        userRepository.exportAfter(afterId, action);
+    }
+
+    @Override
+    public void exportHealthStories(long afterId, Consumer<HealthStory> action) {
+        validAfterId(afterId);
+        healthStoryRepository.exportAfter(afterId, action);
+    }
+
+    private void validAfterId(long afterId) {
+        if (afterId < 0) {
+            throw new ValidationException("ID, с которого продолжается выгрузка, не может быть отрицательным");
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package ru.doggohub.service.health;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import ru.doggohub.exception.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Формат загружаемых историй болезни: CSV с заголовком или NDJSON (объект JSON на строку).
+ * Нужны поля {@code dogId}, {@code visit} и {@code text}, остальные пропускаются, поэтому
+ * подходит и выгрузка {@code /export/health}.
+ */
+public enum HealthImportFormat {
+    CSV {
+        @Override
+        RecordReader open(Reader in) throws IOException {
+            return new CsvRecordReader(in);
+        }
+    },
+    NDJSON {
+        @Override
+        RecordReader open(Reader in) {
+            return new NdjsonRecordReader(in);
+        }
+    };
+
+    abstract RecordReader open(Reader in) throws IOException;
+
+    /**
+     * Читает записи по одной. Значения полей — строки как есть, проверяет их вызывающий.
+     * Ошибка формата записи — {@link ValidationException}, после неё можно читать дальше.
+     */
+    abstract static class RecordReader {
+        long line;
+        String dogId;
+        String visit;
+        String text;
+
+        /**
+         * @return {@code false}, если записи кончились
+         */
+        abstract boolean next() throws IOException;
+    }
+
+    /**
+     * CSV по RFC 4180: значение в кавычках может содержать запятые, кавычки ({@code ""}) и переводы строк.
+     */
+    private static final class CsvRecordReader extends RecordReader {
+        private final Reader in;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private final int dogIdColumn;
+        private final int visitColumn;
+        private final int textColumn;
+        private long nextLine = 1;
+
+        CsvRecordReader(Reader in) throws IOException {
+            this.in = in;
+            if (!readFields()) {
+                throw new ValidationException("Пустой CSV: нужен заголовок dogId,visit,text");
+            }
+            List<String> header = fields.stream().map(String::trim).toList();
+            dogIdColumn = column(header, "dogId");
+            visitColumn = column(header, "visit");
+            textColumn = column(header, "text");
+        }
+
+        private static int column(List<String> header, String name) {
+            int index = header.indexOf(name);
+            if (index < 0) {
+                throw new ValidationException(String.format("В заголовке CSV нет столбца %s", name));
+            }
+            return index;
+        }
+
+        @Override
+        boolean next() throws IOException {
+            do {
+                line = nextLine;
+                if (!readFields()) {
+                    return false;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+            if (fields.size() <= Math.max(dogIdColumn, Math.max(visitColumn, textColumn))) {
+                throw new ValidationException("Не хватает столбцов");
+            }
+            dogId = fields.get(dogIdColumn);
+            visit = fields.get(visitColumn);
+            text = fields.get(textColumn);
+            return true;
+        }
+
+        private boolean readFields() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            int c = in.read();
+            if (c == -1) {
+                return false;
+            }
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new ValidationException("Незакрытая кавычка");
+                    }
+                    if (c == '"') {
+                        c = in.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        nextLine++;
+                    }
+                    field.append((char) c);
+                } else if (c == -1 || c == '\n') {
+                    fields.add(field.toString());
+                    nextLine++;
+                    return true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+    }
+
+    private static final class NdjsonRecordReader extends RecordReader {
+        private final BufferedReader in;
+
+        NdjsonRecordReader(Reader in) {
+            this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        }
+
+        @Override
+        boolean next() throws IOException {
+            String json;
+            do {
+                json = in.readLine();
+                line++;
+                if (json == null) {
+                    return false;
+                }
+            } while (json.isBlank());
+            dogId = null;
+            visit = null;
+            text = null;
+            try (JsonReader reader = new JsonReader(new StringReader(json))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "dogId" -> dogId = readString(reader);
+                        case "visit" -> visit = readString(reader);
+                        case "text" -> text = readString(reader);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } catch (IOException | IllegalStateException e) {
+                throw new ValidationException("Неверный JSON: " + e.getMessage());
+            }
+            return true;
+        }
+
+        private static String readString(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            return reader.nextString();
+        }
+    }
+}
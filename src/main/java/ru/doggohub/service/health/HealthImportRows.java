@@ -0,0 +1,103 @@
+package ru.doggohub.service.health;
+
+import ru.doggohub.dto.health.HealthImportResultDto;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.model.HealthStory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Проверенные истории болезни из загружаемых данных. Строки с ошибками пропускаются:
+ * считаются все, запоминаются первые {@value #MAX_ERRORS}. Собаки ищутся в заранее
+ * прочитанном отсортированном массиве ID, без запроса на каждую строку.
+ */
+class HealthImportRows implements Iterator<HealthStory> {
+    static final int MAX_ERRORS = 100;
+
+    private final HealthImportFormat.RecordReader reader;
+    private final long[] dogIds;
+    private final LocalDate today = LocalDate.now();
+    private final List<HealthImportResultDto.RowError> errors = new ArrayList<>();
+    private long rejected;
+    private HealthStory next;
+
+    HealthImportRows(HealthImportFormat.RecordReader reader, long[] dogIds) {
+        this.reader = reader;
+        this.dogIds = dogIds;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            try {
+                if (!reader.next()) {
+                    return false;
+                }
+                next = toStory();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ValidationException e) {
+                rejected++;
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(new HealthImportResultDto.RowError(reader.line, e.getMessage()));
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public HealthStory next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        HealthStory story = next;
+        next = null;
+        return story;
+    }
+
+    private HealthStory toStory() {
+        long dogId;
+        try {
+            dogId = Long.parseLong(reader.dogId != null ? reader.dogId.trim() : "");
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Неверный ID собаки: " + reader.dogId);
+        }
+        if (Arrays.binarySearch(dogIds, dogId) < 0) {
+            throw new ValidationException(String.format("Собака с ID=%d не найдена", dogId));
+        }
+        LocalDate visit;
+        try {
+            visit = LocalDate.parse(reader.visit != null ? reader.visit.trim() : "");
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Неверная дата визита: " + reader.visit);
+        }
+        if (visit.isAfter(today)) {
+            throw new ValidationException("Дата визита в будущем: " + visit);
+        }
+        if (reader.text == null || reader.text.isBlank()) {
+            throw new ValidationException("Получен пустой текст истории болезни");
+        }
+        return HealthStory.builder()
+                .dogId(dogId)
+                .visit(visit)
+                .text(reader.text)
+                .build();
+    }
+
+    long rejected() {
+        return rejected;
+    }
+
+    List<HealthImportResultDto.RowError> errors() {
+        return errors;
+    }
+}
@@ -1,9 +1,16 @@
 package ru.doggohub.service.health;
 
+import ru.doggohub.dto.Page;
+import ru.doggohub.dto.health.HealthImportResultDto;
 import ru.doggohub.dto.health.HealthStoryRequestDto;
 import ru.doggohub.dto.health.HealthStoryResponseDto;
 
+import ru.doggohub.util.PageCursor;
+
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface HealthStoryService {
     HealthStoryResponseDto add(HealthStoryRequestDto dto);
@@ -12,5 +19,22 @@ public interface HealthStoryService {
 
     List<HealthStoryResponseDto> getByDogId(long dogId);
 
+    /**
+     * Передаёт {@code action} истории болезни собаки по одной, не собирая список в памяти.
+     * Отсутствие собаки проверяется до первой истории.
+     */
+    void streamByDogId(long dogId, Consumer<HealthStoryResponseDto> action);
+
+    /**
+     * Страница историй болезни собаки в порядке ID после {@code after} ({@code null} — первая страница).
+     */
+    Page<HealthStoryResponseDto> getPageByDogId(long dogId, PageCursor after, int limit);
+
     HealthStoryResponseDto getById(long storyId);
+
+    /**
+     * Загружает истории болезни из {@code in} с исходными датами визитов одной командой COPY.
+     * Строки с ошибками пропускаются и перечисляются в результате; ошибка чтения отменяет всю загрузку.
+     */
+    HealthImportResultDto importStories(Reader in, HealthImportFormat format) throws IOException;
 }
@@ -1,6 +1,10 @@
 package ru.doggohub.service.health;
 
 import lombok.RequiredArgsConstructor;
+import ru.doggohub.cache.ChangeEvents;
+import ru.doggohub.cache.ChangeType;
+import ru.doggohub.dto.Page;
+import ru.doggohub.dto.health.HealthImportResultDto;
 import ru.doggohub.dto.health.HealthStoryRequestDto;
 import ru.doggohub.dto.health.HealthStoryResponseDto;
 import ru.doggohub.exception.NotFoundException;
@@ -10,9 +14,16 @@ import ru.doggohub.model.Dog;
 import ru.doggohub.model.HealthStory;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.HealthStoryRepository;
+import ru.doggohub.util.PageCursor;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.toList;
 
@@ -21,6 +32,11 @@ public class HealthStoryServiceImpl implements HealthStoryService {
 
     private final HealthStoryRepository healthStoryRepository;
     private final DogRepository dogRepository;
+    private final ChangeEvents changeEvents;
+
+    public HealthStoryServiceImpl(HealthStoryRepository healthStoryRepository, DogRepository dogRepository) {
+        this(healthStoryRepository, dogRepository, new ChangeEvents());
+    }
 
     @Override
     public HealthStoryResponseDto add(HealthStoryRequestDto story) {
@@ -30,16 +46,18 @@ public class HealthStoryServiceImpl implements HealthStoryService {
         Dog dog = validAndGetDog(story.getDogId());
 
         HealthStory healthStory = healthStoryRepository.save(HealthStoryMapper.fromDto(story, dog));
+        changeEvents.healthStoryChanged(healthStory.getId(), dog.getId(), ChangeType.CREATED);
 
         return HealthStoryMapper.toDto(healthStory);
     }
 
     @Override
     public void deleteById(long storyId) {
-        Optional.ofNullable(healthStoryRepository.findById(storyId))
+        HealthStory story = Optional.ofNullable(healthStoryRepository.findById(storyId))
                 .orElseThrow(() -> new NotFoundException("История болезни с ID={} не найдена", storyId));
 
         healthStoryRepository.removeById(storyId);
+        changeEvents.healthStoryChanged(storyId, story.getDogId(), ChangeType.DELETED);
     }
 
     @Override
@@ -53,6 +71,20 @@ public class HealthStoryServiceImpl implements HealthStoryService {
                 .collect(toList());
     }
 
+    @Override
+    public void streamByDogId(long dogId, Consumer<HealthStoryResponseDto> action) {
+        validAndGetDog(dogId);
+        healthStoryRepository.streamByDogId(dogId, story -> action.accept(HealthStoryMapper.toDto(story)));
+    }
+
+    @Override
+    public Page<HealthStoryResponseDto> getPageByDogId(long dogId, PageCursor after, int limit) {
+        Page.checkLimit(limit);
+        validAndGetDog(dogId);
+        List<HealthStory> stories = healthStoryRepository.findPageByDogId(dogId, after != null ? after.getId() : 0, limit + 1);
+        return Page.of(stories, limit, story -> PageCursor.of(story.getId())).map(HealthStoryMapper::toDto);
+    }
+
     @Override
     public HealthStoryResponseDto getById(long storyId) {
         if (storyId > 0) {
@@ -64,6 +96,31 @@ public class HealthStoryServiceImpl implements HealthStoryService {
         throw new ValidationException("ID не может быть отрицательным числом");
     }
 
+    @Override
+    public HealthImportResultDto importStories(Reader in, HealthImportFormat format) throws IOException {
+        long start = System.nanoTime();
+        HealthImportRows rows = new HealthImportRows(format.open(in), dogRepository.findAllIds());
+        Map<Long, Long> lastStoryByDog = new HashMap<>();
+        long loaded;
+        try {
+            loaded = healthStoryRepository.copyIn(rows,
+                    story -> lastStoryByDog.merge(story.getDogId(), story.getId(), Math::max));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // Одно событие на собаку: от неё зависят списки историй, а отдельные новые истории ещё нигде не кэшированы
+        lastStoryByDog.forEach((dogId, storyId) -> changeEvents.healthStoryChanged(storyId, dogId, ChangeType.CREATED));
+
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        return HealthImportResultDto.builder()
+                .loaded(loaded)
+                .rejected(rows.rejected())
+                .errors(rows.errors())
+                .millis(millis)
+                .rowsPerSecond(loaded * 1000 / millis)
+                .build();
+    }
+
     private Dog validAndGetDog(long id) {
         if (id <= 0) throw new ValidationException("ID не может быть отрицательным числом");
         return Optional.ofNullable(dogRepository.findById(id))
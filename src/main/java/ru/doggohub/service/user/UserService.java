@@ -1,18 +1,41 @@
 package ru.doggohub.service.user;
 
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.Page;
+import ru.doggohub.dto.user.UserField;
 import ru.doggohub.dto.user.UserRequestDto;
 import ru.doggohub.dto.user.UserResponseDto;
 
+import ru.doggohub.util.PageCursor;
+
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     UserResponseDto addUser(UserRequestDto dto);
 
     UserResponseDto getById(long id);
 
+    /**
+     * Владелец только с полями из {@code fields}; без {@code dogs} список собак не читается.
+     */
+    UserResponseDto getById(long id, FieldSet<UserField> fields);
+
     UserResponseDto updateUser(UserRequestDto dto, long userId);
 
     List<UserResponseDto> getAll();
 
+    /**
+     * Передаёт {@code action} всех владельцев по одному, не собирая список в памяти.
+     */
+    void streamAll(Consumer<UserResponseDto> action);
+
+    void streamAll(FieldSet<UserField> fields, Consumer<UserResponseDto> action);
+
+    /**
+     * Страница владельцев в порядке ID после {@code after} ({@code null} — первая страница).
+     */
+    Page<UserResponseDto> getPage(FieldSet<UserField> fields, PageCursor after, int limit);
+
     void deleteById(Long userId);
 }
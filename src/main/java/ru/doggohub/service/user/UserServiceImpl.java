@@ -1,42 +1,76 @@
 package ru.doggohub.service.user;
 
 import lombok.RequiredArgsConstructor;
+import ru.doggohub.cache.ChangeEvents;
+import ru.doggohub.cache.ChangeType;
+import ru.doggohub.cache.EmailIndex;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.Page;
+import ru.doggohub.dto.user.UserField;
 import ru.doggohub.dto.user.UserRequestDto;
 import ru.doggohub.dto.user.UserResponseDto;
 import ru.doggohub.exception.NotFoundException;
 import ru.doggohub.exception.ValidationException;
 import ru.doggohub.mapper.UserMapper;
-import ru.doggohub.model.Dog;
 import ru.doggohub.model.User;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.UserRepository;
+import ru.doggohub.util.LongListView;
+import ru.doggohub.util.PageCursor;
+import ru.doggohub.util.SingleFlight;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final DogRepository dogRepository;
+    private final EmailIndex emailIndex;
+    private final SingleFlight singleFlight;
+    private final ChangeEvents changeEvents;
+
+    public UserServiceImpl(UserRepository userRepository, DogRepository dogRepository) {
+        this(userRepository, dogRepository, new EmailIndex(EmailIndex.DEFAULT_MAX_SIZE), new SingleFlight(),
+                new ChangeEvents());
+    }
 
     @Override
     public UserResponseDto addUser(UserRequestDto dto) {
         validEmail(dto.getEmail());
         User user = UserMapper.fromDto(dto);
+        user.setEmail(EmailIndex.normalize(user.getEmail()));
         user = userRepository.save(user);
-        user.setDogIds(getListDogIds(user.getId()));
+        emailIndex.add(user.getEmail());
+        changeEvents.ownerChanged(user.getId(), ChangeType.CREATED);
+        user.setDogIds(new ArrayList<>());
 
         return UserMapper.toDto(user);
     }
 
     @Override
     public UserResponseDto getById(long userId) {
-        User user = validAndGetUser(userId);
-        user.setDogIds(getListDogIds(userId));
+        return singleFlight.execute("user", userId, () -> {
+            User user = validAndGetUser(userId);
+            user.setDogIds(getListDogIds(userId));
 
-        return UserMapper.toDto(user);
+            return UserMapper.toDto(user);
+        });
+    }
+
+    @Override
+    public UserResponseDto getById(long userId, FieldSet<UserField> fields) {
+        if (fields.isAll()) {
+            return getById(userId);
+        }
+        User user = validAndGetUser(userId);
+        if (fields.contains(UserField.DOGS)) {
+            user.setDogIds(getListDogIds(userId));
+        }
+        return UserMapper.toDto(user, fields);
     }
 
     @Override
@@ -47,11 +81,17 @@ public class UserServiceImpl implements UserService {
             if (dto.getName() != null) {
                 user.setName(dto.getName());
             }
+            String previousEmail = user.getEmail();
             if (dto.getEmail() != null) {
                 validEmail(dto.getEmail());
-                user.setEmail(dto.getEmail());
+                user.setEmail(EmailIndex.normalize(dto.getEmail()));
             }
             user = userRepository.update(user);
+            if (dto.getEmail() != null) {
+                emailIndex.remove(previousEmail);
+                emailIndex.add(user.getEmail());
+            }
+            changeEvents.ownerChanged(userId, ChangeType.UPDATED);
         }
         user.setDogIds(getListDogIds(userId));
 
@@ -60,38 +100,66 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public void deleteById(Long userId) {
-        validAndGetUser(userId);
+        User user = validAndGetUser(userId);
         userRepository.deleteById(userId);
+        emailIndex.remove(user.getEmail());
+        changeEvents.ownerChanged(userId, ChangeType.DELETED);
     }
 
     @Override
     public List<UserResponseDto> getAll() {
         List<User> list = userRepository.findAll();
-        List<UserResponseDto> list1 = new ArrayList<>();
+        long[] ownerIds = list.stream().mapToLong(User::getId).toArray();
+        Map<Long, long[]> dogIdsByOwner = dogRepository.findDogIdsByOwnerIds(ownerIds);
+
+        List<UserResponseDto> list1 = new ArrayList<>(list.size());
         for (User user : list) {
-            user.setDogIds(getListDogIds(user.getId()));
+            user.setDogIds(toDogIdList(dogIdsByOwner.get(user.getId())));
             list1.add(UserMapper.toDto(user));
         }
         return list1;
     }
 
+    @Override
+    public void streamAll(Consumer<UserResponseDto> action) {
+        userRepository.streamAllWithDogIds(user -> action.accept(UserMapper.toDto(user)));
+    }
+
+    @Override
+    public void streamAll(FieldSet<UserField> fields, Consumer<UserResponseDto> action) {
+        if (fields.isAll()) {
+            streamAll(action);
+            return;
+        }
+        userRepository.streamAll(fields, user -> action.accept(UserMapper.toDto(user, fields)));
+    }
+
+    @Override
+    public Page<UserResponseDto> getPage(FieldSet<UserField> fields, PageCursor after, int limit) {
+        Page.checkLimit(limit);
+        List<User> users = userRepository.findPage(fields, after != null ? after.getId() : 0, limit + 1);
+        return Page.of(users, limit, user -> PageCursor.of(user.getId())).map(user -> UserMapper.toDto(user, fields));
+    }
+
     protected void validEmail(String email) {
         if (email == null || email.isEmpty())
             throw new ValidationException("Эл почта пользователя должна быть заполнена");
-        for (User user1 : userRepository.findAll()) {
-            if (email.equals(user1.getEmail())) {
-                throw new ValidationException("Эл почта пользователя должна быть уникальной");
-            }
+        String normalized = EmailIndex.normalize(email);
+        if (emailIndex.contains(normalized) || userRepository.existsByEmail(normalized)) {
+            emailIndex.add(normalized);
+            throw new ValidationException("Эл почта пользователя должна быть уникальной");
         }
     }
 
     protected List<Long> getListDogIds(long id) {
-        List<Dog> dogs = dogRepository.findAllByOwnerId(id);
-        if (!dogs.isEmpty()) {
-            return dogs.stream().map(Dog::getId).sorted(Comparator.naturalOrder()).toList();
-        } else {
+        return toDogIdList(dogRepository.findDogIdsByOwnerId(id));
+    }
+
+    private List<Long> toDogIdList(long[] dogIds) {
+        if (dogIds == null || dogIds.length == 0) {
             return new ArrayList<>();
         }
+        return new LongListView(dogIds);
     }
 
     protected User validAndGetUser(long userId) {
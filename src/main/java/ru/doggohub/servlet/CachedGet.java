@@ -0,0 +1,165 @@
+package ru.doggohub.servlet;
+
+import ru.doggohub.cache.ResponseCache;
+import ru.doggohub.cache.VersionTracker;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.Page;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * GET-ответы с проверкой версии данных: 304 по валидаторам клиента или готовое тело
+ * из {@link ResponseCache}. Если не подошло ни то ни другое, сервлет читает данные сам
+ * и пишет их через {@link #write} или {@link #streamArray}, которые сохраняют тело в кэш.
+ * Если ответ сжимается {@link CompressionFilter}, из кэша отдаётся и сжатое тело.
+ */
+class CachedGet {
+    /**
+     * Потоковые ответы длиннее этого числа символов JSON или байтов CBOR не кэшируются: их тело
+     * пришлось бы держать в памяти целиком, а потоковая выдача нужна как раз для того, чтобы этого избежать.
+     */
+    static final int MAX_STREAMED_BODY_SIZE = 64 * 1024;
+
+    private final VersionTracker versions;
+    private final ResponseCache cache;
+
+    CachedGet(VersionTracker versions, ResponseCache cache) {
+        this.versions = versions;
+        this.cache = cache;
+    }
+
+    /**
+     * Адрес ресурса для ключа кэша с учётом набора полей: ответы с разными полями хранятся раздельно.
+     */
+    static String resource(String resource, FieldSet<?> fields) {
+        if (fields.isAll()) {
+            return resource;
+        }
+        return resource + (resource.indexOf('?') >= 0 ? '&' : '?') + "fields=" + fields;
+    }
+
+    /**
+     * Вызывается до {@link ResponseBody#open}: готовое тело пишется
+     * в {@link HttpServletResponse#getOutputStream()}.
+     *
+     * @return {@code true}, если ответ уже отправлен
+     */
+    boolean writeIfFresh(HttpServletRequest req, HttpServletResponse resp, Representation representation,
+                         String resource, VersionTracker.Key... keys) throws IOException {
+        VersionTracker.Validator validator = versions.knownValidator(keys);
+        if (validator == null) {
+            return false;
+        }
+        if (ConditionalGet.notModified(req, resp, representation, validator)) {
+            return true;
+        }
+        byte[] body = cache.get(representation.cacheKey(resource), validator.getVersion());
+        if (body == null) {
+            return false;
+        }
+        ConditionalGet.tag(resp, representation, validator);
+        CompressingResponse compressing = CompressingResponse.find(resp);
+        if (compressing != null && compressing.wantsCompression(body.length)) {
+            compressing.writeCompressed(compressed(representation.cacheKey(resource), validator.getVersion(),
+                    body, compressing.coding()));
+            return true;
+        }
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+        return true;
+    }
+
+    /**
+     * Отвечает 304 на запрос страницы списка, если данные не менялись. Страницы не кэшируются:
+     * курсор следующей страницы передаётся в заголовке, а кэш хранит только тело.
+     */
+    boolean notModified(HttpServletRequest req, HttpServletResponse resp, Representation representation,
+                        VersionTracker.Key... keys) {
+        return ConditionalGet.notModified(req, resp, representation, versions.knownValidator(keys));
+    }
+
+    /**
+     * Сжатый вариант тела из кэша: сжимается один раз на версию и способ сжатия,
+     * дальше отдаётся готовыми байтами.
+     */
+    private byte[] compressed(String key, long version, byte[] body, ContentCoding coding) throws IOException {
+        String compressedKey = key + ';' + coding.token();
+        byte[] compressed = cache.get(compressedKey, version);
+        if (compressed == null) {
+            compressed = coding.compress(body);
+            cache.put(compressedKey, version, compressed);
+        }
+        return compressed;
+    }
+
+    /**
+     * Пишет значение, прочитанное после {@code sequence}, с валидаторами и сохраняет тело в кэш,
+     * если данные не менялись во время чтения.
+     */
+    <T> void write(HttpServletResponse resp, ResponseBody body, String resource, long sequence,
+                   T value, Class<T> type, VersionTracker.Key... keys) throws IOException {
+        VersionTracker.Validator validator = versions.validatorSince(sequence, keys);
+        if (validator == null) {
+            body.value(value, type, false);
+            return;
+        }
+        ConditionalGet.tag(resp, body.representation(), validator);
+        versions.served(keys);
+        byte[] bytes = body.value(value, type, cache.isEnabled());
+        if (bytes != null) {
+            cache.put(body.representation().cacheKey(resource), validator.getVersion(), bytes);
+        }
+    }
+
+    /**
+     * Пишет список по мере того, как {@code source} передаёт элементы, не собирая ответ в памяти.
+     * Валидаторы берутся до чтения данных: изменение во время чтения повысит версию, и клиент
+     * получит полный ответ при следующем запросе.
+     * <p>
+     * Пока не передан первый элемент, в ответ ничего не пишется, поэтому ошибки проверки
+     * ({@code NotFoundException} и т. п.) сервлет обрабатывает как обычно. Ошибка посреди
+     * выдачи оборвёт уже отправленный список. Тело не длиннее {@link #MAX_STREAMED_BODY_SIZE}
+     * сохраняется в кэш, если данные не менялись во время выдачи.
+     */
+    <T> void streamArray(HttpServletResponse resp, ResponseBody body, String resource, Class<T> type,
+                         Consumer<Consumer<T>> source, VersionTracker.Key... keys) throws IOException {
+        VersionTracker.Validator validator = versions.validator(keys);
+        ResponseBody.ArraySink<T> array = body.array(type, cache.isEnabled() ? MAX_STREAMED_BODY_SIZE : -1,
+                () -> ConditionalGet.tag(resp, body.representation(), validator));
+        try {
+            source.accept(array);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        byte[] captured = array.finish();
+        versions.served(keys);
+        if (captured != null && versions.validator(keys).getVersion() == validator.getVersion()) {
+            cache.put(body.representation().cacheKey(resource), validator.getVersion(), captured);
+        }
+    }
+
+    /**
+     * Пишет страницу, прочитанную после {@code sequence}, с валидаторами и курсором следующей
+     * страницы в заголовке {@value PageParams#NEXT_CURSOR_HEADER}.
+     */
+    <T> void writePage(HttpServletResponse resp, ResponseBody body, long sequence, Page<T> page, Class<T> type,
+                       VersionTracker.Key... keys) throws IOException {
+        ConditionalGet.tag(resp, body.representation(), versions.validatorSince(sequence, keys));
+        versions.served(keys);
+        if (page.getNextCursor() != null) {
+            resp.setHeader(PageParams.NEXT_CURSOR_HEADER, page.getNextCursor().encode());
+        }
+        ResponseBody.ArraySink<T> array = body.array(type, -1, () -> {
+        });
+        try {
+            page.getItems().forEach(array);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        array.finish();
+    }
+}
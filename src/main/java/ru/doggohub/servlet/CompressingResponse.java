@@ -0,0 +1,362 @@
+package ru.doggohub.servlet;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Ответ, тело которого сжимается выбранным {@link ContentCoding} по мере записи.
+ * <p>
+ * Первые {@code minBytes} байт копятся в буфере: если тело оказалось короче, оно уходит
+ * несжатым с {@code Content-Length}. Иначе выставляется {@code Content-Encoding}, и дальше
+ * тело сжимается потоком без накопления в памяти. Ответы 204 и 304, ответы с уже заданным
+ * {@code Content-Encoding} и с объявленной длиной меньше порога пропускаются как есть.
+ * {@link #finish()} обязателен после обработки запроса, для асинхронного —
+ * {@link #finishAsync}. Неблокирующая запись ({@link ServletOutputStream#setWriteListener})
+ * возможна, пока сжатие не началось: дальше тело идёт несжатым.
+ * <p>
+ * У сжатого тела свой {@code ETag} ({@code "…-gzip"}, см. {@link ContentCoding#etag}), чтобы
+ * сильный валидатор не совпадал у вариантов с разными байтами.
+ */
+class CompressingResponse extends HttpServletResponseWrapper {
+    private final ContentCoding coding;
+    private final int minBytes;
+    private final ByteArrayOutputStream buffer;
+    private ServletOutputStream raw;
+    private Deflater deflater;
+    private DeflaterOutputStream compressed;
+    private boolean passThrough;
+    private boolean encoded;
+    private String etag;
+    private ServletOutputStream stream;
+    private PrintWriter writer;
+
+    CompressingResponse(HttpServletResponse response, ContentCoding coding, int minBytes) {
+        super(response);
+        this.coding = coding;
+        this.minBytes = minBytes;
+        this.buffer = new ByteArrayOutputStream(Math.min(minBytes, 8192));
+    }
+
+    /**
+     * Находит сжимающую обёртку среди обёрток ответа.
+     *
+     * @return {@code null}, если ответ не сжимается
+     */
+    static CompressingResponse find(ServletResponse response) {
+        while (response instanceof HttpServletResponseWrapper) {
+            if (response instanceof CompressingResponse) {
+                return (CompressingResponse) response;
+            }
+            response = ((HttpServletResponseWrapper) response).getResponse();
+        }
+        return null;
+    }
+
+    ContentCoding coding() {
+        return coding;
+    }
+
+    /**
+     * Будет ли сжато тело длиной {@code length}, если записать его целиком сейчас.
+     */
+    boolean wantsCompression(int length) {
+        return length >= minBytes && !started() && getHeader("Content-Encoding") == null;
+    }
+
+    /**
+     * Пишет тело, уже сжатое {@link #coding()}, например из кэша ответов.
+     */
+    void writeCompressed(byte[] body) throws IOException {
+        passThrough = true;
+        encode();
+        super.setContentLength(body.length);
+        super.getOutputStream().write(body);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() уже вызван");
+        }
+        if (stream == null) {
+            stream = new CompressingStream();
+        }
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() уже вызван");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(new CompressingStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    /**
+     * Объявленная длина относится к несжатому телу, поэтому передаётся дальше, только если
+     * тело не будет сжато.
+     */
+    @Override
+    public void setContentLengthLong(long length) {
+        if (length < minBytes && !started()) {
+            passThrough = true;
+        }
+        if (passThrough) {
+            super.setContentLengthLong(length);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("ETag".equalsIgnoreCase(name)) {
+            etag = value;
+            if (encoded && value != null) {
+                value = coding.etag(value);
+            }
+        }
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void setStatus(int status) {
+        super.setStatus(status);
+        skipIfBodiless(status);
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        passThrough = true;
+        super.sendError(status, message);
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        passThrough = true;
+        super.sendError(status);
+    }
+
+    private void skipIfBodiless(int status) {
+        if (status == SC_NO_CONTENT || status == SC_NOT_MODIFIED) {
+            passThrough = true;
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (compressed != null) {
+            compressed.flush();
+        }
+        if (passThrough || compressed != null) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        buffer.reset();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        buffer.reset();
+        passThrough = false;
+        encoded = false;
+        etag = null;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return compressed != null || super.isCommitted();
+    }
+
+    /**
+     * Дописывает тело: короткое — несжатым, начатое сжатие — окончанием формата.
+     * Освобождает {@link Deflater} в пул в любом случае.
+     */
+    void finish() throws IOException {
+        try {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (compressed != null) {
+                compressed.finish();
+            } else if (buffer.size() > 0) {
+                super.setContentLength(buffer.size());
+                buffer.writeTo(raw());
+                buffer.reset();
+            }
+        } finally {
+            if (deflater != null) {
+                coding.deflaters().release(deflater);
+                deflater = null;
+            }
+        }
+    }
+
+    /**
+     * Завершает ответ асинхронного запроса при выходе из фильтра. Остаток тела сервлет
+     * допишет позже, поэтому, если сжатие ещё не началось, тело дальше идёт несжатым.
+     * Начатое сжатие завершается вместе с асинхронной обработкой.
+     */
+    void finishAsync(AsyncContext async) throws IOException {
+        if (compressed == null) {
+            passThroughRest();
+            return;
+        }
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) throws IOException {
+                finish();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                finish();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+                finish();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                event.getAsyncContext().addListener(this);
+            }
+        });
+    }
+
+    /**
+     * Отказывается от сжатия: накопленное начало тела и всё дальнейшее пишется как есть.
+     */
+    private void passThroughRest() throws IOException {
+        passThrough = true;
+        if (buffer.size() > 0) {
+            buffer.writeTo(raw());
+            buffer.reset();
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private void encode() {
+        encoded = true;
+        super.setHeader("Content-Encoding", coding.token());
+        if (etag != null) {
+            super.setHeader("ETag", coding.etag(etag));
+        }
+    }
+
+    private boolean started() {
+        return compressed != null || buffer.size() > 0;
+    }
+
+    private ServletOutputStream raw() throws IOException {
+        if (raw == null) {
+            raw = super.getOutputStream();
+        }
+        return raw;
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (compressed != null) {
+            compressed.write(bytes, offset, length);
+        } else if (passThrough || getHeader("Content-Encoding") != null) {
+            passThrough = true;
+            raw().write(bytes, offset, length);
+        } else if (buffer.size() + length < minBytes) {
+            buffer.write(bytes, offset, length);
+        } else {
+            startCompression();
+            compressed.write(bytes, offset, length);
+        }
+    }
+
+    private void startCompression() throws IOException {
+        encode();
+        deflater = coding.deflaters().acquire();
+        compressed = coding.open(raw(), deflater);
+        buffer.writeTo(compressed);
+        buffer.reset();
+    }
+
+    private final class CompressingStream extends ServletOutputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            CompressingResponse.this.write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            CompressingResponse.this.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (compressed != null) {
+                compressed.flush();
+            } else if (passThrough) {
+                raw().flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            if (compressed != null || !passThrough) {
+                return true;
+            }
+            try {
+                return raw().isReady();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Сжатие пишет в поток блокирующе, поэтому при неблокирующей записи тело идёт несжатым
+         * напрямую в поток контейнера.
+         */
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            if (compressed != null) {
+                throw new IllegalStateException("Тело уже сжимается: неблокирующая запись недоступна");
+            }
+            try {
+                passThroughRest();
+                raw().setWriteListener(listener);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.doggohub.servlet;
+
+import ru.doggohub.config.AppConfig;
+import ru.doggohub.config.Configuration;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Сжимает ответы gzip или deflate, если клиент принимает их в {@code Accept-Encoding}
+ * и включена настройка {@code compression.enabled}. Тела короче {@code compression.minBytes}
+ * не сжимаются: выигрыш в размере меньше затрат на сжатие. Если сервлет перешёл
+ * в асинхронный режим до начала сжатия, тело отдаётся несжатым. Регистрируется
+ * {@link FilterRegistrationListener} первым в цепочке.
+ */
+public class CompressionFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        AppConfig config = Configuration.get();
+        if (!config.isCompressionEnabled() || !(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletResponse resp = (HttpServletResponse) response;
+        resp.addHeader("Vary", "Accept-Encoding");
+        ContentCoding coding = ContentCoding.negotiate(((HttpServletRequest) request).getHeader("Accept-Encoding"));
+        if (coding == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        CompressingResponse compressing = new CompressingResponse(resp, coding, config.getCompressionMinBytes());
+        try {
+            chain.doFilter(request, compressing);
+        } finally {
+            if (request.isAsyncStarted()) {
+                compressing.finishAsync(request.getAsyncContext());
+            } else {
+                compressing.finish();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.doggohub.servlet;
+
+import lombok.experimental.UtilityClass;
+import ru.doggohub.cache.VersionTracker;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Условные GET-запросы: ответ 304 по {@code If-None-Match} или {@code If-Modified-Since}
+ * и заголовки-валидаторы для полного ответа.
+ * <p>
+ * Валидаторы строятся по {@link VersionTracker} без чтения базы, поэтому верны, только пока
+ * в базу пишет один экземпляр приложения. Для агрегатов, о которых трекер ничего не знает,
+ * вызывающий передаёт {@code null}, и запрос обрабатывается полностью.
+ */
+@UtilityClass
+class ConditionalGet {
+
+    /**
+     * Отвечает 304, если у клиента актуальная версия; при {@code validator == null}
+     * версия неизвестна и ответ не отправляется.
+     *
+     * @return {@code true}, если ответ 304 уже отправлен и тело писать не нужно
+     */
+    static boolean notModified(HttpServletRequest req, HttpServletResponse resp, Representation representation,
+                               VersionTracker.Validator validator) {
+        if (validator == null) {
+            return false;
+        }
+        String current = freshTag(req, representation.etag(validator), validator);
+        if (current == null) {
+            return false;
+        }
+        resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        tag(resp, representation, validator);
+        resp.setHeader("ETag", current);
+        return true;
+    }
+
+    /**
+     * Добавляет ETag и Last-Modified к полному ответу; {@code null} — ответ без валидаторов.
+     */
+    static void tag(HttpServletResponse resp, Representation representation, VersionTracker.Validator validator) {
+        if (validator == null) {
+            return;
+        }
+        resp.setHeader("ETag", representation.etag(validator));
+        resp.setDateHeader("Last-Modified", validator.getLastModified());
+        resp.setHeader("Cache-Control", "no-cache");
+    }
+
+    /**
+     * ETag актуальной версии, которая есть у клиента: несжатый или сжатый вариант
+     * ({@link ContentCoding#etag}), смотря что он прислал.
+     *
+     * @return {@code null}, если версия у клиента устарела
+     */
+    private static String freshTag(HttpServletRequest req, String etag, VersionTracker.Validator validator) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals(etag)) {
+                    return etag;
+                }
+                for (ContentCoding coding : ContentCoding.values()) {
+                    if (candidate.equals(coding.etag(etag))) {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = req.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ifModifiedSince > 0 && validator.getLastModified() / 1000 <= ifModifiedSince / 1000 ? etag : null;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.doggohub.servlet;
+
+import ru.doggohub.config.AppConfig;
+import ru.doggohub.config.Configuration;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+
+/**
+ * Перезагрузка настроек без передеплоя: {@code POST /config/reload}.
+ * Запросы принимаются только с локального адреса; на некорректные настройки отвечает 400,
+ * действующие при этом не меняются.
+ */
+@WebServlet(urlPatterns = {"/config/reload"})
+public class ConfigServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/plain");
+        resp.setCharacterEncoding("UTF-8");
+
+        PrintWriter writer = resp.getWriter();
+
+        if (!InetAddress.getByName(req.getRemoteAddr()).isLoopbackAddress()) {
+            resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            writer.println("Перезагрузка настроек доступна только с локального адреса");
+            return;
+        }
+
+        try {
+            AppConfig config = Configuration.reload();
+            writer.println("Настройки перезагружены: " + config);
+        } catch (IllegalArgumentException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            writer.println("Новые настройки не применены: " + e.getMessage());
+        } catch (Exception e) {
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            writer.println("При перезагрузке настроек произошла ошибка: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ru.doggohub.servlet;
+
+import ru.doggohub.util.DeflaterPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Сжатие тела ответа, которое клиент принимает в {@code Accept-Encoding}. У каждого способа
+ * свой пул {@link Deflater}: gzip пишет заголовок и контрольную сумму сам, чтобы сжимать
+ * «сырым» DEFLATE из пула, а не создавать {@link java.util.zip.GZIPOutputStream} с новым экземпляром.
+ */
+enum ContentCoding {
+    GZIP("gzip", true),
+    DEFLATE("deflate", false);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final String token;
+    private final DeflaterPool deflaters;
+
+    ContentCoding(String token, boolean nowrap) {
+        this.token = token;
+        this.deflaters = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, nowrap, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    String token() {
+        return token;
+    }
+
+    DeflaterPool deflaters() {
+        return deflaters;
+    }
+
+    /**
+     * ETag сжатого варианта: байты тела другие, поэтому сильный валидатор тоже должен отличаться.
+     */
+    String etag(String etag) {
+        return etag.substring(0, etag.length() - 1) + '-' + token + '"';
+    }
+
+    /**
+     * Выбирает gzip или deflate с наибольшим весом {@code q}; при равных весах — gzip.
+     * {@code *} разрешает способы, не названные явно.
+     *
+     * @return {@code null}, если клиент не принимает ни один из них
+     */
+    static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        float gzip = -1;
+        float deflate = -1;
+        float wildcard = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            float quality = quality(parts);
+            switch (parts[0].trim().toLowerCase(Locale.ROOT)) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                case "deflate" -> deflate = Math.max(deflate, quality);
+                case "*" -> wildcard = Math.max(wildcard, quality);
+                default -> {
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    private static float quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2));
+                } catch (NumberFormatException ignore) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Открывает сжимающий поток поверх {@code out}. {@code finish()} дописывает окончание
+     * формата, но не закрывает {@code out} и не освобождает {@code deflater}.
+     */
+    DeflaterOutputStream open(OutputStream out, Deflater deflater) throws IOException {
+        if (this == DEFLATE) {
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+        }
+        out.write(GZIP_HEADER);
+        return new GzipStream(out, deflater);
+    }
+
+    /**
+     * Сжимает готовое тело целиком, например для кэша ответов.
+     */
+    byte[] compress(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 32);
+        Deflater deflater = deflaters.acquire();
+        try {
+            DeflaterOutputStream out = open(compressed, deflater);
+            out.write(body);
+            out.finish();
+        } finally {
+            deflaters.release(deflater);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static final class GzipStream extends DeflaterOutputStream {
+        private final CRC32 crc = new CRC32();
+
+        GzipStream(OutputStream out, Deflater deflater) {
+            super(out, deflater, BUFFER_SIZE);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            super.write(bytes, offset, length);
+            crc.update(bytes, offset, length);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (def.finished()) {
+                return;
+            }
+            super.finish();
+            writeIntLittleEndian((int) crc.getValue());
+            writeIntLittleEndian((int) def.getBytesRead());
+        }
+
+        private void writeIntLittleEndian(int value) throws IOException {
+            out.write(value & 0xff);
+            out.write((value >>> 8) & 0xff);
+            out.write((value >>> 16) & 0xff);
+            out.write((value >>> 24) & 0xff);
+        }
+    }
+}
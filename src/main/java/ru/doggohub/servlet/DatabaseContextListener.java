@@ -0,0 +1,61 @@
+package ru.doggohub.servlet;
+
+import lombok.extern.java.Log;
+import ru.doggohub.config.AppConfig;
+import ru.doggohub.config.Components;
+import ru.doggohub.config.Configuration;
+import ru.doggohub.util.DatabaseUtil;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.util.function.LongSupplier;
+
+@Log
+@WebListener
+public class DatabaseContextListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        AppConfig config = Configuration.get();
+        checkIndexes();
+        if (config.isOwnerIndexWarmUp()) {
+            warmUp("индекс собак владельцев", () -> Components.dogRepository().warmUpOwnerDogIndex());
+        }
+        long expectedIds = config.getMissingIdsExpectedIds();
+        if (expectedIds > 0) {
+            warmUp("фильтр ID собак", () -> Components.dogRepository().warmUpExistenceFilter(expectedIds));
+            warmUp("фильтр ID владельцев", () -> Components.userRepository().warmUpExistenceFilter(expectedIds));
+            warmUp("фильтр ID историй болезни",
+                    () -> Components.healthStoryRepository().warmUpExistenceFilter(expectedIds));
+        }
+    }
+
+    private void checkIndexes() {
+        try {
+            if (!Components.userRepository().hasEmailIndex()) {
+                log.warning("Нет индекса owners_email_lower_uidx: проверка уникальности email читает всю таблицу "
+                        + "владельцев. Выполните db/indexes.sql");
+            }
+        } catch (RuntimeException e) {
+            log.warning("Не удалось проверить индексы: " + e.getMessage());
+        }
+    }
+
+    private void warmUp(String name, LongSupplier loader) {
+        try {
+            long loaded = loader.getAsLong();
+            if (loaded > 0) {
+                log.info(String.format("Прогрет %s: %d записей", name, loaded));
+            }
+        } catch (RuntimeException e) {
+            log.warning("Не удалось прогреть " + name + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        Components.shutdown();
+        DatabaseUtil.shutdown();
+    }
+}
@@ -0,0 +1,89 @@
+package ru.doggohub.servlet;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import ru.doggohub.config.Components;
+import ru.doggohub.dto.dog.DogBatchResultDto;
+import ru.doggohub.dto.dog.DogRequestDto;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.json.Json;
+import ru.doggohub.repository.DogRepository;
+import ru.doggohub.repository.UserRepository;
+import ru.doggohub.service.dog.DogService;
+import ru.doggohub.service.dog.DogServiceImpl;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетное добавление собак: {@code POST /dog/batch} с JSON-массивом в формате {@code POST /dog}.
+ * Массив разбирается по элементам прямо из тела запроса; собаки добавляются одной транзакцией,
+ * ответ — их ID в порядке массива (201) или ошибки по номерам элементов (400).
+ */
+@WebServlet(urlPatterns = {"/dog/batch"})
+public class DogBatchServlet extends HttpServlet {
+    private final DogService dogService;
+    private final Gson gson = Json.GSON;
+
+    public DogBatchServlet() {
+        super();
+        this.dogService = Components.dogService();
+    }
+
+    public DogBatchServlet(UserRepository userRepository, DogRepository dogRepository) {
+        super();
+        this.dogService = new DogServiceImpl(userRepository, dogRepository);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+
+        PrintWriter writer = resp.getWriter();
+
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(req.getInputStream(), StandardCharsets.UTF_8)))) {
+            DogBatchResultDto result = dogService.addBatch(readDogs(reader));
+            resp.setStatus(result.hasErrors() ? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_CREATED);
+            writer.println(gson.toJson(result));
+        } catch (ValidationException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            writer.println(e.getMessage());
+        } catch (JsonParseException | IllegalStateException | IOException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            writer.println("Тело запроса должно быть JSON-массивом собак: " + e.getMessage());
+        } catch (Exception e) {
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            writer.println("При обработке запроса произошла ошибка: " + e.getMessage());
+        }
+    }
+
+    private List<DogRequestDto> readDogs(JsonReader reader) throws IOException {
+        List<DogRequestDto> dogs = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (dogs.size() == DogService.MAX_BATCH_SIZE) {
+                throw new ValidationException(String.format(
+                        "За один запрос можно добавить не больше %d собак", DogService.MAX_BATCH_SIZE));
+            }
+            try {
+                dogs.add(gson.fromJson(reader, DogRequestDto.class));
+            } catch (JsonParseException e) {
+                throw new ValidationException(String.format("Ошибка в элементе %d: %s", dogs.size(), e.getMessage()));
+            }
+        }
+        reader.endArray();
+        return dogs;
+    }
+}
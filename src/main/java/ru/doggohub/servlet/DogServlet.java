@@ -1,14 +1,20 @@
 package ru.doggohub.servlet;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import ru.doggohub.cache.ResponseCache;
+import ru.doggohub.cache.VersionTracker;
+import ru.doggohub.config.Components;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.dog.DogField;
 import ru.doggohub.dto.dog.DogRequestDto;
 import ru.doggohub.dto.dog.DogResponseDto;
+import ru.doggohub.exception.NotFoundException;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.json.Json;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.UserRepository;
 import ru.doggohub.service.dog.DogService;
 import ru.doggohub.service.dog.DogServiceImpl;
-import ru.doggohub.util.LocalDateTypeAdapter;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -21,63 +27,129 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.util.List;
 
 @WebServlet(urlPatterns = {"/dog"})
 public class DogServlet extends HttpServlet {
     private final DogService dogService;
-    private final Gson gson = new GsonBuilder()
-            .registerTypeAdapter(LocalDate.class, new LocalDateTypeAdapter())
-            .create();
+    private final VersionTracker versions;
+    private final CachedGet responses;
+    private final Gson gson = Json.GSON;
 
     public DogServlet() {
         super();
-        this.dogService = new DogServiceImpl(new UserRepository(), new DogRepository());
+        this.dogService = Components.dogService();
+        this.versions = Components.versionTracker();
+        this.responses = new CachedGet(versions, Components.responseCache());
     }
 
     public DogServlet(UserRepository userRepository, DogRepository dogRepository) {
         super();
         this.dogService = new DogServiceImpl(userRepository, dogRepository);
+        this.versions = new VersionTracker(VersionTracker.DEFAULT_MAX_ENTRIES);
+        this.responses = new CachedGet(versions, new ResponseCache(0));
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        resp.setContentType("application/json");
-        resp.setCharacterEncoding("UTF-8");
+        Representation representation = Representation.negotiate(req);
+        representation.prepare(resp);
 
-        PrintWriter writer = resp.getWriter();
+        if (writeIfFresh(req, resp, representation)) {
+            return;
+        }
+        ResponseBody body = ResponseBody.open(resp, representation);
 
         try {
             String dogIdParam = req.getParameter("id");
             String userIdParam = req.getParameter("user_id");
+            FieldSet<DogField> fields = FieldSet.parse(req.getParameter("fields"), DogField.class);
 
             if (dogIdParam != null) {
                 long dogId = Long.parseLong(dogIdParam);
-                DogResponseDto dogResponseDto = dogService.getById(dogId);
-                String jsonResponse = gson.toJson(dogResponseDto);
-                writer.println(jsonResponse);
+                long sequence = versions.sequence();
+                DogResponseDto dogResponseDto = dogService.getById(dogId, fields);
+                String resource = CachedGet.resource("dog?id=" + dogId, fields);
+                VersionTracker.Key dog = VersionTracker.dog(dogId);
+                if (dogResponseDto.getOwner() != null && dogResponseDto.getOwner().getId() != null) {
+                    VersionTracker.Key owner = VersionTracker.owner(dogResponseDto.getOwner().getId());
+                    versions.rememberParent(dog, owner);
+                    responses.write(resp, body, resource, sequence, dogResponseDto, DogResponseDto.class,
+                            dog, owner);
+                } else if (!fields.contains(DogField.OWNER)) {
+                    responses.write(resp, body, resource, sequence, dogResponseDto, DogResponseDto.class, dog);
+                } else {
+                    body.value(dogResponseDto, DogResponseDto.class, false);
+                }
 
             } else if (userIdParam != null) {
                 long userId = Long.parseLong(userIdParam);
-                List<DogResponseDto> dogResponseDto = dogService.getByOwnerId(userId);
-                String jsonResponse = gson.toJson(dogResponseDto);
-                writer.println(jsonResponse);
+                PageParams page = PageParams.from(req);
+                if (page != null) {
+                    long sequence = versions.sequence();
+                    responses.writePage(resp, body, sequence,
+                            dogService.getPageByOwnerId(userId, fields, page.getAfter(), page.getLimit()),
+                            DogResponseDto.class, VersionTracker.owner(userId));
+                } else {
+                    responses.streamArray(resp, body, CachedGet.resource("dog?user_id=" + userId, fields),
+                            DogResponseDto.class, action -> dogService.streamByOwnerId(userId, fields, action),
+                            VersionTracker.owner(userId));
+                }
 
             } else {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                writer.println("Не указан ID собаки или ID владельца");
+                body.message("Не указан ID собаки или ID владельца");
             }
         } catch (NumberFormatException e) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            writer.println("Неверный формат ID");
+            body.message("Неверный формат ID");
+
+        } catch (ValidationException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            body.message(e.getMessage());
+
+        } catch (NotFoundException e) {
+            resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            body.message(e.getMessage());
 
         } catch (Exception e) {
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writer.println("При обработке запроса произошла ошибка: " + e.getMessage());
+            body.message("При обработке запроса произошла ошибка: " + e.getMessage());
         }
     }
 
+    /**
+     * Отвечает 304 или готовым телом, если данные не менялись. Ошибки в параметрах
+     * не обрабатывает: о них сообщает основной обработчик.
+     */
+    private boolean writeIfFresh(HttpServletRequest req, HttpServletResponse resp,
+                                 Representation representation) throws IOException {
+        try {
+            FieldSet<DogField> fields = FieldSet.parse(req.getParameter("fields"), DogField.class);
+            String dogIdParam = req.getParameter("id");
+            if (dogIdParam != null) {
+                long dogId = Long.parseLong(dogIdParam);
+                String resource = CachedGet.resource("dog?id=" + dogId, fields);
+                VersionTracker.Key dog = VersionTracker.dog(dogId);
+                if (!fields.contains(DogField.OWNER)) {
+                    return responses.writeIfFresh(req, resp, representation, resource, dog);
+                }
+                VersionTracker.Key owner = versions.parentOf(dog);
+                return owner != null && responses.writeIfFresh(req, resp, representation, resource, dog, owner);
+            }
+            String userIdParam = req.getParameter("user_id");
+            if (userIdParam != null) {
+                long userId = Long.parseLong(userIdParam);
+                if (PageParams.isRequested(req)) {
+                    return responses.notModified(req, resp, representation, VersionTracker.owner(userId));
+                }
+                return responses.writeIfFresh(req, resp, representation, CachedGet.resource("dog?user_id=" + userId, fields),
+                        VersionTracker.owner(userId));
+            }
+        } catch (NumberFormatException | ValidationException ignore) {
+            return false;
+        }
+        return false;
+    }
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
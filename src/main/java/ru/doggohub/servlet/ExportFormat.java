@@ -0,0 +1,138 @@
+package ru.doggohub.servlet;
+
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.exception.ValidationException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Формат выгрузки: NDJSON (объект JSON на строку) или CSV с заголовком. Выбирается параметром
+ * {@code format}, а без него — по {@code Accept}; по умолчанию NDJSON.
+ */
+enum ExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    String contentType() {
+        return contentType;
+    }
+
+    static ExportFormat of(HttpServletRequest req) {
+        String format = req.getParameter("format");
+        if (format == null) {
+            String accept = req.getHeader("Accept");
+            return accept != null && accept.toLowerCase(Locale.ROOT).contains("text/csv") ? CSV : NDJSON;
+        }
+        return switch (format.toLowerCase(Locale.ROOT)) {
+            case "ndjson", "json" -> NDJSON;
+            case "csv" -> CSV;
+            default -> throw new ValidationException("Неизвестный формат выгрузки: " + format);
+        };
+    }
+
+    /**
+     * Открывает выгрузку строк с колонками {@code columns}; значения строки передаются в том же порядке.
+     */
+    RowWriter open(Writer out, String... columns) throws IOException {
+        if (this == CSV) {
+            return new CsvRowWriter(out, columns);
+        }
+        return new NdjsonRowWriter(out, columns);
+    }
+
+    abstract static class RowWriter {
+        final Writer out;
+        final String[] columns;
+
+        RowWriter(Writer out, String[] columns) {
+            this.out = out;
+            this.columns = columns;
+        }
+
+        /**
+         * Числа пишутся числами, {@code null} — пустым полем CSV или пропуском поля JSON, остальное — через {@code toString()}.
+         */
+        abstract void row(Object... values) throws IOException;
+    }
+
+    private static final class NdjsonRowWriter extends RowWriter {
+        private final JsonWriter json;
+
+        NdjsonRowWriter(Writer out, String[] columns) {
+            super(out, columns);
+            this.json = new JsonWriter(out);
+            json.setLenient(true);
+            json.setSerializeNulls(false);
+        }
+
+        @Override
+        void row(Object... values) throws IOException {
+            json.beginObject();
+            for (int i = 0; i < columns.length; i++) {
+                json.name(columns[i]);
+                Object value = values[i];
+                if (value == null) {
+                    json.nullValue();
+                } else if (value instanceof Number number) {
+                    json.value(number);
+                } else {
+                    json.value(value.toString());
+                }
+            }
+            json.endObject();
+            out.write('\n');
+        }
+    }
+
+    /**
+     * CSV по RFC 4180: значение в кавычках, если содержит запятую, кавычку или перевод строки.
+     */
+    private static final class CsvRowWriter extends RowWriter {
+
+        CsvRowWriter(Writer out, String[] columns) throws IOException {
+            super(out, columns);
+            writeLine(columns);
+        }
+
+        @Override
+        void row(Object... values) throws IOException {
+            writeLine(values);
+        }
+
+        private void writeLine(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                if (values[i] != null) {
+                    writeField(values[i].toString());
+                }
+            }
+            out.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+}
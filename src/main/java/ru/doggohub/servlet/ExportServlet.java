@@ -0,0 +1,131 @@
+package ru.doggohub.servlet;
+
+import lombok.extern.java.Log;
+import ru.doggohub.config.Components;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.repository.DogRepository;
+import ru.doggohub.repository.HealthStoryRepository;
+import ru.doggohub.repository.UserRepository;
+import ru.doggohub.service.export.ExportService;
+import ru.doggohub.service.export.ExportServiceImpl;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Полная выгрузка для аналитики: {@code GET /export/dogs}, {@code /export/owners}, {@code /export/health}.
+ * Строки пишутся в ответ по мере чтения курсором, в порядке ID; {@code after_id} продолжает
+ * прерванную выгрузку после последнего полученного ID.
+ */
+@Log
+@WebServlet(urlPatterns = {"/export/*"})
+public class ExportServlet extends HttpServlet {
+    private static final Set<String> TABLES = Set.of("/dogs", "/owners", "/health");
+
+    private final ExportService exportService;
+
+    public ExportServlet() {
+        super();
+        this.exportService = Components.exportService();
+    }
+
+    public ExportServlet(UserRepository userRepository, DogRepository dogRepository,
+                         HealthStoryRepository healthStoryRepository) {
+        super();
+        this.exportService = new ExportServiceImpl(userRepository, dogRepository, healthStoryRepository);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String table = req.getPathInfo() != null ? req.getPathInfo() : "";
+        if (!TABLES.contains(table)) {
+            plainText(resp, HttpServletResponse.SC_NOT_FOUND,
+                    "Доступны выгрузки /export/dogs, /export/owners и /export/health");
+            return;
+        }
+        ExportFormat format;
+        long afterId;
+        try {
+            format = ExportFormat.of(req);
+            String afterIdParam = req.getParameter("after_id");
+            afterId = afterIdParam != null ? Long.parseLong(afterIdParam) : 0;
+        } catch (NumberFormatException e) {
+            plainText(resp, HttpServletResponse.SC_BAD_REQUEST, "Неверный формат ID");
+            return;
+        } catch (ValidationException e) {
+            plainText(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        resp.setContentType(format.contentType());
+        resp.setCharacterEncoding("UTF-8");
+        // Не PrintWriter: он скрывает ошибки записи, и после отключения клиента выгрузка дочитала бы таблицу впустую
+        Writer writer = new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8);
+        try {
+            switch (table) {
+                case "/dogs" -> {
+                    ExportFormat.RowWriter rows = format.open(writer, "id", "name", "birthDay", "breed", "color",
+                            "gender", "weight", "registrationTime", "ownerId");
+                    exportService.exportDogs(afterId, unchecked(dog -> rows.row(dog.getId(), dog.getName(),
+                            dog.getBirthDay(), dog.getBreed(), dog.getColor(), dog.getGender(), dog.getWeight(),
+                            dog.getRegistrationTime(), dog.getOwnerId())));
+                }
+                case "/owners" -> {
+                    ExportFormat.RowWriter rows = format.open(writer, "id", "name");
+                    exportService.exportOwners(afterId, unchecked(user -> rows.row(user.getId(), user.getName())));
+                }
+                default -> {
+                    ExportFormat.RowWriter rows = format.open(writer, "id", "dogId", "visit", "text");
+                    exportService.exportHealthStories(afterId, unchecked(story -> rows.row(story.getId(),
+                            story.getDogId(), story.getVisit(), story.getText())));
+                }
+            }
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            log.log(Level.FINE, "Клиент прервал выгрузку " + table, e);
+        } catch (Exception e) {
+            if (resp.isCommitted()) {
+                log.log(Level.WARNING, "Выгрузка " + table + " прервана ошибкой", e);
+                return;
+            }
+            resp.resetBuffer();
+            boolean invalid = e instanceof ValidationException;
+            resp.setStatus(invalid ? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            resp.setContentType("text/plain");
+            String message = invalid ? e.getMessage() : "При обработке запроса произошла ошибка: " + e.getMessage();
+            resp.getOutputStream().write((message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void plainText(HttpServletResponse resp, int status, String message) throws IOException {
+        resp.setStatus(status);
+        resp.setContentType("text/plain");
+        resp.setCharacterEncoding("UTF-8");
+        resp.getWriter().println(message);
+    }
+
+    private static <T> Consumer<T> unchecked(RowAction<T> action) {
+        return item -> {
+            try {
+                action.write(item);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface RowAction<T> {
+        void write(T item) throws IOException;
+    }
+}
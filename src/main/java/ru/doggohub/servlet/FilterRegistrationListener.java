@@ -0,0 +1,34 @@
+package ru.doggohub.servlet;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterRegistration;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.util.EnumSet;
+
+/**
+ * Регистрирует фильтры в заданном порядке: у {@code @WebFilter} без web.xml порядок не определён.
+ * Первым идёт {@link CompressionFilter}, чтобы сжимать всё, что запишут следующие фильтры и сервлет,
+ * за ним {@link RequestScopeFilter}. Оба поддерживают асинхронные сервлеты.
+ */
+@WebListener
+public class FilterRegistrationListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext context = sce.getServletContext();
+        register(context, "compression", CompressionFilter.class, EnumSet.of(DispatcherType.REQUEST));
+        register(context, "requestScope", RequestScopeFilter.class,
+                EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+    }
+
+    private static void register(ServletContext context, String name, Class<? extends Filter> type,
+                                 EnumSet<DispatcherType> dispatcherTypes) {
+        FilterRegistration.Dynamic filter = context.addFilter(name, type);
+        filter.setAsyncSupported(true);
+        filter.addMappingForUrlPatterns(dispatcherTypes, true, "/*");
+    }
+}
@@ -0,0 +1,86 @@
+package ru.doggohub.servlet;
+
+import com.google.gson.Gson;
+import lombok.extern.java.Log;
+import ru.doggohub.config.Components;
+import ru.doggohub.dto.health.HealthImportResultDto;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.json.Json;
+import ru.doggohub.repository.DogRepository;
+import ru.doggohub.repository.HealthStoryRepository;
+import ru.doggohub.service.health.HealthImportFormat;
+import ru.doggohub.service.health.HealthStoryService;
+import ru.doggohub.service.health.HealthStoryServiceImpl;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Загрузка архива историй болезни при переезде клиники: {@code POST /health/import} с CSV или NDJSON
+ * в теле. Строки передаются в базу по мере чтения запроса, даты визитов сохраняются.
+ */
+@Log
+@WebServlet(urlPatterns = {"/health/import"})
+public class HealthImportServlet extends HttpServlet {
+    private static final int READ_BUFFER_CHARS = 64 * 1024;
+
+    private final HealthStoryService healthStoryService;
+    private final Gson gson = Json.GSON;
+
+    public HealthImportServlet() {
+        super();
+        this.healthStoryService = Components.healthStoryService();
+    }
+
+    public HealthImportServlet(HealthStoryRepository healthStoryRepository, DogRepository dogRepository) {
+        super();
+        this.healthStoryService = new HealthStoryServiceImpl(healthStoryRepository, dogRepository);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+
+        PrintWriter writer = resp.getWriter();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(req.getInputStream(), StandardCharsets.UTF_8), READ_BUFFER_CHARS)) {
+            HealthImportResultDto result = healthStoryService.importStories(reader, format(req));
+            log.info(String.format("Загружено историй болезни: %d, отклонено: %d, %d мс, %d строк/с",
+                    result.getLoaded(), result.getRejected(), result.getMillis(), result.getRowsPerSecond()));
+            writer.println(gson.toJson(result));
+        } catch (ValidationException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            writer.println(e.getMessage());
+        } catch (Exception e) {
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            writer.println("При обработке запроса произошла ошибка: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Формат из параметра {@code format}, а без него — по {@code Content-Type}; по умолчанию NDJSON.
+     */
+    private static HealthImportFormat format(HttpServletRequest req) {
+        String format = req.getParameter("format");
+        if (format == null) {
+            String contentType = req.getContentType();
+            return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("text/csv")
+                    ? HealthImportFormat.CSV : HealthImportFormat.NDJSON;
+        }
+        return switch (format.toLowerCase(Locale.ROOT)) {
+            case "ndjson", "json" -> HealthImportFormat.NDJSON;
+            case "csv" -> HealthImportFormat.CSV;
+            default -> throw new ValidationException("Неизвестный формат загрузки: " + format);
+        };
+    }
+}
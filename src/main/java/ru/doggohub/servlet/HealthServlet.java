@@ -1,14 +1,18 @@
 package ru.doggohub.servlet;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import ru.doggohub.cache.ResponseCache;
+import ru.doggohub.cache.VersionTracker;
+import ru.doggohub.config.Components;
 import ru.doggohub.dto.health.HealthStoryRequestDto;
 import ru.doggohub.dto.health.HealthStoryResponseDto;
+import ru.doggohub.exception.NotFoundException;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.json.Json;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.HealthStoryRepository;
 import ru.doggohub.service.health.HealthStoryService;
 import ru.doggohub.service.health.HealthStoryServiceImpl;
-import ru.doggohub.util.LocalDateTypeAdapter;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -21,33 +25,38 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.util.List;
 
 @WebServlet(urlPatterns = {"/health"})
 public class HealthServlet extends HttpServlet {
 
     private final HealthStoryService healthStoryService;
-    private final Gson gson = new GsonBuilder()
-            .registerTypeAdapter(LocalDate.class, new LocalDateTypeAdapter())
-            .create();
+    private final VersionTracker versions;
+    private final CachedGet responses;
+    private final Gson gson = Json.GSON;
 
     public HealthServlet(HealthStoryRepository healthStoryRepository, DogRepository dogRepository) {
         super();
         this.healthStoryService = new HealthStoryServiceImpl(healthStoryRepository, dogRepository);
+        this.versions = new VersionTracker(VersionTracker.DEFAULT_MAX_ENTRIES);
+        this.responses = new CachedGet(versions, new ResponseCache(0));
     }
 
     public HealthServlet() {
         super();
-        this.healthStoryService = new HealthStoryServiceImpl(new HealthStoryRepository(), new DogRepository());
+        this.healthStoryService = Components.healthStoryService();
+        this.versions = Components.versionTracker();
+        this.responses = new CachedGet(versions, Components.responseCache());
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        resp.setContentType("application/json");
-        resp.setCharacterEncoding("UTF-8");
+        Representation representation = Representation.negotiate(req);
+        representation.prepare(resp);
 
-        PrintWriter writer = resp.getWriter();
+        if (writeIfFresh(req, resp, representation)) {
+            return;
+        }
+        ResponseBody body = ResponseBody.open(resp, representation);
 
         try {
             String idStoryParam = req.getParameter("id");
@@ -55,29 +64,82 @@ public class HealthServlet extends HttpServlet {
 
             if (idStoryParam != null) {
                 long storyId = Long.parseLong(idStoryParam);
+                long sequence = versions.sequence();
                 HealthStoryResponseDto responseDto = healthStoryService.getById(storyId);
-                String jsonResponse = gson.toJson(responseDto);
-                writer.println(jsonResponse);
+                if (responseDto.getDogId() != null) {
+                    VersionTracker.Key story = VersionTracker.healthStory(storyId);
+                    VersionTracker.Key dogHealth = VersionTracker.dogHealth(responseDto.getDogId());
+                    versions.rememberParent(story, dogHealth);
+                    responses.write(resp, body, "health?id=" + storyId, sequence, responseDto,
+                            HealthStoryResponseDto.class, story, dogHealth);
+                } else {
+                    body.value(responseDto, HealthStoryResponseDto.class, false);
+                }
 
             } else if (dogIdParam != null) {
                 long dogId = Long.parseLong(dogIdParam);
-                List<HealthStoryResponseDto> responseDtoList = healthStoryService.getByDogId(dogId);
-                String jsonResponse = gson.toJson(responseDtoList);
-                writer.println(jsonResponse);
+                PageParams page = PageParams.from(req);
+                if (page != null) {
+                    long sequence = versions.sequence();
+                    responses.writePage(resp, body, sequence,
+                            healthStoryService.getPageByDogId(dogId, page.getAfter(), page.getLimit()),
+                            HealthStoryResponseDto.class, VersionTracker.dogHealth(dogId));
+                } else {
+                    responses.streamArray(resp, body, "health?dog_id=" + dogId, HealthStoryResponseDto.class,
+                            action -> healthStoryService.streamByDogId(dogId, action), VersionTracker.dogHealth(dogId));
+                }
 
             } else {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                writer.println("Не указан ID истории болезни или ID питомца");
+                body.message("Не указан ID истории болезни или ID питомца");
             }
 
         } catch (NumberFormatException e) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            writer.println("Неверный формат ID");
+            body.message("Неверный формат ID");
+
+        } catch (ValidationException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            body.message(e.getMessage());
+
+        } catch (NotFoundException e) {
+            resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            body.message(e.getMessage());
 
         } catch (Exception e) {
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writer.println("При обработке запроса произошла ошибка: " + e.getMessage());
+            body.message("При обработке запроса произошла ошибка: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Отвечает 304 или готовым телом, если данные не менялись. Ошибки в параметрах
+     * не обрабатывает: о них сообщает основной обработчик.
+     */
+    private boolean writeIfFresh(HttpServletRequest req, HttpServletResponse resp,
+                                 Representation representation) throws IOException {
+        try {
+            String idStoryParam = req.getParameter("id");
+            if (idStoryParam != null) {
+                long storyId = Long.parseLong(idStoryParam);
+                VersionTracker.Key story = VersionTracker.healthStory(storyId);
+                VersionTracker.Key dogHealth = versions.parentOf(story);
+                return dogHealth != null
+                        && responses.writeIfFresh(req, resp, representation, "health?id=" + storyId, story, dogHealth);
+            }
+            String dogIdParam = req.getParameter("dog_id");
+            if (dogIdParam != null) {
+                long dogId = Long.parseLong(dogIdParam);
+                if (PageParams.isRequested(req)) {
+                    return responses.notModified(req, resp, representation, VersionTracker.dogHealth(dogId));
+                }
+                return responses.writeIfFresh(req, resp, representation, "health?dog_id=" + dogId,
+                        VersionTracker.dogHealth(dogId));
+            }
+        } catch (NumberFormatException ignore) {
+            return false;
         }
+        return false;
     }
 
     @Override
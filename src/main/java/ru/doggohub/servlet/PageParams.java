@@ -0,0 +1,42 @@
+package ru.doggohub.servlet;
+
+import lombok.Value;
+import ru.doggohub.dto.Page;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.util.PageCursor;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Параметры постраничной выдачи списка: {@code limit} — размер страницы, {@code after} — курсор
+ * из заголовка {@value #NEXT_CURSOR_HEADER} предыдущей страницы.
+ */
+@Value
+class PageParams {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    PageCursor after;
+    int limit;
+
+    static boolean isRequested(HttpServletRequest req) {
+        return req.getParameter("limit") != null || req.getParameter("after") != null;
+    }
+
+    /**
+     * @return {@code null}, если клиент запросил список целиком
+     */
+    static PageParams from(HttpServletRequest req) {
+        if (!isRequested(req)) {
+            return null;
+        }
+        String limitParam = req.getParameter("limit");
+        String afterParam = req.getParameter("after");
+        int limit;
+        try {
+            limit = limitParam != null ? Integer.parseInt(limitParam) : Page.DEFAULT_LIMIT;
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Неверный формат limit: " + limitParam);
+        }
+        return new PageParams(afterParam != null ? PageCursor.decode(afterParam) : null, limit);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.doggohub.servlet;
+
+import ru.doggohub.cache.VersionTracker;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Locale;
+
+/**
+ * Представление GET-ответа, выбранное по заголовку {@code Accept}. JSON отдаётся по умолчанию,
+ * CBOR — только если клиент явно предпочёл {@code application/cbor}. У представлений разные
+ * ETag и ключи в кэше ответов, а ответы содержат {@code Vary: Accept}.
+ */
+enum Representation {
+    JSON("application/json", null),
+    CBOR("application/cbor", "cbor");
+
+    private final String contentType;
+    private final String suffix;
+
+    Representation(String contentType, String suffix) {
+        this.contentType = contentType;
+        this.suffix = suffix;
+    }
+
+    static Representation negotiate(HttpServletRequest req) {
+        String accept = req.getHeader("Accept");
+        if (accept == null) {
+            return JSON;
+        }
+        float jsonQuality = -1;
+        float wildcardQuality = -1;
+        float cborQuality = -1;
+        for (String range : accept.split(",")) {
+            String[] parts = range.split(";");
+            String mediaType = parts[0].trim().toLowerCase(Locale.ROOT);
+            float quality = quality(parts);
+            switch (mediaType) {
+                case "application/json" -> jsonQuality = Math.max(jsonQuality, quality);
+                case "application/cbor" -> cborQuality = Math.max(cborQuality, quality);
+                case "*/*", "application/*" -> wildcardQuality = Math.max(wildcardQuality, quality);
+                default -> {
+                }
+            }
+        }
+        boolean jsonExplicit = jsonQuality >= 0;
+        float json = jsonExplicit ? jsonQuality : Math.max(wildcardQuality, 0);
+        boolean preferCbor = cborQuality > json || (cborQuality == json && !jsonExplicit);
+        return cborQuality > 0 && preferCbor ? CBOR : JSON;
+    }
+
+    private static float quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2));
+                } catch (NumberFormatException ignore) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    void prepare(HttpServletResponse resp) {
+        resp.setContentType(contentType);
+        if (this == JSON) {
+            resp.setCharacterEncoding("UTF-8");
+        }
+        resp.addHeader("Vary", "Accept");
+    }
+
+    String etag(VersionTracker.Validator validator) {
+        String etag = validator.getEtag();
+        if (suffix == null) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + '-' + suffix + '"';
+    }
+
+    String cacheKey(String resource) {
+        return suffix == null ? resource : resource + ';' + suffix;
+    }
+}
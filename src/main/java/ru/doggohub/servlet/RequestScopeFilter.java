@@ -0,0 +1,34 @@
+package ru.doggohub.servlet;
+
+import ru.doggohub.cache.RequestCache;
+
+import javax.servlet.*;
+import java.io.IOException;
+
+/**
+ * Открывает {@link RequestCache} на время обработки запроса.
+ * <p>
+ * Область привязана к потоку, поэтому закрывается при выходе из фильтра, даже если запрос
+ * перешёл в асинхронный режим: поток вернётся в пул контейнера без чужих записей, а код,
+ * продолжающий запрос в другом потоке, работает без области и читает базу напрямую.
+ * Асинхронный {@code dispatch} проходит через фильтр заново и получает собственную область.
+ * Если область уже открыта (вложенный {@code dispatch} в том же потоке), фильтр её не трогает.
+ * Регистрируется {@link FilterRegistrationListener}.
+ */
+public class RequestScopeFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (RequestCache.isActive()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        RequestCache.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestCache.end();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package ru.doggohub.servlet;
+
+import com.google.gson.stream.JsonWriter;
+import ru.doggohub.cbor.CborEncoder;
+import ru.doggohub.cbor.CborEncoders;
+import ru.doggohub.cbor.CborWriter;
+import ru.doggohub.json.Json;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Тело GET-ответа в выбранном {@link Representation}: отдельные значения, списки, которые
+ * пишутся по мере чтения, и текстовые сообщения об ошибках. JSON пишется через
+ * {@link HttpServletResponse#getWriter()}, CBOR — в {@link HttpServletResponse#getOutputStream()}.
+ */
+abstract class ResponseBody {
+    private final Representation representation;
+
+    private ResponseBody(Representation representation) {
+        this.representation = representation;
+    }
+
+    static ResponseBody open(HttpServletResponse resp, Representation representation) throws IOException {
+        return representation == Representation.CBOR ? new CborBody(resp) : new JsonBody(resp.getWriter());
+    }
+
+    Representation representation() {
+        return representation;
+    }
+
+    abstract void message(String text) throws IOException;
+
+    /**
+     * Пишет значение целиком.
+     *
+     * @return тело ответа в байтах, если {@code capture}, иначе {@code null}
+     */
+    abstract <T> byte[] value(T value, Class<T> type, boolean capture) throws IOException;
+
+    /**
+     * Открывает список, элементы которого пишутся по мере поступления. {@code onStart} вызывается
+     * перед первым байтом тела — до этого ещё можно менять заголовки и статус ответа.
+     * Тело копится для кэша, пока оно не длиннее {@code captureLimit}; {@code captureLimit < 0} — не копить.
+     */
+    abstract <T> ArraySink<T> array(Class<T> type, int captureLimit, Runnable onStart) throws IOException;
+
+    abstract static class ArraySink<T> implements Consumer<T> {
+        private final Runnable onStart;
+        private boolean started;
+
+        ArraySink(Runnable onStart) {
+            this.onStart = onStart;
+        }
+
+        @Override
+        public final void accept(T item) {
+            try {
+                start();
+                writeItem(item);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Закрывает список.
+         *
+         * @return накопленное тело или {@code null}, если оно не копилось или превысило предел
+         */
+        final byte[] finish() throws IOException {
+            start();
+            return end();
+        }
+
+        private void start() throws IOException {
+            if (!started) {
+                started = true;
+                onStart.run();
+                begin();
+            }
+        }
+
+        abstract void begin() throws IOException;
+
+        abstract void writeItem(T item) throws IOException;
+
+        abstract byte[] end() throws IOException;
+    }
+
+    private static final class JsonBody extends ResponseBody {
+        private final PrintWriter writer;
+
+        JsonBody(PrintWriter writer) {
+            super(Representation.JSON);
+            this.writer = writer;
+        }
+
+        @Override
+        void message(String text) {
+            writer.println(text);
+        }
+
+        @Override
+        <T> byte[] value(T value, Class<T> type, boolean capture) {
+            String json = Json.GSON.toJson(value, type);
+            writer.println(json);
+            return capture ? (json + System.lineSeparator()).getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        @Override
+        <T> ArraySink<T> array(Class<T> type, int captureLimit, Runnable onStart) throws IOException {
+            CapturingWriter out = new CapturingWriter(writer, captureLimit);
+            JsonWriter json = Json.GSON.newJsonWriter(out);
+            return new ArraySink<>(onStart) {
+                @Override
+                void begin() throws IOException {
+                    json.beginArray();
+                }
+
+                @Override
+                void writeItem(T item) {
+                    Json.GSON.toJson(item, type, json);
+                }
+
+                @Override
+                byte[] end() throws IOException {
+                    json.endArray();
+                    out.write(System.lineSeparator());
+                    out.flush();
+                    String captured = out.captured();
+                    return captured != null ? captured.getBytes(StandardCharsets.UTF_8) : null;
+                }
+            };
+        }
+    }
+
+    private static final class CborBody extends ResponseBody {
+        private final HttpServletResponse resp;
+        private OutputStream stream;
+
+        CborBody(HttpServletResponse resp) {
+            super(Representation.CBOR);
+            this.resp = resp;
+        }
+
+        private OutputStream stream() throws IOException {
+            if (stream == null) {
+                stream = resp.getOutputStream();
+            }
+            return stream;
+        }
+
+        /**
+         * Сообщения об ошибках остаются текстом: клиенту не нужно разбирать их как CBOR.
+         */
+        @Override
+        void message(String text) throws IOException {
+            resp.setContentType("text/plain");
+            resp.setCharacterEncoding("UTF-8");
+            stream().write((text + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        <T> byte[] value(T value, Class<T> type, boolean capture) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            CborEncoders.forType(type).write(new CborWriter(buffer), value);
+            byte[] bytes = buffer.toByteArray();
+            resp.setContentLength(bytes.length);
+            stream().write(bytes);
+            return capture ? bytes : null;
+        }
+
+        @Override
+        <T> ArraySink<T> array(Class<T> type, int captureLimit, Runnable onStart) throws IOException {
+            CborEncoder<T> encoder = CborEncoders.forType(type);
+            CapturingOutputStream out = new CapturingOutputStream(stream(), captureLimit);
+            CborWriter cbor = new CborWriter(out);
+            return new ArraySink<>(onStart) {
+                @Override
+                void begin() throws IOException {
+                    cbor.beginArray();
+                }
+
+                @Override
+                void writeItem(T item) throws IOException {
+                    encoder.write(cbor, item);
+                }
+
+                @Override
+                byte[] end() throws IOException {
+                    cbor.end();
+                    cbor.flush();
+                    return out.captured();
+                }
+            };
+        }
+    }
+
+    /**
+     * Пропускает символы в ответ и копит их, пока их не больше {@code limit};
+     * {@code limit < 0} — не копить.
+     */
+    private static final class CapturingWriter extends Writer {
+        private final Writer out;
+        private final int limit;
+        private StringBuilder captured;
+
+        CapturingWriter(Writer out, int limit) {
+            this.out = out;
+            this.limit = limit;
+            this.captured = limit >= 0 ? new StringBuilder() : null;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            out.write(chars, offset, length);
+            if (captured != null) {
+                if (captured.length() + length > limit) {
+                    captured = null;
+                } else {
+                    captured.append(chars, offset, length);
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            out.write(str, offset, length);
+            if (captured != null) {
+                if (captured.length() + length > limit) {
+                    captured = null;
+                } else {
+                    captured.append(str, offset, offset + length);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        String captured() {
+            return captured != null ? captured.toString() : null;
+        }
+    }
+
+    /**
+     * Двоичный аналог {@link CapturingWriter}.
+     */
+    private static final class CapturingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final int limit;
+        private ByteArrayOutputStream captured;
+
+        CapturingOutputStream(OutputStream out, int limit) {
+            this.out = out;
+            this.limit = limit;
+            this.captured = limit >= 0 ? new ByteArrayOutputStream() : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (captured != null) {
+                if (captured.size() + 1 > limit) {
+                    captured = null;
+                } else {
+                    captured.write(b);
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            capture(bytes, offset, length);
+        }
+
+        private void capture(byte[] bytes, int offset, int length) {
+            if (captured != null) {
+                if (captured.size() + length > limit) {
+                    captured = null;
+                } else {
+                    captured.write(bytes, offset, length);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        byte[] captured() {
+            return captured != null ? captured.toByteArray() : null;
+        }
+    }
+}
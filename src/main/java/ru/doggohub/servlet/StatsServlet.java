@@ -0,0 +1,144 @@
+package ru.doggohub.servlet;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import ru.doggohub.cache.CacheStats;
+import ru.doggohub.cache.ExistenceFilter;
+import ru.doggohub.cache.TinyLfuCache;
+import ru.doggohub.config.Components;
+import ru.doggohub.pool.ConnectionPool;
+import ru.doggohub.util.BatchLoader;
+import ru.doggohub.util.DatabaseUtil;
+import ru.doggohub.util.GroupCommit;
+import ru.doggohub.util.SingleFlight;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Счётчики пула соединений, объединения и схлопывания запросов, кэшей, индекса собак владельцев
+ * и отсечения несуществующих ID: {@code GET /stats}.
+ * Запросы принимаются только с локального адреса.
+ */
+@WebServlet(urlPatterns = {"/stats"})
+public class StatsServlet extends HttpServlet {
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setCharacterEncoding("UTF-8");
+
+        PrintWriter writer = resp.getWriter();
+
+        if (!InetAddress.getByName(req.getRemoteAddr()).isLoopbackAddress()) {
+            resp.setContentType("text/plain");
+            resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            writer.println("Статистика доступна только с локального адреса");
+            return;
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        DataSource dataSource = DatabaseUtil.getDataSource();
+        if (dataSource instanceof ConnectionPool pool) {
+            Map<String, Object> poolStats = new LinkedHashMap<>();
+            poolStats.put("active", pool.getActiveCount());
+            poolStats.put("idle", pool.getIdleCount());
+            poolStats.put("total", pool.getTotalCount());
+            poolStats.put("statementCacheHits", pool.getStatementCacheHits());
+            poolStats.put("statementCacheMisses", pool.getStatementCacheMisses());
+            stats.put("pool", poolStats);
+        }
+
+        Map<String, Object> batchStats = new LinkedHashMap<>();
+        addBatchStats(batchStats, Components.dogRepository().getBatchLoader());
+        addBatchStats(batchStats, Components.userRepository().getBatchLoader());
+        addBatchStats(batchStats, Components.healthStoryRepository().getBatchLoader());
+        stats.put("batch", batchStats);
+
+        GroupCommit<?> groupCommit = Components.healthStoryRepository().getGroupCommit();
+        if (groupCommit != null) {
+            Map<String, Object> groupCommitStats = new LinkedHashMap<>();
+            groupCommitStats.put("rows", groupCommit.getRowCount());
+            groupCommitStats.put("batches", groupCommit.getBatchCount());
+            groupCommitStats.put("queued", groupCommit.getQueuedCount());
+            groupCommitStats.put("rejected", groupCommit.getRejectedCount());
+            groupCommitStats.put("withdrawn", groupCommit.getWithdrawnCount());
+            groupCommitStats.put("averageWaitMicros", groupCommit.getAverageWaitMicros());
+            stats.put("groupCommit", Map.of(groupCommit.getName(), groupCommitStats));
+        }
+
+        Map<String, Object> singleFlightStats = new LinkedHashMap<>();
+        addSingleFlightStats(singleFlightStats, "dogs", Components.dogReads());
+        addSingleFlightStats(singleFlightStats, "owners", Components.userReads());
+        stats.put("singleFlight", singleFlightStats);
+
+        Map<String, Object> cacheStats = new LinkedHashMap<>();
+        addCacheStats(cacheStats, Components.dogViewCache().getViews());
+        addCacheStats(cacheStats, Components.responseCache().getBodies());
+        stats.put("caches", cacheStats);
+        stats.put("ownerDogIndex", Map.of("owners", Components.ownerDogIndex().size()));
+
+        Map<String, Object> missingIdStats = new LinkedHashMap<>();
+        addExistenceStats(missingIdStats, Components.dogRepository().getExistenceFilter());
+        addExistenceStats(missingIdStats, Components.userRepository().getExistenceFilter());
+        addExistenceStats(missingIdStats, Components.healthStoryRepository().getExistenceFilter());
+        stats.put("missingIds", missingIdStats);
+
+        resp.setContentType("application/json");
+        writer.println(gson.toJson(stats));
+    }
+
+    private void addBatchStats(Map<String, Object> stats, BatchLoader<?> loader) {
+        if (loader == null) {
+            return;
+        }
+        Map<String, Object> loaderStats = new LinkedHashMap<>();
+        loaderStats.put("requests", loader.getRequestCount());
+        loaderStats.put("batches", loader.getBatchCount());
+        loaderStats.put("keys", loader.getKeyCount());
+        loaderStats.put("averageWaitMicros", loader.getAverageWaitMicros());
+        stats.put(loader.getName(), loaderStats);
+    }
+
+    private void addSingleFlightStats(Map<String, Object> stats, String name, SingleFlight singleFlight) {
+        Map<String, Object> flightStats = new LinkedHashMap<>();
+        flightStats.put("calls", singleFlight.getCallCount());
+        flightStats.put("collapsed", singleFlight.getCollapsedCount());
+        stats.put(name, flightStats);
+    }
+
+    private void addExistenceStats(Map<String, Object> stats, ExistenceFilter filter) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("filterBuilt", filter.isBuilt());
+        values.put("filtered", filter.getFilteredCount());
+        values.put("negativeHits", filter.getNegativeHitCount());
+        values.put("databaseMisses", filter.getMissCount());
+        values.put("remembered", filter.getMissingSize());
+        stats.put(filter.getName(), values);
+    }
+
+    private void addCacheStats(Map<String, Object> stats, TinyLfuCache<?, ?> cache) {
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("hitRatio", cacheStats.getHitRatio());
+        values.put("hits", cacheStats.getHitCount());
+        values.put("misses", cacheStats.getMissCount());
+        values.put("loads", cacheStats.getLoadCount());
+        values.put("loadFailures", cacheStats.getLoadFailureCount());
+        values.put("averageLoadMicros", cacheStats.getAverageLoadMicros());
+        values.put("evictions", cacheStats.getEvictionCount());
+        values.put("evictedWeight", cacheStats.getEvictionWeight());
+        values.put("size", cacheStats.getSize());
+        values.put("weightedSize", cacheStats.getWeightedSize());
+        values.put("maximumWeight", cacheStats.getMaximumWeight());
+        stats.put(cache.getName(), values);
+    }
+}
@@ -1,8 +1,16 @@
 package ru.doggohub.servlet;
 
 import com.google.gson.Gson;
+import ru.doggohub.cache.ResponseCache;
+import ru.doggohub.cache.VersionTracker;
+import ru.doggohub.config.Components;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.user.UserField;
 import ru.doggohub.dto.user.UserRequestDto;
 import ru.doggohub.dto.user.UserResponseDto;
+import ru.doggohub.exception.NotFoundException;
+import ru.doggohub.exception.ValidationException;
+import ru.doggohub.json.Json;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.UserRepository;
 import ru.doggohub.service.user.UserService;
@@ -19,63 +27,111 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
 @WebServlet(urlPatterns = {"/user"})
 public class UserServlet extends HttpServlet {
     private final UserService userService;
+    private final VersionTracker versions;
+    private final CachedGet responses;
+    private final Gson gson = Json.GSON;
 
     public UserServlet() {
         super();
-        this.userService = new UserServiceImpl(new UserRepository(), new DogRepository());
+        this.userService = Components.userService();
+        this.versions = Components.versionTracker();
+        this.responses = new CachedGet(versions, Components.responseCache());
     }
 
     public UserServlet(UserRepository userRepository, DogRepository dogRepository) {
         super();
         this.userService = new UserServiceImpl(userRepository, dogRepository);
+        this.versions = new VersionTracker(VersionTracker.DEFAULT_MAX_ENTRIES);
+        this.responses = new CachedGet(versions, new ResponseCache(0));
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        resp.setContentType("application/json");
-        resp.setCharacterEncoding("UTF-8");
+        Representation representation = Representation.negotiate(req);
+        representation.prepare(resp);
 
-        PrintWriter writer = resp.getWriter();
+        if (writeIfFresh(req, resp, representation)) {
+            return;
+        }
+        ResponseBody body = ResponseBody.open(resp, representation);
 
         try {
             String userIdParam = req.getParameter("id");
-            if (userIdParam == null) {
-                List<UserResponseDto> dtoList = userService.getAll();
-                String jsonResponse = new Gson().toJson(dtoList);
-                writer.println(jsonResponse);
+            FieldSet<UserField> fields = FieldSet.parse(req.getParameter("fields"), UserField.class);
+            PageParams page = PageParams.from(req);
+            if (userIdParam == null && page != null) {
+                long sequence = versions.sequence();
+                responses.writePage(resp, body, sequence, userService.getPage(fields, page.getAfter(), page.getLimit()),
+                        UserResponseDto.class, VersionTracker.allOwners());
+
+            } else if (userIdParam == null) {
+                responses.streamArray(resp, body, CachedGet.resource("user", fields), UserResponseDto.class,
+                        action -> userService.streamAll(fields, action), VersionTracker.allOwners());
 
             } else {
                 long userId = Long.parseLong(userIdParam);
-                UserResponseDto userResponseDto = userService.getById(userId);
-                String jsonResponse = new Gson().toJson(userResponseDto);
-                writer.println(jsonResponse);
+                long sequence = versions.sequence();
+                UserResponseDto userResponseDto = userService.getById(userId, fields);
+                responses.write(resp, body, CachedGet.resource("user?id=" + userId, fields), sequence,
+                        userResponseDto, UserResponseDto.class, VersionTracker.owner(userId));
             }
 
         } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            writer.println("Неверный формат ID");
+            body.message("Неверный формат ID");
+
+        } catch (ValidationException e) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            body.message(e.getMessage());
+
+        } catch (NotFoundException e) {
+            resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            body.message(e.getMessage());
 
         } catch (Exception e) {
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            writer.println("При обработке запроса произошла ошибка: " + e.getMessage());
+            body.message("При обработке запроса произошла ошибка: " + e.getMessage());
         }
     }
 
 
+    /**
+     * Отвечает 304 или готовым телом, если данные не менялись. Ошибки в параметрах
+     * не обрабатывает: о них сообщает основной обработчик.
+     */
+    private boolean writeIfFresh(HttpServletRequest req, HttpServletResponse resp,
+                                 Representation representation) throws IOException {
+        try {
+            String userIdParam = req.getParameter("id");
+            FieldSet<UserField> fields = FieldSet.parse(req.getParameter("fields"), UserField.class);
+            if (userIdParam == null && PageParams.isRequested(req)) {
+                return responses.notModified(req, resp, representation, VersionTracker.allOwners());
+            }
+            if (userIdParam == null) {
+                return responses.writeIfFresh(req, resp, representation, CachedGet.resource("user", fields),
+                        VersionTracker.allOwners());
+            }
+            long userId = Long.parseLong(userIdParam);
+            return responses.writeIfFresh(req, resp, representation, CachedGet.resource("user?id=" + userId, fields),
+                    VersionTracker.owner(userId));
+        } catch (NumberFormatException | ValidationException ignore) {
+            return false;
+        }
+    }
+
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         resp.setContentType("application/json");
         resp.setCharacterEncoding("UTF-8");
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(req.getInputStream(), StandardCharsets.UTF_8))) {
-            UserRequestDto userRequestDto = new Gson().fromJson(reader, UserRequestDto.class);
+            UserRequestDto userRequestDto = gson.fromJson(reader, UserRequestDto.class);
             UserResponseDto userResponseDto = userService.addUser(userRequestDto);
-            String userResponseJson = new Gson().toJson(userResponseDto);
+            String userResponseJson = gson.toJson(userResponseDto);
             resp.getWriter().println(userResponseJson);
 
         } catch (Exception e) {
@@ -99,9 +155,9 @@ public class UserServlet extends HttpServlet {
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(req.getInputStream(), StandardCharsets.UTF_8))) {
             long userId = Long.parseLong(userIdParam);
-            UserRequestDto userRequestDto = new Gson().fromJson(reader, UserRequestDto.class);
+            UserRequestDto userRequestDto = gson.fromJson(reader, UserRequestDto.class);
             UserResponseDto userResponseDto = userService.updateUser(userRequestDto, userId);
-            String userResponseJson = new Gson().toJson(userResponseDto);
+            String userResponseJson = gson.toJson(userResponseDto);
             resp.getWriter().println(userResponseJson);
         } catch (Exception e) {
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -0,0 +1,153 @@
+package ru.doggohub.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Объединяет одиночные выборки по ID из разных потоков в один запрос {@code WHERE id = ANY(?)}.
+ * <p>
+ * Первый поток, пришедший к пустой пачке, становится ведущим: он ждёт не дольше окна
+ * {@code windowMicros} или до набора {@code maxSize} ключей, выполняет запрос сам и раздаёт
+ * результаты остальным. Если других загрузок в этот момент нет, ведущий не ждёт окна и
+ * выполняет запрос сразу, так что без конкуренции задержка не добавляется. Отдельных потоков
+ * загрузчик не создаёт, а добавленная задержка ограничена окном. Любая ошибка запроса,
+ * в том числе {@link Error}, передаётся всем ожидающим пачки. Одинаковые ключи внутри пачки запрашиваются один раз, но каждый
+ * вызывающий получает собственный экземпляр записи ({@code copier}), так как сервисы
+ * изменяют загруженные сущности.
+ *
+ * @param <V> тип загружаемой записи; отсутствующим ключам достаётся {@code null}
+ */
+public class BatchLoader<V> {
+    private final String name;
+    private final Function<long[], Map<Long, V>> loader;
+    private final UnaryOperator<V> copier;
+    private final long windowNanos;
+    private final int maxSize;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private Batch<V> current;
+
+    public BatchLoader(String name, Function<long[], Map<Long, V>> loader, UnaryOperator<V> copier,
+                       long windowMicros, int maxSize) {
+        this.name = name;
+        this.loader = loader;
+        this.copier = copier;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public V load(long id) {
+        long start = System.nanoTime();
+        requests.increment();
+        active.incrementAndGet();
+
+        Batch<V> batch;
+        CompletableFuture<V> future;
+        boolean leader = false;
+        boolean first;
+        synchronized (this) {
+            batch = current;
+            if (batch == null) {
+                batch = new Batch<>();
+                current = batch;
+                leader = true;
+            }
+            future = batch.futures.get(id);
+            first = future == null;
+            if (first) {
+                future = new CompletableFuture<>();
+                batch.futures.put(id, future);
+            }
+            if (batch.futures.size() >= maxSize) {
+                current = null;
+                batch.full.countDown();
+            }
+        }
+
+        if (leader) {
+            dispatch(batch);
+        }
+        try {
+            V value = future.join();
+            return first || value == null ? value : copier.apply(value);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            active.decrementAndGet();
+            waitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void dispatch(Batch<V> batch) {
+        if (active.get() > 1) {
+            try {
+                batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (current == batch) {
+                current = null;
+            }
+        }
+
+        try {
+            long[] ids = batch.futures.keySet().stream().mapToLong(Long::longValue).toArray();
+            batches.increment();
+            keys.add(ids.length);
+            Map<Long, V> found = loader.apply(ids);
+            batch.futures.forEach((id, future) -> future.complete(found.get(id)));
+        } catch (Throwable e) {
+            batch.futures.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getKeyCount() {
+        return keys.sum();
+    }
+
+    /**
+     * Среднее время ожидания результата вызывающим потоком, включая сам запрос.
+     */
+    public double getAverageWaitMicros() {
+        long count = requests.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum()) / (double) count;
+    }
+
+    private static class Batch<V> {
+        private final Map<Long, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+}
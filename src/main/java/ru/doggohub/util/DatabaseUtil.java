@@ -1,30 +1,59 @@
 package ru.doggohub.util;
 
 import lombok.experimental.UtilityClass;
+import ru.doggohub.config.Configuration;
+import ru.doggohub.pool.ConnectionPool;
+import ru.doggohub.pool.PoolSettings;
 
-import java.io.FileInputStream;
-import java.io.IOException;
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 
 @UtilityClass
 public class DatabaseUtil {
-    private static final String PROPERTIES_FILE = "src/main/resources/database.properties";
+    /**
+     * Размер порции строк, которую драйвер читает курсором при потоковой выдаче списков:
+     * в памяти одновременно держится не больше порции, а число обращений к базе остаётся малым.
+     */
+    public static final int STREAM_FETCH_SIZE = 500;
 
-    public static Connection getConnection() throws SQLException {
-        Properties properties = new Properties();
-        try (FileInputStream fis = new FileInputStream(PROPERTIES_FILE)) {
-            properties.load(fis);
-        } catch (IOException e) {
-            throw new RuntimeException("Ошибка при загрузке файла свойств", e);
+    private static volatile ConnectionPool pool;
+
+    static {
+        Configuration.addListener(config -> reconfigure(config.toPoolSettings()));
+    }
+
+    public static DataSource getDataSource() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseUtil.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(Configuration.get().toPoolSettings());
+                    pool = current;
+                }
+            }
         }
+        return current;
+    }
 
-        String url = properties.getProperty("url");
-        String user = properties.getProperty("user");
-        String password = properties.getProperty("password");
+    public static Connection getConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
 
-        return DriverManager.getConnection(url, user, password);
+    public static void shutdown() {
+        synchronized (DatabaseUtil.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
+    private static void reconfigure(PoolSettings settings) {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.reconfigure(settings);
+        }
     }
 }
@@ -0,0 +1,41 @@
+package ru.doggohub.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Пул {@link Deflater}: создание экземпляра выделяет нативную память под словарь и окно,
+ * поэтому на каждый ответ их лучше не создавать. Свободных экземпляров хранится не больше
+ * {@code maxIdle}, лишние освобождаются сразу.
+ */
+public class DeflaterPool {
+    private final BlockingQueue<Deflater> idle;
+    private final int level;
+    private final boolean nowrap;
+
+    /**
+     * @param nowrap {@code true} — «сырой» DEFLATE без заголовка zlib, как внутри gzip
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxIdle) {
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+        this.level = level;
+        this.nowrap = nowrap;
+    }
+
+    public Deflater acquire() {
+        Deflater deflater = idle.poll();
+        return deflater != null ? deflater : new Deflater(level, nowrap);
+    }
+
+    public void release(Deflater deflater) {
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+}
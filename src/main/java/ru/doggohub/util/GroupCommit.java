@@ -0,0 +1,285 @@
+package ru.doggohub.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Групповая фиксация вставок: записи из разных потоков копятся в очереди, а отдельный поток
+ * записывает их пачками одной транзакцией — одна фиксация (и один fsync) на пачку вместо
+ * одной на запись.
+ * <p>
+ * Пачка уходит, когда в ней {@code maxRows} записей или когда первая из них прождала
+ * {@code maxWaitMicros}; пока идёт запись, следующая пачка набирается сама. Очередь без
+ * блокировок и ограничена {@code capacity}: при переполнении {@link #submit} возвращает
+ * {@code null}, и вызывающий пишет сам. Если пачка не записалась, записи повторяются по
+ * одной, чтобы ошибка одной не отменяла остальные. Любая ошибка записи, в том числе
+ * {@link Error}, завершает ожидание записей пачки и не останавливает поток записи.
+ * {@link #await} ограничивает ожидание: запись, которую поток записи не успел взять
+ * в пачку, снимается с очереди, и вызывающий пишет её сам.
+ *
+ * @param <V> тип записи; {@code writer} возвращает сгенерированные ID в порядке записей
+ */
+public class GroupCommit<V> {
+    private final String name;
+    private final Function<List<V>, long[]> writer;
+    private final long maxWaitNanos;
+    private final int maxRows;
+    private final int capacity;
+
+    private final Queue<Pending<V>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder withdrawn = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    public GroupCommit(String name, Function<List<V>, long[]> writer, long maxWaitMicros, int maxRows, int capacity) {
+        this.name = name;
+        this.writer = writer;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.maxRows = Math.max(1, maxRows);
+        this.capacity = Math.max(1, capacity);
+        this.flusher = new Thread(this::run, "group-commit-" + name);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Ставит запись в очередь.
+     *
+     * @return ID записи после фиксации пачки или {@code null}, если очередь заполнена или закрыта
+     */
+    public CompletableFuture<Long> submit(V item) {
+        if (closed || queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return null;
+        }
+        Pending<V> pending = new Pending<>(item, System.nanoTime());
+        queue.offer(pending);
+        if (closed && queue.remove(pending)) {
+            // Поток записи мог уже завершиться и не увидеть запись
+            queued.decrementAndGet();
+            rejected.increment();
+            return null;
+        }
+        LockSupport.unpark(flusher);
+        return pending;
+    }
+
+    /**
+     * Ждёт фиксации записи, поставленной {@link #submit}, не дольше {@code timeoutMillis}.
+     * Если поток записи за это время не взял запись в пачку, она снимается с очереди.
+     * Взятую запись ждёт до конца: поток записи завершает её в любом случае.
+     *
+     * @return ID записи или {@code null}, если запись снята и вызывающий должен записать её сам
+     */
+    public Long await(CompletableFuture<Long> committed, long timeoutMillis) {
+        try {
+            return committed.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (committed instanceof Pending<?> pending && pending.take()) {
+                queued.decrementAndGet();
+                withdrawn.increment();
+                pending.cancel(false);
+                return null;
+            }
+            return join(committed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return join(committed);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static Long join(CompletableFuture<Long> committed) {
+        try {
+            return committed.join();
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * Перестаёт принимать записи, записывает уже принятые и дожидается потока записи.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending<V>> batch = new ArrayList<>(maxRows);
+        while (true) {
+            Pending<V> first = poll();
+            if (first == null) {
+                if (closed) {
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            batch.add(first);
+            long deadline = first.submittedNanos + maxWaitNanos;
+            while (batch.size() < maxRows) {
+                Pending<V> next = poll();
+                if (next != null) {
+                    batch.add(next);
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            queued.addAndGet(-batch.size());
+            try {
+                flush(batch);
+            } catch (Throwable e) {
+                for (Pending<V> pending : batch) {
+                    pending.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Следующая запись очереди, которую не сняли через {@link #await}.
+     */
+    private Pending<V> poll() {
+        Pending<V> pending;
+        do {
+            pending = queue.poll();
+        } while (pending != null && !pending.take());
+        return pending;
+    }
+
+    private void flush(List<Pending<V>> batch) {
+        batches.increment();
+        try {
+            complete(batch, write(batch));
+        } catch (Throwable e) {
+            if (batch.size() == 1) {
+                batch.get(0).completeExceptionally(e);
+                return;
+            }
+            for (Pending<V> pending : batch) {
+                try {
+                    complete(List.of(pending), write(List.of(pending)));
+                } catch (Throwable single) {
+                    pending.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private long[] write(List<Pending<V>> batch) {
+        List<V> items = new ArrayList<>(batch.size());
+        for (Pending<V> pending : batch) {
+            items.add(pending.item);
+        }
+        long[] ids = writer.apply(items);
+        if (ids.length != items.size()) {
+            throw new IllegalStateException(String.format("Записано %d строк из %d", ids.length, items.size()));
+        }
+        return ids;
+    }
+
+    private void complete(List<Pending<V>> batch, long[] ids) {
+        long now = System.nanoTime();
+        rows.add(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            Pending<V> pending = batch.get(i);
+            waitNanos.add(now - pending.submittedNanos);
+            pending.complete(ids[i]);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Записи, снятые с очереди по истечении ожидания в {@link #await}.
+     */
+    public long getWithdrawnCount() {
+        return withdrawn.sum();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Среднее время от постановки в очередь до фиксации.
+     */
+    public double getAverageWaitMicros() {
+        long count = rows.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum()) / (double) count;
+    }
+
+    private static class Pending<V> extends CompletableFuture<Long> {
+        private final V item;
+        private final long submittedNanos;
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        Pending(V item, long submittedNanos) {
+            this.item = item;
+            this.submittedNanos = submittedNanos;
+        }
+
+        /**
+         * Забирает запись либо потоку записи, либо вызывающему после истечения ожидания — ровно одному.
+         */
+        boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+    }
+}
@@ -1,26 +0,0 @@
-package ru.doggohub.util;
-
-import com.google.gson.*;
-import lombok.Data;
-
-import java.lang.reflect.Type;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-
-@Data
-public class LocalDateTypeAdapter implements JsonSerializer<LocalDate>, JsonDeserializer<LocalDate> {
-
-    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-    @Override
-    public JsonElement serialize(final LocalDate date, final Type typeOfSrc,
-                                 final JsonSerializationContext context) {
-        return new JsonPrimitive(date.format(formatter));
-    }
-
-    @Override
-    public LocalDate deserialize(final JsonElement json, final Type typeOfT,
-                                 final JsonDeserializationContext context) throws JsonParseException {
-        return LocalDate.parse(json.getAsString(), formatter);
-    }
-}
@@ -0,0 +1,34 @@
+package ru.doggohub.util;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Неизменяемый список поверх массива {@code long[]} без копирования. Массив не должен
+ * изменяться после передачи в представление.
+ */
+public class LongListView extends AbstractList<Long> implements RandomAccess {
+    private final long[] values;
+
+    public LongListView(long[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public Long get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    public long getLong(int index) {
+        return values[index];
+    }
+
+    public long[] toLongArray() {
+        return values.clone();
+    }
+}
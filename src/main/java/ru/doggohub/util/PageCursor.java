@@ -0,0 +1,59 @@
+package ru.doggohub.util;
+
+import lombok.Value;
+import ru.doggohub.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в списке для постраничной выдачи по ключу (keyset): ключ сортировки последней
+ * отданной записи. Следующая страница читается условием {@code WHERE (time, id) > (?, ?)}
+ * по индексу, поэтому её стоимость не зависит от того, сколько страниц уже пройдено.
+ * <p>
+ * Клиенту курсор передаётся непрозрачной строкой Base64URL. {@code time} есть только
+ * у списков, упорядоченных по времени, остальные упорядочены по ID.
+ */
+@Value
+public class PageCursor {
+    LocalDateTime time;
+    long id;
+
+    public static PageCursor of(long id) {
+        return new PageCursor(null, id);
+    }
+
+    public static PageCursor of(LocalDateTime time, long id) {
+        return new PageCursor(time, id);
+    }
+
+    public String encode() {
+        String key = time != null ? time + "|" + id : Long.toString(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf('|');
+            if (separator < 0) {
+                return of(Long.parseLong(key));
+            }
+            return of(LocalDateTime.parse(key.substring(0, separator)), Long.parseLong(key.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Некорректный курсор страницы: " + cursor);
+        }
+    }
+
+    /**
+     * Время для курсора списка, упорядоченного по времени.
+     */
+    public LocalDateTime requireTime() {
+        if (time == null) {
+            throw new ValidationException("Курсор страницы не относится к этому списку");
+        }
+        return time;
+    }
+}
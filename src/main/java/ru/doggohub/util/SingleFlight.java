@@ -0,0 +1,79 @@
+package ru.doggohub.util;
+
+import lombok.Value;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Схлопывает одновременные одинаковые чтения: пока вычисление для ключа (операция, ID)
+ * выполняется, остальные вызывающие ждут его результат, а не повторяют запросы к базе.
+ * <p>
+ * Результат не кэшируется: после завершения вычисления следующий вызов выполнится заново.
+ * Общий результат получают несколько потоков, поэтому использовать только для значений,
+ * которые вызывающие не изменяют (готовые ответы).
+ */
+public class SingleFlight {
+    private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String operation, long id, Supplier<V> loader) {
+        calls.increment();
+        Key key = new Key(operation, id);
+
+        CompletableFuture<Object> running = inFlight.get(key);
+        if (running == null) {
+            CompletableFuture<Object> own = new CompletableFuture<>();
+            running = inFlight.putIfAbsent(key, own);
+            if (running == null) {
+                return run(key, own, loader);
+            }
+        }
+
+        collapsed.increment();
+        try {
+            return (V) running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private <V> V run(Key key, CompletableFuture<Object> own, Supplier<V> loader) {
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * Количество вызовов, получивших результат чужого вычисления.
+     */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    @Value
+    private static class Key {
+        String operation;
+        long id;
+    }
+}
@@ -0,0 +1,27 @@
+-- Индексы, на которые рассчитаны запросы репозиториев. Приложение их не создаёт: скрипт выполняется
+-- вручную при установке и после обновления, повторный запуск ничего не меняет:
+--   psql -v ON_ERROR_STOP=1 -d doggoHub -f src/main/resources/db/indexes.sql
+
+-- Уникальность адреса без учёта регистра: UserRepository.existsByEmail
+BEGIN;
+
+-- Прежняя проверка учитывала регистр и пробелы, поэтому в таблице могут быть адреса, совпадающие
+-- после нормализации (A@x и a@x). Адрес остаётся у владельца с наименьшим ID, остальным дописывается
+-- пометка #dup<ID>; такие адреса нужно исправить вручную:
+--   SELECT id, email FROM schema_name.owners WHERE email LIKE '%#dup%';
+UPDATE schema_name.owners o
+SET email = lower(btrim(o.email)) || '#dup' || o.id
+WHERE EXISTS (SELECT 1 FROM schema_name.owners earlier
+              WHERE lower(btrim(earlier.email)) = lower(btrim(o.email)) AND earlier.id < o.id);
+
+-- Адреса хранятся нормализованными (без пробелов по краям, в нижнем регистре), как их записывает UserServiceImpl
+UPDATE schema_name.owners SET email = lower(btrim(email)) WHERE email <> lower(btrim(email));
+
+CREATE UNIQUE INDEX IF NOT EXISTS owners_email_lower_uidx ON schema_name.owners (lower(email));
+
+COMMIT;
+
+-- Постраничная выдача по ключу: DogRepository.findPageByOwnerId, HealthStoryRepository.findPageByDogId
+CREATE INDEX IF NOT EXISTS dog_owners_owner_id_idx ON schema_name.dog_owners (owner_id, dog_id);
+CREATE INDEX IF NOT EXISTS dogs_reg_time_id_idx ON schema_name.dogs (reg_time, id);
+CREATE INDEX IF NOT EXISTS dog_details_dog_id_id_idx ON schema_name.dog_details (dog_id, id);
@@ -0,0 +1,54 @@
+package ru.doggohub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_Inserted_AlwaysTrue() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.put(id * 7919);
+        }
+
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(filter.mightContain(id * 7919), "id=" + id);
+        }
+    }
+
+    @Test
+    void mightContain_NotInserted_FalsePositivesNearRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long id = 0; id < 10_000; id++) {
+            filter.put(id);
+        }
+
+        int falsePositives = 0;
+        for (long id = 10_000; id < 110_000; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "falsePositives=" + falsePositives);
+    }
+
+    @Test
+    void mightContain_Empty_False() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        assertFalse(filter.mightContain(1));
+        assertFalse(filter.mightContain(0));
+        assertFalse(filter.mightContain(-1));
+    }
+
+    @Test
+    void constructor_SizedForRate() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+
+        assertTrue(filter.bitSize() >= 9_585, "bitSize=" + filter.bitSize());
+        assertEquals(0, filter.bitSize() % Long.SIZE);
+    }
+}
@@ -0,0 +1,140 @@
+package ru.doggohub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExistenceFilterTest {
+
+    @Test
+    void isKnownMissing_BeforeBuild_OnlyRememberedMisses() {
+        ExistenceFilter filter = new ExistenceFilter("dogs", 60_000, 100);
+
+        assertFalse(filter.isKnownMissing(5));
+        filter.markMissing(5, filter.stamp());
+
+        assertTrue(filter.isKnownMissing(5));
+        assertFalse(filter.isKnownMissing(6));
+        assertEquals(1, filter.getNegativeHitCount());
+    }
+
+    @Test
+    void isKnownMissing_AfterBuild_NoFalseNegatives() {
+        ExistenceFilter filter = new ExistenceFilter("dogs", 60_000, 100);
+
+        long count = filter.build(1_000, ids -> LongStream.rangeClosed(1, 1_000).forEach(ids));
+
+        assertEquals(1_000, count);
+        assertTrue(filter.isBuilt());
+        for (long id = 1; id <= 1_000; id++) {
+            assertFalse(filter.isKnownMissing(id), "id=" + id);
+        }
+        int filtered = 0;
+        for (long id = 1_001; id <= 2_000; id++) {
+            if (filter.isKnownMissing(id)) {
+                filtered++;
+            }
+        }
+        assertTrue(filtered > 950, "filtered=" + filtered);
+        assertEquals(filtered, filter.getFilteredCount());
+    }
+
+    @Test
+    void build_InsertDuringScan_KeptInNewFilter() {
+        ExistenceFilter filter = new ExistenceFilter("dogs", 60_000, 100);
+
+        filter.build(100, ids -> {
+            LongStream.rangeClosed(1, 50).forEach(ids);
+            filter.added(5_000);
+            LongStream.rangeClosed(51, 100).forEach(ids);
+        });
+
+        assertFalse(filter.isKnownMissing(5_000));
+        filter.added(6_000);
+        assertFalse(filter.isKnownMissing(6_000));
+    }
+
+    @Test
+    void markMissing_InsertAfterStamp_NotRemembered() {
+        ExistenceFilter filter = new ExistenceFilter("dogs", 60_000, 100);
+        long stamp = filter.stamp();
+
+        filter.added(7);
+        filter.markMissing(7, stamp);
+
+        assertFalse(filter.isKnownMissing(7));
+        assertEquals(0, filter.getMissingSize());
+        assertEquals(1, filter.getMissCount());
+    }
+
+    @Test
+    void markMissing_ConcurrentInsert_NeverHidesRow() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (long id = 0; id < 2_000; id++) {
+                ExistenceFilter filter = new ExistenceFilter("dogs", 60_000, 100);
+                long stamp = filter.stamp();
+                long key = id;
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> reader = executor.submit(() -> {
+                    start.await();
+                    filter.markMissing(key, stamp);
+                    return null;
+                });
+                Future<?> writer = executor.submit(() -> {
+                    start.await();
+                    filter.added(key);
+                    return null;
+                });
+                start.countDown();
+                reader.get();
+                writer.get();
+
+                assertFalse(filter.isKnownMissing(key), "id=" + key);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void markMissing_ZeroTtl_NotRemembered() {
+        ExistenceFilter filter = new ExistenceFilter("dogs", 0, 100);
+
+        filter.markMissing(3, filter.stamp());
+        filter.removed(4);
+
+        assertFalse(filter.isKnownMissing(3));
+        assertFalse(filter.isKnownMissing(4));
+    }
+
+    @Test
+    void markMissing_OverLimit_Dropped() {
+        ExistenceFilter filter = new ExistenceFilter("dogs", 60_000, 2);
+
+        filter.markMissing(1, filter.stamp());
+        filter.markMissing(2, filter.stamp());
+        filter.markMissing(3, filter.stamp());
+
+        assertEquals(2, filter.getMissingSize());
+        assertFalse(filter.isKnownMissing(3));
+    }
+
+    @Test
+    void removed_RememberedUntilAddedAgain() {
+        ExistenceFilter filter = new ExistenceFilter("dogs", 60_000, 100);
+        filter.build(10, ids -> LongStream.rangeClosed(1, 10).forEach(ids));
+
+        filter.removed(4);
+        assertTrue(filter.isKnownMissing(4));
+
+        filter.added(4);
+        assertFalse(filter.isKnownMissing(4));
+    }
+}
@@ -0,0 +1,63 @@
+package ru.doggohub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void frequency_Unseen_Zero() {
+        FrequencySketch sketch = new FrequencySketch(1_000);
+
+        assertEquals(0, sketch.frequency(1L));
+    }
+
+    @Test
+    void increment_CountsUpToFifteen() {
+        FrequencySketch sketch = new FrequencySketch(1_000);
+
+        for (int i = 0; i < 5; i++) {
+            sketch.increment(7L);
+        }
+        assertEquals(5, sketch.frequency(7L));
+
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(7L);
+        }
+        assertEquals(15, sketch.frequency(7L));
+    }
+
+    @Test
+    void increment_HotKeyAboveColdKeys() {
+        FrequencySketch sketch = new FrequencySketch(1_000);
+        for (long key = 0; key < 500; key++) {
+            sketch.increment(key);
+        }
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(42L);
+        }
+
+        int hot = sketch.frequency(42L);
+        for (long key = 0; key < 500; key++) {
+            if (key != 42L) {
+                assertTrue(sketch.frequency(key) < hot, "key=" + key);
+            }
+        }
+    }
+
+    @Test
+    void increment_AfterSample_HalvesCounters() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot");
+        }
+
+        for (int i = 0; i < 200; i++) {
+            sketch.increment("cold" + i);
+        }
+
+        int frequency = sketch.frequency("hot");
+        assertTrue(frequency > 0 && frequency <= 8, "frequency=" + frequency);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.doggohub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    @Test
+    void get_SameVersion_ReturnsBody() {
+        ResponseCache cache = new ResponseCache(10_000);
+        byte[] body = {1, 2, 3};
+
+        cache.put("dog?id=1", 5, body);
+
+        assertSame(body, cache.get("dog?id=1", 5));
+        assertNull(cache.get("dog?id=2", 5));
+    }
+
+    @Test
+    void get_OtherVersion_Miss() {
+        ResponseCache cache = new ResponseCache(10_000);
+        cache.put("dog?id=1", 5, new byte[]{1});
+
+        assertNull(cache.get("dog?id=1", 6));
+        assertNull(cache.get("dog?id=1", 4));
+    }
+
+    @Test
+    void put_WeightIsBodyPlusOverhead() {
+        ResponseCache cache = new ResponseCache(10_000);
+
+        cache.put("a", 1, new byte[100]);
+        cache.put("b", 1, new byte[200]);
+
+        assertEquals(300 + 2 * 64, cache.getBodies().stats().getWeightedSize());
+    }
+
+    @Test
+    void resize_ToZero_DisablesAndEvicts() {
+        ResponseCache cache = new ResponseCache(10_000);
+        cache.put("a", 1, new byte[100]);
+
+        cache.resize(0);
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("a", 1));
+
+        cache.resize(10_000);
+        cache.put("a", 1, new byte[100]);
+
+        assertTrue(cache.isEnabled());
+        assertNotNull(cache.get("a", 1));
+    }
+
+    @Test
+    void put_OverBudget_StaysWithinMaxBytes() {
+        ResponseCache cache = new ResponseCache(2_000);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("dog?id=" + i, 1, new byte[100]);
+        }
+
+        CacheStats stats = cache.getBodies().stats();
+        assertTrue(stats.getWeightedSize() <= 2_000, "weightedSize=" + stats.getWeightedSize());
+        assertTrue(stats.getEvictionWeight() >= 100 * 164 - 2_000);
+    }
+
+    @Test
+    void put_BodyLargerThanBudget_NotCached() {
+        ResponseCache cache = new ResponseCache(1_000);
+
+        cache.put("big", 1, new byte[1_000]);
+
+        assertNull(cache.get("big", 1));
+    }
+
+    @Test
+    void put_Disabled_NotCached() {
+        ResponseCache cache = new ResponseCache(0);
+
+        cache.put("dog?id=1", 1, new byte[]{1});
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("dog?id=1", 1));
+    }
+}
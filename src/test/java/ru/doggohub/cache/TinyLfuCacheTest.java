@@ -0,0 +1,219 @@
+package ru.doggohub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTest {
+
+    private static TinyLfuCache<Integer, String> cache(long maximumWeight) {
+        return new TinyLfuCache<>("test", maximumWeight, value -> 1, value -> value.substring(0, 1));
+    }
+
+    @Test
+    void get_Miss_LoadsAndCaches() {
+        TinyLfuCache<Integer, String> cache = cache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a1", cache.get(1, key -> {
+            loads.incrementAndGet();
+            return "a" + key;
+        }));
+        assertEquals("a1", cache.get(1, key -> {
+            loads.incrementAndGet();
+            return "a" + key;
+        }));
+
+        assertEquals(1, loads.get());
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getLoadCount());
+    }
+
+    @Test
+    void get_NullOrFailedLoad_NotCached() {
+        TinyLfuCache<Integer, String> cache = cache(10);
+
+        assertNull(cache.get(1, key -> null));
+        assertThrows(IllegalStateException.class, () -> cache.get(2, key -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertNull(cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+        assertEquals(1, cache.stats().getLoadFailureCount());
+    }
+
+    @Test
+    void get_InvalidatedDuringLoad_ReturnsButDoesNotCache() {
+        TinyLfuCache<Integer, String> cache = cache(10);
+
+        String loaded = cache.get(1, key -> {
+            cache.invalidate(42);
+            return "a1";
+        });
+
+        assertEquals("a1", loaded);
+        assertNull(cache.getIfPresent(1));
+        assertEquals("a1", cache.get(1, key -> "a1"));
+        assertEquals("a1", cache.getIfPresent(1));
+    }
+
+    @Test
+    void get_GroupInvalidatedDuringLoad_DoesNotCache() {
+        TinyLfuCache<Integer, String> cache = cache(10);
+
+        cache.get(1, key -> {
+            cache.invalidateGroup("b");
+            return "a1";
+        });
+
+        assertNull(cache.getIfPresent(1));
+    }
+
+    @Test
+    void put_OverMaximumWeight_EvictsDownToBound() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>("test", 100, String::length);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(i, "x".repeat(1 + i % 7));
+        }
+
+        CacheStats stats = cache.stats();
+        assertTrue(stats.getWeightedSize() <= 100, "weightedSize=" + stats.getWeightedSize());
+        assertTrue(stats.getEvictionCount() > 0);
+        assertEquals(1_000, stats.getSize() + stats.getEvictionCount());
+    }
+
+    @Test
+    void setMaximumWeight_Shrink_EvictsImmediately() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>("test", 1_000, value -> 1);
+        for (int i = 0; i < 500; i++) {
+            cache.put(i, "v" + i);
+        }
+
+        cache.setMaximumWeight(100);
+
+        CacheStats stats = cache.stats();
+        assertEquals(100, stats.getMaximumWeight());
+        assertTrue(stats.getWeightedSize() <= 100, "weightedSize=" + stats.getWeightedSize());
+        assertEquals(500, stats.getSize() + stats.getEvictionCount());
+    }
+
+    @Test
+    void setMaximumWeight_Grow_AcceptsMoreEntries() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>("test", 10, value -> 1);
+
+        cache.setMaximumWeight(1_000);
+        for (int i = 0; i < 500; i++) {
+            cache.put(i, "v" + i);
+        }
+
+        assertEquals(500, cache.stats().getSize());
+        assertEquals(0, cache.stats().getEvictionCount());
+    }
+
+    @Test
+    void put_HeavierThanCache_Ignored() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>("test", 3, String::length);
+
+        cache.put(1, "long");
+
+        assertNull(cache.getIfPresent(1));
+        assertEquals(0, cache.stats().getWeightedSize());
+    }
+
+    @Test
+    void put_OneTimeScan_KeepsFrequentEntries() {
+        TinyLfuCache<Integer, String> cache = cache(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "h" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                cache.getIfPresent(i);
+            }
+        }
+
+        for (int i = 100; i < 200; i++) {
+            cache.put(i, "s" + i);
+        }
+
+        int hot = 0;
+        for (int i = 0; i < 10; i++) {
+            if (cache.getIfPresent(i) != null) {
+                hot++;
+            }
+        }
+        int scanned = 0;
+        for (int i = 100; i < 200; i++) {
+            if (cache.getIfPresent(i) != null) {
+                scanned++;
+            }
+        }
+        assertTrue(hot >= 9, "hot=" + hot);
+        assertTrue(scanned <= 1, "scanned=" + scanned);
+    }
+
+    @Test
+    void invalidateGroup_RemovesOnlyGroupKeys() {
+        TinyLfuCache<Integer, String> cache = cache(10);
+        cache.put(1, "a1");
+        cache.put(2, "a2");
+        cache.put(3, "b3");
+
+        cache.invalidateGroup("a");
+
+        assertNull(cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+        assertEquals("b3", cache.getIfPresent(3));
+        assertEquals(1, cache.stats().getSize());
+    }
+
+    @Test
+    void invalidateGroup_KeyMovedToOtherGroup_Kept() {
+        TinyLfuCache<Integer, String> cache = cache(10);
+        cache.put(1, "a1");
+        cache.put(1, "b1");
+
+        cache.invalidateGroup("a");
+
+        assertEquals("b1", cache.getIfPresent(1));
+        cache.invalidateGroup("b");
+        assertNull(cache.getIfPresent(1));
+    }
+
+    @Test
+    void invalidateGroup_AfterEviction_DoesNotTouchReloadedKey() {
+        TinyLfuCache<Integer, String> cache = cache(2);
+        cache.put(1, "a1");
+        cache.put(10, "c10");
+        for (int i = 0; i < 3; i++) {
+            cache.getIfPresent(10);
+        }
+        cache.put(11, "c11");
+        assertNull(cache.getIfPresent(1));
+        cache.put(1, "b1");
+
+        cache.invalidateGroup("a");
+
+        assertEquals("b1", cache.getIfPresent(1));
+    }
+
+    @Test
+    void invalidateAll_ClearsCache() {
+        TinyLfuCache<Integer, String> cache = cache(10);
+        cache.put(1, "a1");
+        cache.put(2, "b2");
+
+        cache.invalidateAll();
+
+        assertEquals(0, cache.stats().getSize());
+        assertEquals(0, cache.stats().getWeightedSize());
+        cache.invalidateGroup("a");
+        assertNull(cache.getIfPresent(1));
+    }
+}
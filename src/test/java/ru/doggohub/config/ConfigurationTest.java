@@ -0,0 +1,119 @@
+package ru.doggohub.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigurationTest {
+    private final Properties file = new Properties();
+    private final Properties system = new Properties();
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("doggohub.pool.minSize");
+        System.clearProperty("doggohub.pool.acquireTimeoutMs");
+    }
+
+    @Test
+    void load_FileValuesAndDefaults() {
+        file.setProperty("url", "jdbc:postgresql://db/doggo");
+        file.setProperty("pool.maxSize", "20");
+
+        AppConfig config = Configuration.load(file, system, Map.of());
+
+        assertEquals("jdbc:postgresql://db/doggo", config.getUrl());
+        assertEquals(20, config.getPoolMaxSize());
+        assertEquals(2, config.getPoolMinSize());
+        assertEquals("schema_name", config.getSchema());
+    }
+
+    @Test
+    void load_EnvOverridesFile() {
+        file.setProperty("pool.maxSize", "20");
+
+        AppConfig config = Configuration.load(file, system, Map.of("DOGGOHUB_POOL_MAXSIZE", "30"));
+
+        assertEquals(30, config.getPoolMaxSize());
+    }
+
+    @Test
+    void load_SystemPropertyOverridesEnv() {
+        file.setProperty("pool.maxSize", "20");
+        system.setProperty("doggohub.pool.maxSize", "40");
+
+        AppConfig config = Configuration.load(file, system, Map.of("DOGGOHUB_POOL_MAXSIZE", "30"));
+
+        assertEquals(40, config.getPoolMaxSize());
+    }
+
+    @Test
+    void load_ValuesTrimmed() {
+        file.setProperty("pool.maxSize", " 15 ");
+
+        assertEquals(15, Configuration.load(file, system, Map.of()).getPoolMaxSize());
+    }
+
+    @Test
+    void load_NotANumber_ThrowIllegalArgumentException() {
+        file.setProperty("pool.maxSize", "many");
+
+        assertThrows(IllegalArgumentException.class, () -> Configuration.load(file, system, Map.of()));
+    }
+
+    @Test
+    void load_MinSizeAboveMaxSize_ThrowIllegalArgumentException() {
+        file.setProperty("pool.minSize", "5");
+        file.setProperty("pool.maxSize", "3");
+
+        assertThrows(IllegalArgumentException.class, () -> Configuration.load(file, system, Map.of()));
+    }
+
+    @Test
+    void load_NegativeCacheSize_ThrowIllegalArgumentException() {
+        file.setProperty("responseCache.maxBytes", "-1");
+
+        assertThrows(IllegalArgumentException.class, () -> Configuration.load(file, system, Map.of()));
+    }
+
+    @Test
+    void load_UnknownSizeUnit_ThrowIllegalArgumentException() {
+        file.setProperty("dogCache.sizeUnit", "parsecs");
+
+        assertThrows(IllegalArgumentException.class, () -> Configuration.load(file, system, Map.of()));
+    }
+
+    @Test
+    void reload_InvalidValues_KeepCurrentSnapshot() {
+        AppConfig before = Configuration.get();
+        List<AppConfig> notified = new CopyOnWriteArrayList<>();
+        Configuration.addListener(notified::add);
+        System.setProperty("doggohub.pool.minSize", String.valueOf(before.getPoolMaxSize() + 1));
+
+        assertThrows(IllegalArgumentException.class, Configuration::reload);
+
+        assertSame(before, Configuration.get());
+        assertTrue(notified.isEmpty());
+    }
+
+    @Test
+    void reload_ValidValues_PublishAndNotify() {
+        List<AppConfig> notified = new CopyOnWriteArrayList<>();
+        Configuration.addListener(notified::add);
+        System.setProperty("doggohub.pool.acquireTimeoutMs", "1234");
+
+        AppConfig reloaded = Configuration.reload();
+
+        assertEquals(1234, reloaded.getPoolAcquireTimeoutMs());
+        assertSame(reloaded, Configuration.get());
+        assertEquals(List.of(reloaded), notified);
+
+        System.clearProperty("doggohub.pool.acquireTimeoutMs");
+        Configuration.reload();
+    }
+}
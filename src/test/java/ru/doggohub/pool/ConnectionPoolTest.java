@@ -0,0 +1,212 @@
+package ru.doggohub.pool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:doggostub:pool";
+
+    private final List<Connection> opened = new CopyOnWriteArrayList<>();
+    private final Driver driver = new StubDriver();
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DriverManager.registerDriver(driver);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (pool != null) {
+            pool.close();
+        }
+        DriverManager.deregisterDriver(driver);
+    }
+
+    private ConnectionPool pool(int maxSize) {
+        pool = new ConnectionPool(PoolSettings.builder()
+                .url(URL)
+                .user("doggo")
+                .password("secret")
+                .minSize(0)
+                .maxSize(maxSize)
+                .acquireTimeoutMs(50)
+                .validationIntervalMs(60_000)
+                .housekeepingPeriodMs(60_000)
+                .statementCacheSize(0)
+                .build());
+        return pool;
+    }
+
+    @Test
+    void getConnection_Exhausted_TimesOut() throws SQLException {
+        pool(1);
+        Connection first = pool.getConnection();
+
+        long started = System.nanoTime();
+        assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+        assertTrue(System.nanoTime() - started >= 40_000_000L);
+
+        first.close();
+        pool.getConnection().close();
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void close_ReturnsConnectionForReuse() throws SQLException {
+        pool(2);
+        Connection first = pool.getConnection();
+        first.close();
+
+        Connection second = pool.getConnection();
+
+        assertEquals(1, opened.size());
+        assertEquals(1, pool.getActiveCount());
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        assertThrows(SQLException.class, first::createStatement);
+    }
+
+    @Test
+    void close_Twice_ReleasesOnce() throws SQLException {
+        pool(1);
+        Connection connection = pool.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        Connection again = pool.getConnection();
+        assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+        again.close();
+    }
+
+    @Test
+    void close_ResetFails_DiscardsAndReleasesPermit() throws SQLException {
+        pool(1);
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        Connection raw = opened.get(0);
+        when(raw.getAutoCommit()).thenThrow(new SQLException("connection lost"));
+
+        connection.close();
+
+        verify(raw).close();
+        assertEquals(0, pool.getTotalCount());
+        assertEquals(0, pool.getIdleCount());
+        Connection replacement = pool.getConnection();
+        assertEquals(2, opened.size());
+        replacement.close();
+    }
+
+    @Test
+    void close_AfterAutoCommitChange_RollsBackAndRestores() throws SQLException {
+        pool(1);
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        Connection raw = opened.get(0);
+
+        connection.close();
+
+        verify(raw).rollback();
+        verify(raw).setAutoCommit(true);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void reconfigure_ShrinkWhileBorrowed_DiscardsOnReturn() throws SQLException {
+        pool(2);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+
+        pool.reconfigure(pool.getSettings().toBuilder().maxSize(1).build());
+        first.close();
+
+        verify(opened.get(0)).close();
+        assertEquals(1, pool.getTotalCount());
+        assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+
+        second.close();
+        assertEquals(1, pool.getIdleCount());
+        Connection reused = pool.getConnection();
+        assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+        reused.close();
+        assertEquals(2, opened.size());
+    }
+
+    @Test
+    void reconfigure_InvalidSizes_KeepsSettings() {
+        pool(2);
+        PoolSettings before = pool.getSettings();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> pool.reconfigure(before.toBuilder().minSize(3).maxSize(2).build()));
+        assertSame(before, pool.getSettings());
+    }
+
+    @Test
+    void getConnection_AfterClose_Throws() {
+        pool(1).close();
+
+        assertThrows(SQLException.class, () -> pool.getConnection());
+    }
+
+    private class StubDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            Connection connection = mock(Connection.class);
+            when(connection.isValid(anyInt())).thenReturn(true);
+            opened.add(connection);
+            return connection;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:doggostub:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
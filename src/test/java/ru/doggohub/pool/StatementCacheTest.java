@@ -0,0 +1,146 @@
+package ru.doggohub.pool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class StatementCacheTest {
+    @Mock
+    private Connection raw;
+    @Mock
+    private Connection owner;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(raw.prepareStatement(anyString())).thenAnswer(invocation -> {
+            PreparedStatement statement = mock(PreparedStatement.class);
+            statements.put(invocation.getArgument(0), statement);
+            return statement;
+        });
+    }
+
+    private PreparedStatement prepare(StatementCache cache, String sql) throws SQLException {
+        return cache.prepare(owner, sql, StatementCache.PLAIN);
+    }
+
+    @Test
+    void prepare_SameSqlAfterClose_HitsCache() throws SQLException {
+        StatementCache cache = new StatementCache(raw, 4, hits, misses);
+
+        prepare(cache, "SELECT 1").close();
+        PreparedStatement again = prepare(cache, "SELECT 1");
+
+        verify(raw, times(1)).prepareStatement("SELECT 1");
+        assertEquals(1, hits.sum());
+        assertEquals(1, misses.sum());
+        assertSame(owner, again.getConnection());
+        verify(statements.get("SELECT 1")).clearParameters();
+        verify(statements.get("SELECT 1"), never()).close();
+    }
+
+    @Test
+    void prepare_SameSqlWhileInUse_ReturnsUncachedStatement() throws SQLException {
+        StatementCache cache = new StatementCache(raw, 4, hits, misses);
+
+        PreparedStatement first = prepare(cache, "SELECT 1");
+        PreparedStatement second = prepare(cache, "SELECT 1");
+
+        assertNotSame(first, second);
+        verify(raw, times(2)).prepareStatement("SELECT 1");
+        assertEquals(0, hits.sum());
+        assertEquals(2, misses.sum());
+    }
+
+    @Test
+    void prepare_OverCapacity_EvictsLeastRecentlyUsed() throws SQLException {
+        StatementCache cache = new StatementCache(raw, 2, hits, misses);
+        prepare(cache, "A").close();
+        prepare(cache, "B").close();
+        prepare(cache, "A").close();
+
+        prepare(cache, "C").close();
+
+        verify(statements.get("B")).close();
+        verify(statements.get("A"), never()).close();
+        prepare(cache, "A").close();
+        assertEquals(2, hits.sum());
+        assertEquals(3, misses.sum());
+    }
+
+    @Test
+    void prepare_EvictInUse_ClosesOnReturn() throws SQLException {
+        StatementCache cache = new StatementCache(raw, 1, hits, misses);
+        PreparedStatement inUse = prepare(cache, "A");
+
+        prepare(cache, "B").close();
+
+        PreparedStatement evicted = statements.get("A");
+        verify(evicted, never()).close();
+        inUse.close();
+        verify(evicted).close();
+        verify(evicted, never()).clearParameters();
+    }
+
+    @Test
+    void close_RestoresChangedSettings() throws SQLException {
+        StatementCache cache = new StatementCache(raw, 4, hits, misses);
+        PreparedStatement handle = prepare(cache, "SELECT 1");
+        PreparedStatement statement = statements.get("SELECT 1");
+        when(statement.getQueryTimeout()).thenReturn(0);
+
+        handle.setFetchSize(500);
+        handle.setFetchSize(1000);
+        handle.setQueryTimeout(30);
+        handle.close();
+
+        verify(statement).setFetchSize(0);
+        verify(statement).setQueryTimeout(0);
+        verify(statement, never()).setMaxRows(anyInt());
+
+        prepare(cache, "SELECT 1").close();
+        verify(statement, times(1)).setFetchSize(0);
+    }
+
+    @Test
+    void close_Twice_ReturnsOnce() throws SQLException {
+        StatementCache cache = new StatementCache(raw, 4, hits, misses);
+        PreparedStatement handle = prepare(cache, "SELECT 1");
+
+        handle.close();
+        handle.close();
+
+        assertTrue(handle.isClosed());
+        verify(statements.get("SELECT 1"), times(1)).clearParameters();
+        assertThrows(SQLException.class, handle::executeQuery);
+    }
+
+    @Test
+    void close_ResetFails_DropsStatement() throws SQLException {
+        StatementCache cache = new StatementCache(raw, 4, hits, misses);
+        PreparedStatement handle = prepare(cache, "SELECT 1");
+        PreparedStatement statement = statements.get("SELECT 1");
+        doThrow(new SQLException("broken")).when(statement).clearParameters();
+
+        handle.close();
+
+        verify(statement).close();
+        prepare(cache, "SELECT 1");
+        verify(raw, times(2)).prepareStatement("SELECT 1");
+    }
+}
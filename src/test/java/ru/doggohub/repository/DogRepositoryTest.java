@@ -4,19 +4,26 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import ru.doggohub.cache.ExistenceFilter;
+import ru.doggohub.cache.OwnerDogIndex;
+import ru.doggohub.cache.RequestCache;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.dog.DogField;
+import ru.doggohub.dto.dog.DogResponseDto;
 import ru.doggohub.model.Dog;
 import ru.doggohub.model.enums.Breed;
 import ru.doggohub.model.enums.Color;
 import ru.doggohub.model.enums.Gender;
+import ru.doggohub.pool.SingleConnectionDataSource;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class DogRepositoryTest {
@@ -76,6 +83,84 @@ public class DogRepositoryTest {
         assertEquals(dog.toString(), actualDog.toString());
     }
 
+    @Test
+    public void findById_InRequestScope_QueryOnce() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDate("birth_day")).thenReturn(java.sql.Date.valueOf(dog.getBirthDay()));
+        when(resultSet.getString("breed")).thenReturn(dog.getBreed().toString());
+        when(resultSet.getString("color")).thenReturn(dog.getColor().toString());
+        when(resultSet.getString("gender")).thenReturn(dog.getGender().toString());
+        when(resultSet.getTimestamp("reg_time")).thenReturn(java.sql.Timestamp.valueOf(dog.getRegistrationTime()));
+
+        RequestCache.begin();
+        try {
+            Dog first = dogRepository.findById(dogId);
+            Dog second = dogRepository.findById(dogId);
+
+            assertSame(first, second);
+            verify(connection, times(1)).prepareStatement(anyString());
+
+            dogRepository.removeById(dogId);
+            dogRepository.findById(dogId);
+
+            verify(connection, times(3)).prepareStatement(anyString());
+        } finally {
+            RequestCache.end();
+        }
+    }
+
+    @Test
+    public void findById_MissingId_RememberedUntilSaved() throws SQLException {
+        dogRepository = new DogRepository(new SingleConnectionDataSource(connection), 0, 0,
+                new OwnerDogIndex(OwnerDogIndex.DEFAULT_MAX_OWNERS), new ExistenceFilter("dogs", 60_000, 100));
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        assertNull(dogRepository.findById(dogId));
+        assertNull(dogRepository.findById(dogId));
+        verify(preparedStatement, times(1)).executeQuery();
+
+        dogRepository.saveDogOwner(dogId, ownerId);
+        dogRepository.findById(dogId);
+
+        verify(preparedStatement, times(2)).executeQuery();
+    }
+
+    @Test
+    public void findFieldsById_MissingId_Remembered() throws SQLException {
+        dogRepository = new DogRepository(new SingleConnectionDataSource(connection), 0, 0,
+                new OwnerDogIndex(OwnerDogIndex.DEFAULT_MAX_OWNERS), new ExistenceFilter("dogs", 60_000, 100));
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+        FieldSet<DogField> fields = FieldSet.parse("id,name", DogField.class);
+
+        assertNull(dogRepository.findFieldsById(dogId, fields));
+        assertNull(dogRepository.findFieldsById(dogId, fields));
+        assertNull(dogRepository.findById(dogId));
+
+        verify(preparedStatement, times(1)).executeQuery();
+    }
+
+    @Test
+    public void findById_IdNotInFilter_SkipQuery() throws SQLException {
+        dogRepository = new DogRepository(new SingleConnectionDataSource(connection), 0, 0,
+                new OwnerDogIndex(OwnerDogIndex.DEFAULT_MAX_OWNERS), new ExistenceFilter("dogs", 0, 0));
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(dogId);
+
+        assertEquals(1, dogRepository.warmUpExistenceFilter(100));
+        assertNull(dogRepository.findById(42L));
+        assertNull(dogRepository.findViewById(42L));
+
+        verify(preparedStatement, times(1)).executeQuery();
+    }
+
     @Test
     public void findById_ThrowRuntimeException() throws SQLException {
         long id = 3L;
@@ -109,22 +194,124 @@ public class DogRepositoryTest {
     }
 
     @Test
-    public void save_ReturnDog() throws SQLException {
-        when(connection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(preparedStatement);
-        when(preparedStatement.executeUpdate()).thenReturn(1);
-        when(preparedStatement.getGeneratedKeys()).thenReturn(resultSet);
+    public void findViewById_ReturnDogWithOwner() throws SQLException {
+        Array dogIds = mock(Array.class);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong("id")).thenReturn(dog.getId());
+        when(resultSet.getString("name")).thenReturn(dog.getName());
+        when(resultSet.getDate("birth_day")).thenReturn(java.sql.Date.valueOf(dog.getBirthDay()));
+        when(resultSet.getString("breed")).thenReturn(dog.getBreed().toString());
+        when(resultSet.getString("color")).thenReturn(dog.getColor().toString());
+        when(resultSet.getString("gender")).thenReturn(dog.getGender().toString());
+        when(resultSet.getInt("weight")).thenReturn(dog.getWeight());
+        when(resultSet.getLong("owner_id")).thenReturn(ownerId);
+        when(resultSet.getString("owner_name")).thenReturn("Owner");
+        when(resultSet.getArray("owner_dog_ids")).thenReturn(dogIds);
+        when(dogIds.getArray()).thenReturn(new Long[]{dogId, 5L});
+
+        DogResponseDto actualDog = dogRepository.findViewById(dogId);
+
+        assertEquals(dog.getName(), actualDog.getName());
+        assertEquals(ownerId, actualDog.getOwner().getId());
+        assertEquals(List.of(dogId, 5L), actualDog.getOwner().getDogs());
+    }
+
+    @Test
+    public void findViewById_WithoutOwner_ReturnEmptyOwner() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDate("birth_day")).thenReturn(java.sql.Date.valueOf(dog.getBirthDay()));
+        when(resultSet.getString("breed")).thenReturn(dog.getBreed().toString());
+        when(resultSet.getString("color")).thenReturn(dog.getColor().toString());
+        when(resultSet.getString("gender")).thenReturn(dog.getGender().toString());
+        when(resultSet.wasNull()).thenReturn(true);
+
+        assertNull(dogRepository.findViewById(dogId).getOwner());
+    }
+
+    @Test
+    public void findDogIdsByOwnerIds_ReturnIdsGroupedByOwner() throws SQLException {
+        Array dogIds = mock(Array.class);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong("owner_id")).thenReturn(ownerId);
+        when(resultSet.getArray("dog_ids")).thenReturn(dogIds);
+        when(dogIds.getArray()).thenReturn(new Long[]{1L, 2L});
+
+        Map<Long, long[]> actualDogIds = dogRepository.findDogIdsByOwnerIds(new long[]{ownerId, 2L});
+
+        assertEquals(1, actualDogIds.size());
+        assertArrayEquals(new long[]{1L, 2L}, actualDogIds.get(ownerId));
+    }
+
+    @Test
+    public void findDogIdsByOwnerId_RepeatedCall_ServedFromIndex() throws SQLException {
+        Array dogIds = mock(Array.class);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong("owner_id")).thenReturn(ownerId);
+        when(resultSet.getArray("dog_ids")).thenReturn(dogIds);
+        when(dogIds.getArray()).thenReturn(new Long[]{1L, 2L});
+
+        assertArrayEquals(new long[]{1L, 2L}, dogRepository.findDogIdsByOwnerId(ownerId));
+        assertArrayEquals(new long[]{1L, 2L}, dogRepository.findDogIdsByOwnerId(ownerId));
+        verify(connection, times(1)).prepareStatement(anyString());
+
+        dogRepository.saveDogOwner(3L, ownerId);
+
+        assertArrayEquals(new long[]{1L, 2L, 3L}, dogRepository.findDogIdsByOwnerId(ownerId));
+        verify(preparedStatement, times(1)).executeQuery();
+    }
+
+    @Test
+    public void findDogIdsByOwnerIds_EmptyOwners_SkipQuery() throws SQLException {
+        Map<Long, long[]> actualDogIds = dogRepository.findDogIdsByOwnerIds(new long[0]);
+
+        assertTrue(actualDogIds.isEmpty());
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void save_ReturnViewInOneQuery() throws SQLException {
+        OwnerDogIndex ownerDogIndex = new OwnerDogIndex(OwnerDogIndex.DEFAULT_MAX_OWNERS);
+        ownerDogIndex.putIfUnchanged(ownerId, new long[]{5L}, ownerDogIndex.stamp());
+        dogRepository = new DogRepository(new SingleConnectionDataSource(connection), 0, 0, ownerDogIndex);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
         when(resultSet.next()).thenReturn(true);
-        when(resultSet.getLong(1)).thenReturn(1L);
+        mockDogRow();
+        when(resultSet.getString("owner_name")).thenReturn("Ivan");
+
+        DogResponseDto created = dogRepository.save(dog);
+
+        assertEquals(dogId, created.getId());
+        assertEquals(dog.getName(), created.getName());
+        assertEquals(ownerId, created.getOwner().getId());
+        assertEquals("Ivan", created.getOwner().getName());
+        assertEquals(List.of(dogId, 5L), created.getOwner().getDogs());
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(preparedStatement, times(1)).setLong(1, ownerId);
+        verify(preparedStatement, never()).executeUpdate();
+    }
 
-        Dog actualDog = dogRepository.save(dog);
+    @Test
+    public void save_MissingOwner_ReturnNull() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
 
-        assertEquals(actualDog, dog);
+        assertNull(dogRepository.save(dog));
     }
 
     @Test
     public void save_ThrowRuntimeException() throws SQLException {
-        when(connection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(preparedStatement);
-        when(preparedStatement.executeUpdate()).thenReturn(0);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenThrow(SQLException.class);
 
         assertThrows(RuntimeException.class, () -> {
             dogRepository.save(dog);
@@ -155,13 +342,25 @@ public class DogRepositoryTest {
     @Test
     public void removeById_Success() throws SQLException {
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        mockDogRow();
 
-        dogRepository.removeById(dogId);
+        Dog deletedDog = dogRepository.removeById(dogId);
 
-        verify(preparedStatement, times(1)).executeUpdate();
+        assertEquals(dog, deletedDog);
         verify(preparedStatement, times(1)).setLong(1, dogId);
     }
 
+    @Test
+    public void removeById_MissingDog_ReturnNull() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        assertNull(dogRepository.removeById(dogId));
+    }
+
     @Test
     public void removeByDogId_ThrowRuntimeException() throws SQLException {
         when(connection.prepareStatement(anyString())).thenThrow(SQLException.class);
@@ -172,13 +371,32 @@ public class DogRepositoryTest {
     }
 
     @Test
-    public void update_ReturnUpdatedDog() throws SQLException {
+    public void update_ReturnUpdatedView() throws SQLException {
+        OwnerDogIndex ownerDogIndex = new OwnerDogIndex(OwnerDogIndex.DEFAULT_MAX_OWNERS);
+        ownerDogIndex.putIfUnchanged(ownerId, new long[]{dogId}, ownerDogIndex.stamp());
+        dogRepository = new DogRepository(new SingleConnectionDataSource(connection), 0, 0, ownerDogIndex);
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
-        when(preparedStatement.executeUpdate()).thenReturn(1);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        mockDogRow();
+        when(resultSet.getString("owner_name")).thenReturn("Ivan");
+
+        DogResponseDto updated = dogRepository.update(Dog.builder().id(dogId).name(dog.getName()).build());
 
-        Dog updatedDog = dogRepository.update(dog);
+        assertEquals(dog.getName(), updated.getName());
+        assertEquals(dog.getWeight(), updated.getWeight());
+        assertEquals(List.of(dogId), updated.getOwner().getDogs());
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(preparedStatement, times(1)).setObject(2, null, Types.INTEGER);
+    }
+
+    @Test
+    public void update_MissingDog_ReturnNull() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
 
-        assertEquals(dog, updatedDog);
+        assertNull(dogRepository.update(dog));
     }
 
     @Test
@@ -189,4 +407,16 @@ public class DogRepositoryTest {
             dogRepository.update(dog);
         });
     }
-}
\ No newline at end of file
+
+    private void mockDogRow() throws SQLException {
+        when(resultSet.getLong("id")).thenReturn(dog.getId());
+        when(resultSet.getString("name")).thenReturn(dog.getName());
+        when(resultSet.getDate("birth_day")).thenReturn(java.sql.Date.valueOf(dog.getBirthDay()));
+        when(resultSet.getString("breed")).thenReturn(dog.getBreed().toString());
+        when(resultSet.getString("color")).thenReturn(dog.getColor().toString());
+        when(resultSet.getString("gender")).thenReturn(dog.getGender().toString());
+        when(resultSet.getInt("weight")).thenReturn(dog.getWeight());
+        when(resultSet.getTimestamp("reg_time")).thenReturn(java.sql.Timestamp.valueOf(dog.getRegistrationTime()));
+        when(resultSet.getObject("owner_id", Long.class)).thenReturn(dog.getOwnerId());
+    }
+}
@@ -4,15 +4,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import ru.doggohub.cache.ExistenceFilter;
 import ru.doggohub.model.HealthStory;
+import ru.doggohub.pool.SingleConnectionDataSource;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -87,6 +101,119 @@ class HealthStoryRepositoryTest {
         assertThrows(RuntimeException.class, () -> healthStoryRepository.save(healthStory));
     }
 
+    @Test
+    public void save_GroupCommit_InsertFromArrays() throws SQLException {
+        HealthStoryRepository groupCommitRepository = new HealthStoryRepository(
+                new SingleConnectionDataSource(connection), 0, 0, new ExistenceFilter("healthStories", 0, 0),
+                1_000, 16, 100);
+        when(connection.prepareStatement(contains("WITH ORDINALITY"))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true).thenReturn(false);
+        when(resultSet.getLong("id")).thenReturn(5L);
+        when(resultSet.getLong("ordinality")).thenReturn(1L);
+        HealthStory story = new HealthStory(null, dogId, "Прививка от бешенства", LocalDate.of(2024, 4, 1));
+
+        try {
+            HealthStory savedStory = groupCommitRepository.save(story);
+
+            assertEquals(5L, savedStory.getId());
+            verify(preparedStatement, never()).executeUpdate();
+        } finally {
+            groupCommitRepository.shutdown();
+        }
+    }
+
+    @Test
+    public void save_GroupCommit_MapsIdsByOrdinality() throws Exception {
+        HealthStoryRepository groupCommitRepository = new HealthStoryRepository(
+                new SingleConnectionDataSource(connection), 0, 0, new ExistenceFilter("healthStories", 0, 0),
+                30_000_000, 2, 100);
+        when(connection.prepareStatement(contains("WITH ORDINALITY"))).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong("ordinality")).thenReturn(2L, 1L);
+        when(resultSet.getLong("id")).thenReturn(21L, 20L);
+        HealthStory first = new HealthStory(null, dogId, "Осмотр", LocalDate.of(2024, 4, 1));
+        HealthStory second = new HealthStory(null, dogId, "Прививка", LocalDate.of(2024, 4, 2));
+
+        try {
+            CompletableFuture<HealthStory> savedFirst = CompletableFuture.supplyAsync(() -> groupCommitRepository.save(first));
+            while (groupCommitRepository.getGroupCommit().getQueuedCount() == 0 && !savedFirst.isDone()) {
+                Thread.onSpinWait();
+            }
+            groupCommitRepository.save(second);
+            savedFirst.get(5, TimeUnit.SECONDS);
+
+            assertEquals(20L, first.getId());
+            assertEquals(21L, second.getId());
+        } finally {
+            groupCommitRepository.shutdown();
+        }
+    }
+
+    private CopyIn mockCopyIn(Statement statement) throws SQLException {
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        CopyIn copyIn = mock(CopyIn.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+        when(connection.createStatement()).thenReturn(statement);
+        return copyIn;
+    }
+
+    @Test
+    public void copyIn_StagesAndReportsOnlyInsertedRows() throws SQLException {
+        Statement statement = mock(Statement.class);
+        CopyIn copyIn = mockCopyIn(statement);
+        when(statement.executeQuery(contains("FROM health_story_load RETURNING id, dog_id"))).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong("id")).thenReturn(10L, 11L);
+        when(resultSet.getLong("dog_id")).thenReturn(1L, 2L);
+        List<HealthStory> loaded = new ArrayList<>();
+
+        long rows = healthStoryRepository.copyIn(List.of(
+                new HealthStory(null, 1L, "Осмотр \"плановый\"", LocalDate.of(2024, 4, 1)),
+                new HealthStory(null, 2L, "Прививка", LocalDate.of(2024, 4, 2))).iterator(), loaded::add);
+
+        assertEquals(2, rows);
+        assertEquals(List.of(10L, 11L), loaded.stream().map(HealthStory::getId).toList());
+        assertEquals(List.of(1L, 2L), loaded.stream().map(HealthStory::getDogId).toList());
+        verify(statement).execute(contains("CREATE TEMPORARY TABLE health_story_load"));
+        verify(connection.unwrap(PGConnection.class).getCopyAPI()).copyIn(contains("COPY health_story_load"));
+        verify(copyIn).writeToCopy(any(byte[].class), eq(0), anyInt());
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+        verify(connection, never()).prepareStatement(contains("max(id)"));
+    }
+
+    @Test
+    public void copyIn_SourceFails_RollsBackWithoutEvents() throws SQLException {
+        Statement statement = mock(Statement.class);
+        CopyIn copyIn = mockCopyIn(statement);
+        when(copyIn.isActive()).thenReturn(true);
+        Iterator<HealthStory> failing = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public HealthStory next() {
+                throw new IllegalStateException("Битый файл");
+            }
+        };
+        List<HealthStory> loaded = new ArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> healthStoryRepository.copyIn(failing, loaded::add));
+
+        verify(copyIn).cancelCopy();
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(statement, never()).executeQuery(anyString());
+        assertTrue(loaded.isEmpty());
+    }
+
     @Test
     public void findById_ReturnHistory() throws SQLException {
         when(resultSet.next()).thenReturn(true);
@@ -4,8 +4,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import ru.doggohub.cache.OwnerDogIndex;
 import ru.doggohub.model.User;
+import ru.doggohub.pool.SingleConnectionDataSource;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -14,8 +17,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class UserRepositoryTest {
@@ -79,6 +86,26 @@ class UserRepositoryTest {
         assertEquals(user, result);
     }
 
+    @Test
+    public void findById_WithBatching_QueryByIdArray() throws SQLException {
+        userRepository = new UserRepository(new SingleConnectionDataSource(connection), 100, 16,
+                new OwnerDogIndex(OwnerDogIndex.DEFAULT_MAX_OWNERS));
+        Array ids = mock(Array.class);
+        when(connection.createArrayOf(eq("bigint"), any())).thenReturn(ids);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong("id")).thenReturn(userId);
+        when(resultSet.getString("name")).thenReturn(user.getName());
+        when(resultSet.getString("email")).thenReturn(user.getEmail());
+
+        User result = userRepository.findById(userId);
+
+        assertEquals(user, result);
+        verify(preparedStatement).setArray(1, ids);
+        assertEquals(1, userRepository.getBatchLoader().getBatchCount());
+    }
+
     @Test
     public void findById_ThrowRuntimeException() throws SQLException {
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
@@ -129,6 +156,24 @@ class UserRepositoryTest {
         assertThrows(RuntimeException.class, () -> userRepository.update(user));
     }
 
+    @Test
+    public void existsByEmail_ReturnTrue() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+
+        assertTrue(userRepository.existsByEmail("mail@mail.ru"));
+        verify(preparedStatement).setString(1, "mail@mail.ru");
+    }
+
+    @Test
+    public void existsByEmail_ThrowRuntimeException() throws SQLException {
+        when(connection.prepareStatement(anyString())).thenThrow(SQLException.class);
+
+        assertThrows(RuntimeException.class, () -> userRepository.existsByEmail("mail@mail.ru"));
+    }
+
     @Test
     public void findOwnerByDogId_WhenOwnerExists_ShouldReturnOwner() throws SQLException {
         user.setDogIds(List.of(1L));
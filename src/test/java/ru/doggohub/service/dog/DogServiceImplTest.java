@@ -4,6 +4,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import ru.doggohub.cache.ChangeEvents;
+import ru.doggohub.cache.DogViewCache;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.dog.DogBatchResultDto;
+import ru.doggohub.dto.dog.DogField;
 import ru.doggohub.dto.dog.DogRequestDto;
 import ru.doggohub.dto.dog.DogResponseDto;
 import ru.doggohub.exception.NotFoundException;
@@ -16,15 +21,27 @@ import ru.doggohub.model.enums.Color;
 import ru.doggohub.model.enums.Gender;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.UserRepository;
+import ru.doggohub.util.SingleFlight;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -62,20 +79,19 @@ class DogServiceImplTest {
         User owner = new User();
         owner.setId(ownerId);
 
-        when(userRepository.findById(ownerId)).thenReturn(owner);
-
         Dog dog = DogMapper.fromDto(dogRequestDto, ownerId);
         dog.setId(1L);
         dog.setOwnerId(ownerId);
         DogResponseDto expectedDog = DogMapper.toDto(dog, owner);
 
-        when(dogRepository.save(any(Dog.class))).thenReturn(dog);
-        when(userRepository.findOwnerByDogId(dogId)).thenReturn(owner);
+        when(dogRepository.save(any(Dog.class))).thenReturn(expectedDog);
 
         DogResponseDto dogResponseDto = dogService.add(dogRequestDto);
 
         assertNotNull(dogResponseDto);
         assertEquals(expectedDog, dogResponseDto);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).findOwnerByDogId(anyLong());
     }
 
     @Test
@@ -117,6 +133,7 @@ class DogServiceImplTest {
                 .map((Dog dogx) -> DogMapper.toDto(dogx, owner))
                 .collect(toList());
 
+        when(dogRepository.findDogIdsByOwnerId(ownerId)).thenReturn(new long[]{1L, 2L});
         when(dogRepository.findAllByOwnerId(ownerId)).thenReturn(dogs);
 
         List<DogResponseDto> dogResponseDtos = dogService.getByOwnerId(ownerId);
@@ -142,8 +159,7 @@ class DogServiceImplTest {
 
         DogResponseDto expectedDog = DogMapper.toDto(dog, owner);
 
-        when(dogRepository.findById(dogId)).thenReturn(dog);
-        when(userRepository.findOwnerByDogId(dogId)).thenReturn(owner);
+        when(dogRepository.findViewById(dogId)).thenReturn(expectedDog);
 
         DogResponseDto dogResponseDto = dogService.getById(dogId);
 
@@ -151,17 +167,88 @@ class DogServiceImplTest {
         assertEquals(expectedDog, dogResponseDto);
     }
 
+    @Test
+    void getDogByIdTest_CachedUntilUpdate() {
+        User owner = new User();
+        owner.setId(ownerId);
+
+        Dog dog = DogMapper.fromDto(dogRequestDto, ownerId);
+        dog.setId(dogId);
+        DogResponseDto expectedDog = DogMapper.toDto(dog, owner);
+
+        when(dogRepository.findViewById(dogId)).thenReturn(expectedDog);
+        when(dogRepository.findById(dogId)).thenReturn(dog);
+        when(dogRepository.update(any(Dog.class))).thenReturn(expectedDog);
+
+        assertEquals(expectedDog, dogService.getById(dogId));
+        assertEquals(expectedDog, dogService.getById(dogId));
+        verify(dogRepository, times(1)).findViewById(dogId);
+
+        dogService.update(dogRequestDto, dogId);
+        dogService.getById(dogId);
+        verify(dogRepository, times(2)).findViewById(dogId);
+    }
+
+    @Test
+    void getDogByIdTest_ConcurrentCalls_LoadOnce() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        dogService = new DogServiceImpl(userRepository, dogRepository, singleFlight,
+                new DogViewCache(DogViewCache.DEFAULT_MAX_SIZE, DogViewCache.SizeUnit.ENTRIES), new ChangeEvents());
+
+        Dog dog = DogMapper.fromDto(dogRequestDto, ownerId);
+        dog.setId(dogId);
+        DogResponseDto expectedDog = DogMapper.toDto(dog, new User());
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dogRepository.findViewById(dogId)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return expectedDog;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<DogResponseDto> first = executor.submit(() -> dogService.getById(dogId));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            Future<DogResponseDto> second = executor.submit(() -> dogService.getById(dogId));
+            while (singleFlight.getCollapsedCount() == 0 && !second.isDone()) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals(expectedDog, first.get(5, TimeUnit.SECONDS));
+            assertEquals(expectedDog, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, singleFlight.getCollapsedCount());
+            verify(dogRepository, times(1)).findViewById(dogId);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void getDogByIdTest_ExpectExceptions_WithInvalidId() {
         long negativeDogId = -1L;
 
-        when(dogRepository.findById(dogId)).thenReturn(null);
+        when(dogRepository.findViewById(dogId)).thenReturn(null);
         assertThrows(NotFoundException.class, () -> dogService.getById(dogId));
 
-        when(dogRepository.findById(negativeDogId)).thenReturn(null);
         assertThrows(ValidationException.class, () -> dogService.getById(negativeDogId));
     }
 
+    @Test
+    void getDogByIdTest_WithoutOwner_ThrowNotFoundException() {
+        Dog dog = DogMapper.fromDto(dogRequestDto, ownerId);
+        dog.setId(dogId);
+        DogResponseDto view = DogMapper.toDto(dog, new User());
+        view.setOwner(null);
+
+        when(dogRepository.findViewById(dogId)).thenReturn(view);
+
+        assertThrows(NotFoundException.class, () -> dogService.getById(dogId));
+    }
+
     @Test
     void updateDogTest_Successful() {
         String newName = "NewName";
@@ -169,20 +256,21 @@ class DogServiceImplTest {
         User owner = new User();
         owner.setId(ownerId);
 
-        Dog dog = DogMapper.fromDto(dogRequestDto, owner.getId());
-        dog.setId(dogId);
-
-        when(dogRepository.findById(dogId)).thenReturn(dog);
-        when(userRepository.findOwnerByDogId(dogId)).thenReturn(owner);
-        when(dogRepository.update(any(Dog.class))).thenReturn(dog);
-
         dogRequestDto.setName(newName);
         dogRequestDto.setWeight(10);
+
+        Dog updated = DogMapper.fromDto(dogRequestDto, owner.getId());
+        updated.setId(dogId);
+
+        when(dogRepository.update(any(Dog.class))).thenReturn(DogMapper.toDto(updated, owner));
+
         DogResponseDto dogResponseDto = dogService.update(dogRequestDto, dogId);
 
         assertNotNull(dogResponseDto);
         assertEquals(newName, dogResponseDto.getName());
         assertEquals(10, dogResponseDto.getWeight());
+        verify(dogRepository, never()).findById(dogId);
+        verify(userRepository, never()).findOwnerByDogId(dogId);
     }
 
     @Test
@@ -191,4 +279,95 @@ class DogServiceImplTest {
 
         assertThrows(NotFoundException.class, () -> dogService.update(dogRequestDto, dogId));
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateDogTest_MissingDog_ThrowNotFoundException() {
+        when(dogRepository.update(any(Dog.class))).thenReturn(null);
+
+        assertThrows(NotFoundException.class, () -> dogService.update(dogRequestDto, dogId));
+    }
+
+    @Test
+    void deleteByIdTest_MissingDog_ThrowNotFoundException() {
+        when(dogRepository.removeById(dogId)).thenReturn(null);
+
+        assertThrows(NotFoundException.class, () -> dogService.deleteById(dogId));
+    }
+
+    @Test
+    void deleteByIdTest_Successful() {
+        Dog deleted = DogMapper.fromDto(dogRequestDto, ownerId);
+        deleted.setId(dogId);
+
+        when(dogRepository.removeById(dogId)).thenReturn(deleted);
+
+        dogService.deleteById(dogId);
+
+        verify(dogRepository, times(1)).removeById(dogId);
+        verify(dogRepository, never()).findById(dogId);
+    }
+
+    @Test
+    void getByIdTest_FieldsWithoutOwner_SkipOwnerQueries() {
+        FieldSet<DogField> fields = FieldSet.parse("name,breed", DogField.class);
+        Dog dog = Dog.builder().id(dogId).name("Vegas").breed(Breed.LABRODOR).build();
+        when(dogRepository.findFieldsById(dogId, fields)).thenReturn(dog);
+
+        DogResponseDto actual = dogService.getById(dogId, fields);
+
+        assertEquals(DogResponseDto.builder().id(dogId).name("Vegas").breed(Breed.LABRODOR).build(), actual);
+        verify(userRepository, never()).findOwnerByDogId(anyLong());
+        verify(dogRepository, never()).findDogIdsByOwnerId(anyLong());
+        verify(dogRepository, never()).findViewById(anyLong());
+    }
+
+    @Test
+    void getByIdTest_UnknownField_ThrowValidationException() {
+        assertThrows(ValidationException.class, () -> FieldSet.parse("id,tail", DogField.class));
+    }
+
+    @Test
+    void addBatchTest_Success_SaveAllInOneCall() {
+        User owner = new User();
+        owner.setId(ownerId);
+        when(userRepository.findAllByIds(any(long[].class))).thenReturn(Map.of(ownerId, owner));
+        doAnswer(invocation -> {
+            List<Dog> dogs = invocation.getArgument(0);
+            long id = 10;
+            for (Dog dog : dogs) {
+                dog.setId(id++);
+            }
+            return null;
+        }).when(dogRepository).saveAll(any());
+
+        DogBatchResultDto result = dogService.addBatch(List.of(dogRequestDto, dogRequestDto));
+
+        assertFalse(result.hasErrors());
+        assertEquals(List.of(10L, 11L), result.getIds());
+        verify(dogRepository, times(1)).saveAll(any());
+        verify(dogRepository, never()).save(any(Dog.class));
+    }
+
+    @Test
+    void addBatchTest_InvalidItems_ReportErrorsAndSaveNothing() {
+        DogRequestDto unknownOwner = DogRequestDto.builder()
+                .name("Legas")
+                .ownerId(2L)
+                .color(Color.BLACK)
+                .breed(Breed.PUDEL)
+                .gender(Gender.FEMALE)
+                .birthDay(LocalDate.of(2021, 3, 1))
+                .weight(10)
+                .build();
+        DogRequestDto incomplete = DogRequestDto.builder().name("Vegas").ownerId(ownerId).build();
+        when(userRepository.findAllByIds(any(long[].class))).thenReturn(Map.of(ownerId, new User()));
+
+        DogBatchResultDto result = dogService.addBatch(List.of(dogRequestDto, unknownOwner, incomplete));
+
+        assertNull(result.getIds());
+        assertEquals(List.of(
+                new DogBatchResultDto.ItemError(1, "Пользователь с ID=2 не найден"),
+                new DogBatchResultDto.ItemError(2, "Все поля для записи должны быть заполнены")), result.getErrors());
+        verify(dogRepository, never()).saveAll(any());
+    }
+}
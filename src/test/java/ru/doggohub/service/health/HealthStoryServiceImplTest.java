@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import ru.doggohub.dto.health.HealthImportResultDto;
 import ru.doggohub.dto.health.HealthStoryRequestDto;
 import ru.doggohub.dto.health.HealthStoryResponseDto;
 import ru.doggohub.exception.NotFoundException;
@@ -14,11 +15,16 @@ import ru.doggohub.model.HealthStory;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.HealthStoryRepository;
 
+import java.io.StringReader;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 
@@ -42,6 +48,7 @@ class HealthStoryServiceImplTest {
         HealthStoryRequestDto requestDto = HealthStoryRequestDto.builder().dogId(1L).text("Cough with blood").build();
         Dog dog = Dog.builder().id(1L).build();
         HealthStory healthStory = HealthStoryMapper.fromDto(requestDto, dog);
+        healthStory.setId(1L);
         HealthStoryResponseDto expectedStory = HealthStoryMapper.toDto(healthStory);
 
         when(dogRepository.findById(1L)).thenReturn(dog);
@@ -144,4 +151,33 @@ class HealthStoryServiceImplTest {
 
         assertThrows(NotFoundException.class, () -> healthService.deleteById(1L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void importStoriesTest_KeepVisitDates_RejectUnknownDogs() throws Exception {
+        String csv = "dogId,visit,text\n"
+                + "1,2015-03-01,\"Прививка, \"\"Нобивак\"\"\"\n"
+                + "2,2015-03-02,Осмотр\n"
+                + "1,2016-07-10,Осмотр\n";
+        List<HealthStory> copied = new ArrayList<>();
+        when(dogRepository.findAllIds()).thenReturn(new long[]{1L});
+        when(healthStoryRepository.copyIn(any(), any())).thenAnswer(invocation -> {
+            Iterator<HealthStory> stories = invocation.getArgument(0);
+            Consumer<HealthStory> loaded = invocation.getArgument(1);
+            stories.forEachRemaining(copied::add);
+            for (int i = 0; i < copied.size(); i++) {
+                loaded.accept(HealthStory.builder().id(i + 1L).dogId(copied.get(i).getDogId()).build());
+            }
+            return (long) copied.size();
+        });
+
+        HealthImportResultDto result = healthService.importStories(new StringReader(csv), HealthImportFormat.CSV);
+
+        assertEquals(2, result.getLoaded());
+        assertEquals(1, result.getRejected());
+        assertEquals(List.of(new HealthImportResultDto.RowError(3, "Собака с ID=2 не найдена")), result.getErrors());
+        assertEquals(LocalDate.of(2015, 3, 1), copied.get(0).getVisit());
+        assertEquals("Прививка, \"Нобивак\"", copied.get(0).getText());
+        assertEquals(LocalDate.of(2016, 7, 10), copied.get(1).getVisit());
+        verify(dogRepository, never()).findById(anyLong());
+    }
+}
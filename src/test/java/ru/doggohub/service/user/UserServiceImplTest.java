@@ -4,18 +4,23 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import ru.doggohub.dto.FieldSet;
+import ru.doggohub.dto.Page;
+import ru.doggohub.dto.user.UserField;
 import ru.doggohub.dto.user.UserRequestDto;
 import ru.doggohub.dto.user.UserResponseDto;
 import ru.doggohub.exception.NotFoundException;
 import ru.doggohub.exception.ValidationException;
 import ru.doggohub.mapper.UserMapper;
-import ru.doggohub.model.Dog;
 import ru.doggohub.model.User;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.UserRepository;
+import ru.doggohub.util.PageCursor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,6 +36,7 @@ public class UserServiceImplTest {
 
     private UserServiceImpl userService;
     private final long userId = 1L;
+    private final FieldSet<UserField> all = FieldSet.all(UserField.class);
 
     @BeforeEach
     void setUp() {
@@ -54,6 +60,16 @@ public class UserServiceImplTest {
         assertEquals(expectedUser, actualUser);
     }
 
+    @Test
+    void addUserTest_EmailNormalizedOnWrite() {
+        User saved = User.builder().id(userId).name("User1").email("popo@yan.ru").build();
+        when(userRepository.save(any(User.class))).thenReturn(saved);
+
+        userService.addUser(new UserRequestDto("User1", "  Popo@Yan.RU "));
+
+        verify(userRepository).save(argThat(user -> "popo@yan.ru".equals(user.getEmail())));
+    }
+
     @Test
     void addUserTest_InvalidEmail_ThrowValidationException() {
         UserRequestDto requestDto = new UserRequestDto("User1", "");
@@ -62,18 +78,36 @@ public class UserServiceImplTest {
     }
 
     @Test
-    void getUserByIdTest_Success() {
-        List<Dog> dogs = List.of(
-                Dog.builder().id(1L).name("Dog1").build(),
-                Dog.builder().id(2L).name("Dog2").build()
-        );
+    void addUserTest_DuplicateEmail_ThrowValidationException() {
+        UserRequestDto requestDto = new UserRequestDto("User1", " Popo@Yan.ru");
+
+        when(userRepository.existsByEmail("popo@yan.ru")).thenReturn(true);
+
+        assertThrows(ValidationException.class, () -> userService.addUser(requestDto));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void addUserTest_RepeatedEmail_RejectedWithoutDatabase() {
+        UserRequestDto requestDto = new UserRequestDto("User1", "popo@yan.ru");
+        User user = UserMapper.fromDto(requestDto);
+        user.setId(userId);
+
+        when(userRepository.save(any(User.class))).thenReturn(user);
+        userService.addUser(requestDto);
 
+        assertThrows(ValidationException.class, () -> userService.addUser(new UserRequestDto("User2", "POPO@yan.ru")));
+        verify(userRepository, times(1)).existsByEmail(anyString());
+    }
+
+    @Test
+    void getUserByIdTest_Success() {
         User user = User.builder().id(1L).name("User1").email("popo@yan.ru").build();
 
         user.setDogIds(List.of(1L, 2L));
 
         when(userRepository.findById(userId)).thenReturn(user);
-        when(dogRepository.findAllByOwnerId(userId)).thenReturn(dogs);
+        when(dogRepository.findDogIdsByOwnerId(userId)).thenReturn(new long[]{1L, 2L});
 
         UserResponseDto actualUserDto = userService.getById(userId);
 
@@ -85,12 +119,10 @@ public class UserServiceImplTest {
 
     @Test
     void getUserByIdTest_Success_WithEmptyDogs() {
-        List<Dog> emptyDogsList = List.of();
-
         User user = User.builder().id(userId).name("User1").email("popo@yan.ru").build();
 
         when(userRepository.findById(userId)).thenReturn(user);
-        when(dogRepository.findAllByOwnerId(userId)).thenReturn(emptyDogsList);
+        when(dogRepository.findDogIdsByOwnerId(userId)).thenReturn(new long[0]);
 
         UserResponseDto actualUserDto = userService.getById(userId);
 
@@ -171,7 +203,7 @@ public class UserServiceImplTest {
                 .toList();
 
         when(userRepository.findAll()).thenReturn(users);
-        when(userService.getListDogIds(anyLong())).thenReturn(List.of());
+        when(dogRepository.findDogIdsByOwnerIds(any(long[].class))).thenReturn(Map.of());
 
         List<UserResponseDto> actualUserDtos = userService.getAll();
 
@@ -189,4 +221,74 @@ public class UserServiceImplTest {
         assertNotNull(actualUserDtos);
         assertTrue(actualUserDtos.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamAllTest_PassesUsersWithDogIds() {
+        List<User> users = List.of(
+                User.builder().id(1L).name("User1").email("popo1@yan.ru").dogIds(List.of(3L, 4L)).build(),
+                User.builder().id(2L).name("User2").email("popo2@yan.ru").dogIds(List.of()).build()
+        );
+        doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(0);
+            users.forEach(action);
+            return null;
+        }).when(userRepository).streamAllWithDogIds(any());
+
+        List<UserResponseDto> actualUserDtos = new ArrayList<>();
+        userService.streamAll(actualUserDtos::add);
+
+        assertIterableEquals(users.stream().map(UserMapper::toDto).toList(), actualUserDtos);
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void getPageTest_ExtraRow_ReturnsNextCursor() {
+        List<User> users = List.of(
+                User.builder().id(5L).name("User5").email("popo5@yan.ru").dogIds(List.of(3L)).build(),
+                User.builder().id(7L).name("User7").email("popo7@yan.ru").dogIds(List.of()).build(),
+                User.builder().id(9L).name("User9").email("popo9@yan.ru").dogIds(List.of()).build()
+        );
+        when(userRepository.findPage(all, 4L, 3)).thenReturn(users);
+
+        Page<UserResponseDto> page = userService.getPage(all, PageCursor.of(4L), 2);
+
+        assertIterableEquals(users.subList(0, 2).stream().map(UserMapper::toDto).toList(), page.getItems());
+        assertEquals(PageCursor.of(7L), page.getNextCursor());
+        assertEquals(PageCursor.of(7L), PageCursor.decode(page.getNextCursor().encode()));
+    }
+
+    @Test
+    void getPageTest_LastPage_WithoutCursor() {
+        when(userRepository.findPage(all, 0L, 11)).thenReturn(List.of(
+                User.builder().id(1L).name("User1").email("popo1@yan.ru").dogIds(List.of()).build()));
+
+        Page<UserResponseDto> page = userService.getPage(all, null, 10);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getPageTest_LimitOutOfRange_ThrowValidationException() {
+        assertThrows(ValidationException.class, () -> userService.getPage(all, null, 0));
+        assertThrows(ValidationException.class, () -> userService.getPage(all, null, Page.MAX_LIMIT + 1));
+        verify(userRepository, never()).findPage(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void streamAllTest_FieldsWithoutDogs_OmitDogList() {
+        FieldSet<UserField> fields = FieldSet.parse("name", UserField.class);
+        User user = User.builder().id(1L).name("User1").dogIds(null).build();
+        doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(1);
+            action.accept(user);
+            return null;
+        }).when(userRepository).streamAll(eq(fields), any());
+
+        List<UserResponseDto> actualUserDtos = new ArrayList<>();
+        userService.streamAll(fields, actualUserDtos::add);
+
+        assertEquals(List.of(UserResponseDto.builder().id(1L).name("User1").build()), actualUserDtos);
+        verify(userRepository, never()).streamAllWithDogIds(any());
+    }
+}
@@ -0,0 +1,156 @@
+package ru.doggohub.servlet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.doggohub.cache.ChangeType;
+import ru.doggohub.cache.ResponseCache;
+import ru.doggohub.cache.VersionTracker;
+import ru.doggohub.dto.user.UserResponseDto;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachedGetTest {
+    private static final String RESOURCE = "user?id=1";
+
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private HttpServletResponse cachedResponse;
+    private final StringWriter written = new StringWriter();
+    private final ByteArrayOutputStream cachedBody = new ByteArrayOutputStream();
+    private final VersionTracker versions = new VersionTracker(100);
+    private final ResponseCache cache = new ResponseCache(100_000);
+    private final CachedGet responses = new CachedGet(versions, cache);
+    private final VersionTracker.Key owner = VersionTracker.owner(1);
+    private final UserResponseDto user = UserResponseDto.builder()
+            .id(1L)
+            .name("Borya Borisovich Borisov")
+            .dogs(List.of(10L, 11L, 12L))
+            .build();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        when(response.getWriter()).thenReturn(new PrintWriter(written, true));
+        when(cachedResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                cachedBody.write(b);
+            }
+        });
+    }
+
+    private void writeFromDatabase() throws IOException {
+        long sequence = versions.sequence();
+        ResponseBody body = ResponseBody.open(response, Representation.JSON);
+        responses.write(response, body, RESOURCE, sequence, user, UserResponseDto.class, owner);
+    }
+
+    @Test
+    void writeIfFresh_AfterWrite_ServesCachedBytes() throws IOException {
+        writeFromDatabase();
+
+        boolean served = responses.writeIfFresh(request, cachedResponse, Representation.JSON, RESOURCE, owner);
+
+        assertTrue(served);
+        assertEquals(written.toString(), cachedBody.toString(StandardCharsets.UTF_8));
+        verify(cachedResponse).setContentLength(cachedBody.size());
+        verify(cachedResponse).setHeader(eq("ETag"), anyString());
+    }
+
+    @Test
+    void writeIfFresh_AfterBump_CachedBodyStale() throws IOException {
+        writeFromDatabase();
+        long cachedVersion = versions.validator(owner).getVersion();
+
+        versions.ownerChanged(1, ChangeType.UPDATED);
+
+        assertFalse(responses.writeIfFresh(request, cachedResponse, Representation.JSON, RESOURCE, owner));
+        assertEquals(0, cachedBody.size());
+        assertNotNull(cache.get(RESOURCE, cachedVersion));
+        assertNull(cache.get(RESOURCE, versions.validator(owner).getVersion()));
+    }
+
+    @Test
+    void writeIfFresh_OtherRepresentation_Miss() throws IOException {
+        writeFromDatabase();
+
+        assertFalse(responses.writeIfFresh(request, cachedResponse, Representation.CBOR, RESOURCE, owner));
+    }
+
+    @Test
+    void writeIfFresh_Compressing_ServesCompressedVariantOnce() throws IOException {
+        writeFromDatabase();
+        long version = versions.validator(owner).getVersion();
+        CompressingResponse compressing = new CompressingResponse(cachedResponse, ContentCoding.GZIP, 16);
+
+        assertTrue(responses.writeIfFresh(request, compressing, Representation.JSON, RESOURCE, owner));
+
+        byte[] compressed = cache.get(RESOURCE + ";gzip", version);
+        assertNotNull(compressed);
+        assertArrayEquals(compressed, cachedBody.toByteArray());
+        verify(cachedResponse).setHeader("Content-Encoding", "gzip");
+        verify(cachedResponse).setHeader(eq("ETag"), endsWith("-gzip\""));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(cachedBody.toByteArray()))) {
+            assertEquals(written.toString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        cachedBody.reset();
+        assertTrue(responses.writeIfFresh(request, new CompressingResponse(cachedResponse, ContentCoding.GZIP, 16),
+                Representation.JSON, RESOURCE, owner));
+        assertSame(compressed, cache.get(RESOURCE + ";gzip", version));
+        assertArrayEquals(compressed, cachedBody.toByteArray());
+    }
+
+    @Test
+    void writeIfFresh_CompressedETag_NotModified() throws IOException {
+        writeFromDatabase();
+        String etag = ContentCoding.GZIP.etag(Representation.JSON.etag(versions.validator(owner)));
+        when(request.getHeader("If-None-Match")).thenReturn(etag);
+
+        assertTrue(responses.writeIfFresh(request, cachedResponse, Representation.JSON, RESOURCE, owner));
+
+        verify(cachedResponse).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(cachedResponse).setHeader("ETag", etag);
+        assertEquals(0, cachedBody.size());
+    }
+
+    @Test
+    void write_ChangedDuringRead_NotCached() throws IOException {
+        long sequence = versions.sequence();
+        versions.ownerChanged(1, ChangeType.UPDATED);
+
+        responses.write(response, ResponseBody.open(response, Representation.JSON), RESOURCE, sequence,
+                user, UserResponseDto.class, owner);
+
+        assertFalse(responses.writeIfFresh(request, cachedResponse, Representation.JSON, RESOURCE, owner));
+        verify(response, never()).setHeader(eq("ETag"), anyString());
+    }
+}
@@ -0,0 +1,237 @@
+package ru.doggohub.servlet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CompressingResponseTest {
+    private static final byte[] BODY = "{\"name\":\"Vegas\",\"breed\":\"LABRODOR\"}\n".repeat(50)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private WriteListener writeListener;
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    private ServletOutputStream rawStream;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        rawStream = spy(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+
+            @Override
+            public void write(int b) {
+                sent.write(b);
+            }
+        });
+        when(response.getOutputStream()).thenReturn(rawStream);
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+    }
+
+    @Test
+    void finish_Gzip_WritesHeaderCrcAndLength() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, 100);
+
+        compressing.getOutputStream().write(BODY);
+        compressing.finish();
+
+        byte[] gzip = sent.toByteArray();
+        assertEquals(0x1f, gzip[0] & 0xff);
+        assertEquals(0x8b, gzip[1] & 0xff);
+        assertEquals(8, gzip[2]);
+        CRC32 crc = new CRC32();
+        crc.update(BODY);
+        assertEquals((int) crc.getValue(), littleEndianInt(gzip, gzip.length - 8));
+        assertEquals(BODY.length, littleEndianInt(gzip, gzip.length - 4));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(BODY, in.readAllBytes());
+        }
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response, never()).setContentLengthLong(anyLong());
+    }
+
+    @Test
+    void finish_Deflate_ZlibStream() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.DEFLATE, 100);
+
+        compressing.getWriter().write(new String(BODY, StandardCharsets.UTF_8));
+        compressing.finish();
+
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(sent.toByteArray()))) {
+            assertArrayEquals(BODY, in.readAllBytes());
+        }
+        verify(response).setHeader("Content-Encoding", "deflate");
+    }
+
+    @Test
+    void finish_BelowMinBytes_SentUncompressedWithLength() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, BODY.length + 1);
+
+        compressing.getOutputStream().write(BODY);
+        compressing.finish();
+
+        assertArrayEquals(BODY, sent.toByteArray());
+        verify(response).setContentLength(BODY.length);
+        verify(response, never()).setHeader(eq("Content-Encoding"), any());
+    }
+
+    @Test
+    void setHeader_ETag_CodingAddedOnlyWhenCompressed() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, 100);
+        compressing.setHeader("ETag", "\"7-1\"");
+
+        verify(response).setHeader("ETag", "\"7-1\"");
+
+        compressing.getOutputStream().write(BODY);
+        compressing.finish();
+
+        verify(response).setHeader("ETag", "\"7-1-gzip\"");
+    }
+
+    @Test
+    void setHeader_ETagBelowMinBytes_Unchanged() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, BODY.length + 1);
+        compressing.setHeader("ETag", "\"7-1\"");
+
+        compressing.getOutputStream().write(BODY);
+        compressing.finish();
+
+        verify(response, never()).setHeader("ETag", "\"7-1-gzip\"");
+    }
+
+    @Test
+    void finish_ExactlyMinBytes_Compressed() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, BODY.length);
+
+        compressing.getOutputStream().write(BODY);
+        compressing.finish();
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertFalse(Arrays.equals(BODY, sent.toByteArray()));
+    }
+
+    @Test
+    void setContentLength_BelowMinBytes_PassThrough() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, 1024);
+
+        compressing.setContentLength(10);
+        compressing.getOutputStream().write(BODY);
+        compressing.finish();
+
+        assertArrayEquals(BODY, sent.toByteArray());
+        verify(response).setContentLengthLong(10);
+        verify(response, never()).setHeader(eq("Content-Encoding"), any());
+    }
+
+    @Test
+    void finish_ReleasesDeflaterToPool() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, 100);
+
+        compressing.getOutputStream().write(BODY);
+        compressing.finish();
+
+        int idle = ContentCoding.GZIP.deflaters().idleCount();
+        assertTrue(idle >= 1);
+        sent.reset();
+        CompressingResponse next = new CompressingResponse(response, ContentCoding.GZIP, 100);
+        next.getOutputStream().write(BODY);
+        assertEquals(idle - 1, ContentCoding.GZIP.deflaters().idleCount());
+        next.finish();
+        assertEquals(idle, ContentCoding.GZIP.deflaters().idleCount());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray()))) {
+            assertArrayEquals(BODY, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void setWriteListener_BeforeCompression_DelegatesUncompressed() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, 100);
+        ServletOutputStream out = compressing.getOutputStream();
+        out.write(BODY, 0, 10);
+
+        out.setWriteListener(writeListener);
+        out.write(BODY, 10, BODY.length - 10);
+        compressing.finish();
+
+        verify(rawStream).setWriteListener(writeListener);
+        assertTrue(out.isReady());
+        assertArrayEquals(BODY, sent.toByteArray());
+        verify(response, never()).setHeader(eq("Content-Encoding"), any());
+    }
+
+    @Test
+    void setWriteListener_AfterCompressionStarted_Throws() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, 100);
+        ServletOutputStream out = compressing.getOutputStream();
+        out.write(BODY);
+
+        assertThrows(IllegalStateException.class, () -> out.setWriteListener(writeListener));
+        compressing.finish();
+    }
+
+    @Test
+    void finishAsync_NotStarted_RestUncompressed() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, 100);
+        compressing.getOutputStream().write(BODY, 0, 10);
+
+        compressing.finishAsync(mock(AsyncContext.class));
+        compressing.getOutputStream().write(BODY, 10, BODY.length - 10);
+
+        assertArrayEquals(BODY, sent.toByteArray());
+        verify(response, never()).setHeader(eq("Content-Encoding"), any());
+    }
+
+    @Test
+    void finishAsync_Started_FinishedOnComplete() throws IOException {
+        CompressingResponse compressing = new CompressingResponse(response, ContentCoding.GZIP, 100);
+        AsyncContext async = mock(AsyncContext.class);
+        compressing.getOutputStream().write(BODY);
+
+        compressing.finishAsync(async);
+        compressing.getOutputStream().write(BODY);
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(async).addListener(listener.capture());
+        listener.getValue().onComplete(new AsyncEvent(async));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray()))) {
+            byte[] expected = Arrays.copyOf(BODY, 2 * BODY.length);
+            System.arraycopy(BODY, 0, expected, BODY.length, BODY.length);
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+    }
+
+    private static int littleEndianInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.doggohub.servlet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.doggohub.model.Dog;
+import ru.doggohub.model.User;
+import ru.doggohub.repository.DogRepository;
+import ru.doggohub.repository.UserRepository;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DogBatchServletTest {
+    private static final String DOG = "{\"name\":\"Vegas\",\"birthDay\":\"2022-07-01\",\"breed\":\"LABRODOR\","
+            + "\"color\":\"WHITE\",\"gender\":\"MALE\",\"weight\":30,\"ownerId\":1}";
+
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private DogRepository dogRepository;
+
+    private final StringWriter stringWriter = new StringWriter();
+    private final PrintWriter writer = new PrintWriter(stringWriter);
+    private final MockHttpServletRequest inputStream = new MockHttpServletRequest();
+
+    private DogBatchServlet dogBatchServlet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        dogBatchServlet = new DogBatchServlet(userRepository, dogRepository);
+        when(response.getWriter()).thenReturn(writer);
+    }
+
+    @Test
+    void doPostTest_ValidArray_Created() throws Exception {
+        User owner = new User();
+        owner.setId(1L);
+        when(userRepository.findAllByIds(any(long[].class))).thenReturn(Map.of(1L, owner));
+        doAnswer(invocation -> {
+            List<Dog> dogs = invocation.getArgument(0);
+            long id = 7;
+            for (Dog dog : dogs) {
+                dog.setId(id++);
+            }
+            return null;
+        }).when(dogRepository).saveAll(any());
+        inputStream.setContent(("[" + DOG + "," + DOG + "]").getBytes(StandardCharsets.UTF_8));
+        when(request.getInputStream()).thenReturn(inputStream.getInputStream());
+
+        dogBatchServlet.doPost(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_CREATED);
+        assertEquals("{\"ids\":[7,8]}", stringWriter.toString().trim());
+    }
+
+    @Test
+    void doPostTest_NotArray_BadRequest() throws Exception {
+        inputStream.setContent(DOG.getBytes(StandardCharsets.UTF_8));
+        when(request.getInputStream()).thenReturn(inputStream.getInputStream());
+
+        dogBatchServlet.doPost(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verify(dogRepository, never()).saveAll(any());
+    }
+}
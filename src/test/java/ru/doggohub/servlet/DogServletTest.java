@@ -1,7 +1,6 @@
 package ru.doggohub.servlet;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -11,6 +10,7 @@ import ru.doggohub.dto.dog.DogRequestDto;
 import ru.doggohub.dto.dog.DogResponseDto;
 import ru.doggohub.exception.NotFoundException;
 import ru.doggohub.exception.ValidationException;
+import ru.doggohub.json.Json;
 import ru.doggohub.mapper.DogMapper;
 import ru.doggohub.model.Dog;
 import ru.doggohub.model.User;
@@ -20,7 +20,6 @@ import ru.doggohub.model.enums.Gender;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.UserRepository;
 import ru.doggohub.service.dog.DogServiceImpl;
-import ru.doggohub.util.LocalDateTypeAdapter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -30,6 +29,7 @@ import java.io.StringWriter;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -46,9 +46,7 @@ class DogServletTest {
     private DogRepository dogRepository;
     @Mock
     private UserRepository userRepository;
-    private final Gson gson = new GsonBuilder()
-            .registerTypeAdapter(LocalDate.class, new LocalDateTypeAdapter())
-            .create();
+    private final Gson gson = Json.GSON;
     private final long dogId = 1L;
     private final long ownerId = 1L;
     private DogServlet dogServlet;
@@ -84,8 +82,7 @@ class DogServletTest {
 
         DogResponseDto expectedDog = DogMapper.toDto(dog, owner);
 
-        when(userRepository.findOwnerByDogId(dogId)).thenReturn(owner);
-        when(dogRepository.findById(dogId)).thenReturn(dog);
+        when(dogRepository.findViewById(dogId)).thenReturn(expectedDog);
         when(dogService.getById(dogId)).thenReturn(expectedDog);
 
         when(response.getWriter()).thenReturn(writer);
@@ -99,6 +96,38 @@ class DogServletTest {
         assertEquals(expectedJsonResponse, actualJsonResponse);
     }
 
+    @Test
+    void doGetTest_IfModifiedSinceForUnknownDog_NotAnswered304() throws Exception {
+        when(response.getWriter()).thenReturn(writer);
+        when(request.getParameter("id")).thenReturn("999");
+        when(request.getParameter("fields")).thenReturn("id,name");
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(System.currentTimeMillis() + 86_400_000L);
+
+        dogServlet.doGet(request, response);
+
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test
+    void doGetTest_IfModifiedSinceForServedDog_NotModified() throws Exception {
+        User owner = new User();
+        owner.setId(ownerId);
+        Dog dog = DogMapper.fromDto(dogRequestDto, ownerId);
+        dog.setId(dogId);
+
+        when(dogRepository.findViewById(dogId)).thenReturn(DogMapper.toDto(dog, owner));
+        when(response.getWriter()).thenReturn(writer);
+        when(request.getParameter("id")).thenReturn(String.valueOf(dogId));
+        dogServlet.doGet(request, response);
+
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(System.currentTimeMillis() + 86_400_000L);
+        dogServlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(dogRepository, times(1)).findViewById(dogId);
+    }
+
     @Test
     void doGetTest_WithValidUserId() throws Exception {
         DogRequestDto dogRequestDto1 = DogRequestDto.builder()
@@ -129,7 +158,13 @@ class DogServletTest {
         expectedDogs.add(DogMapper.toDto(dog2, owner));
 
         when(userRepository.findById(ownerId)).thenReturn(owner);
+        when(dogRepository.findDogIdsByOwnerId(ownerId)).thenReturn(new long[]{dogId, 2L});
         when(dogRepository.findAllByOwnerId(ownerId)).thenReturn(dogs);
+        doAnswer(invocation -> {
+            Consumer<Dog> action = invocation.getArgument(1);
+            dogs.forEach(action);
+            return null;
+        }).when(dogRepository).streamByOwnerId(eq(ownerId), any());
         when(dogService.getByOwnerId(ownerId)).thenReturn(expectedDogs);
 
         when(response.getWriter()).thenReturn(writer);
@@ -181,7 +216,7 @@ class DogServletTest {
         DogResponseDto expectedDog = DogMapper.toDto(dog, user);
 
         when(userRepository.findById(ownerId)).thenReturn(user);
-        when(dogRepository.save(any(Dog.class))).thenReturn(dog);
+        when(dogRepository.save(any(Dog.class))).thenReturn(expectedDog);
         when(userRepository.findOwnerByDogId(dogId)).thenReturn(user);
         when(dogService.add(any(DogRequestDto.class))).thenReturn(expectedDog);
 
@@ -260,7 +295,7 @@ class DogServletTest {
 
         when(userRepository.findOwnerByDogId(dogId)).thenReturn(user);
         when(dogRepository.findById(dogId)).thenReturn(dog);
-        when(dogRepository.update(any(Dog.class))).thenReturn(updatedDog);
+        when(dogRepository.update(any(Dog.class))).thenReturn(expectedDog);
         when(dogService.update(any(DogRequestDto.class), any(Long.class))).thenReturn(expectedDog);
 
         String req = gson.toJson(updatedDogRequestDto);
@@ -291,11 +326,10 @@ class DogServletTest {
     }
 
     @Test
-    void doPatchTest_NotFoundOwner() throws Exception {
-        Dog dog = new Dog();
+    void doPatchTest_NotFoundDog() throws Exception {
         when(request.getParameter("id")).thenReturn(String.valueOf(dogId));
 
-        when(dogRepository.findById(dogId)).thenReturn(dog);
+        when(dogRepository.update(any(Dog.class))).thenReturn(null);
         when(dogService.update(any(DogRequestDto.class), any(Long.class))).thenThrow(new NotFoundException("Пользователь с ID={} не найден"));
 
         String req = gson.toJson(dogRequestDto);
@@ -307,7 +341,7 @@ class DogServletTest {
 
         dogServlet.doPatch(request, response);
 
-        String expectedJsonResponse = "При обработке запроса произошла ошибка: Владелец собаки с ID={} не найден";
+        String expectedJsonResponse = "При обработке запроса произошла ошибка: Собака с ID=1 не найдена";
         String actualJsonResponse = stringWriter.toString().trim();
         assertEquals(expectedJsonResponse, actualJsonResponse);
     }
@@ -317,7 +351,7 @@ class DogServletTest {
         Dog dog = Dog.builder().id(dogId).build();
 
         when(request.getParameter("id")).thenReturn(String.valueOf(dogId));
-        when(dogRepository.findById(dogId)).thenReturn(dog);
+        when(dogRepository.removeById(dogId)).thenReturn(dog);
         doNothing().when(dogService).deleteById(dogId);
         when(response.getWriter()).thenReturn(writer);
 
@@ -0,0 +1,141 @@
+package ru.doggohub.servlet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.doggohub.model.Dog;
+import ru.doggohub.model.HealthStory;
+import ru.doggohub.model.enums.Breed;
+import ru.doggohub.model.enums.Color;
+import ru.doggohub.model.enums.Gender;
+import ru.doggohub.repository.DogRepository;
+import ru.doggohub.repository.HealthStoryRepository;
+import ru.doggohub.repository.UserRepository;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ExportServletTest {
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private DogRepository dogRepository;
+    @Mock
+    private HealthStoryRepository healthStoryRepository;
+    @Mock
+    private HttpServletResponse response;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final StringWriter stringWriter = new StringWriter();
+
+    private ExportServlet exportServlet;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        exportServlet = new ExportServlet(userRepository, dogRepository, healthStoryRepository);
+    }
+
+    private void captureBody() throws Exception {
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+    }
+
+    @Test
+    void doGetTest_Dogs_NdjsonFromWatermark() throws Exception {
+        when(request.getPathInfo()).thenReturn("/dogs");
+        when(request.getParameter("after_id")).thenReturn("10");
+        List<Dog> dogs = List.of(
+                new Dog(11L, "Vegas", LocalDate.of(2019, 5, 15), Breed.LABRODOR, Color.WHITE, Gender.MALE, 30,
+                        LocalDateTime.of(2024, 1, 2, 3, 4, 5), 1L),
+                new Dog(12L, "Legas", LocalDate.of(2020, 6, 1), Breed.BULLTERIER, Color.BLACK, Gender.FEMALE, 25,
+                        LocalDateTime.of(2024, 1, 3, 3, 4, 5), null));
+        doAnswer(invocation -> {
+            Consumer<Dog> action = invocation.getArgument(1);
+            dogs.forEach(action);
+            return null;
+        }).when(dogRepository).exportAfter(eq(10L), any());
+
+        captureBody();
+        exportServlet.doGet(request, response);
+
+        verify(response).setContentType("application/x-ndjson");
+        assertEquals("{\"id\":11,\"name\":\"Vegas\",\"birthDay\":\"2019-05-15\",\"breed\":\"LABRODOR\",\"color\":\"WHITE\","
+                        + "\"gender\":\"MALE\",\"weight\":30,\"registrationTime\":\"2024-01-02T03:04:05\",\"ownerId\":1}\n"
+                        + "{\"id\":12,\"name\":\"Legas\",\"birthDay\":\"2020-06-01\",\"breed\":\"BULLTERIER\",\"color\":\"BLACK\","
+                        + "\"gender\":\"FEMALE\",\"weight\":25,\"registrationTime\":\"2024-01-03T03:04:05\"}\n",
+                body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void doGetTest_Health_CsvQuotesText() throws Exception {
+        when(request.getPathInfo()).thenReturn("/health");
+        when(request.getParameter("format")).thenReturn("csv");
+        doAnswer(invocation -> {
+            Consumer<HealthStory> action = invocation.getArgument(1);
+            action.accept(new HealthStory(1L, 2L, "Прививка, \"Нобивак\"", LocalDate.of(2015, 3, 1)));
+            return null;
+        }).when(healthStoryRepository).exportAfter(eq(0L), any());
+
+        captureBody();
+        exportServlet.doGet(request, response);
+
+        assertEquals("id,dogId,visit,text\r\n1,2,2015-03-01,\"Прививка, \"\"Нобивак\"\"\"\r\n",
+                body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void doGetTest_UnknownTable_NotFound() throws Exception {
+        when(request.getPathInfo()).thenReturn("/secrets");
+
+        captureBody();
+        exportServlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+        verify(dogRepository, never()).exportAfter(anyLong(), any());
+    }
+
+    @Test
+    void doGetTest_NegativeWatermark_BadRequest() throws Exception {
+        when(request.getPathInfo()).thenReturn("/owners");
+        when(request.getParameter("after_id")).thenReturn("-1");
+
+        captureBody();
+        exportServlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verify(userRepository, never()).exportAfter(anyLong(), any());
+    }
+}
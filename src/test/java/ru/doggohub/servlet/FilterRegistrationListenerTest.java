@@ -0,0 +1,33 @@
+package ru.doggohub.servlet;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import java.util.EnumSet;
+
+import static org.mockito.Mockito.*;
+
+class FilterRegistrationListenerTest {
+
+    @Test
+    void contextInitialized_CompressionFirstAndBothAsync() {
+        ServletContext context = mock(ServletContext.class);
+        FilterRegistration.Dynamic compression = mock(FilterRegistration.Dynamic.class);
+        FilterRegistration.Dynamic requestScope = mock(FilterRegistration.Dynamic.class);
+        when(context.addFilter("compression", CompressionFilter.class)).thenReturn(compression);
+        when(context.addFilter("requestScope", RequestScopeFilter.class)).thenReturn(requestScope);
+
+        new FilterRegistrationListener().contextInitialized(new ServletContextEvent(context));
+
+        InOrder order = inOrder(compression, requestScope);
+        order.verify(compression).addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
+        order.verify(requestScope).addMappingForUrlPatterns(
+                EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC), true, "/*");
+        verify(compression).setAsyncSupported(true);
+        verify(requestScope).setAsyncSupported(true);
+    }
+}
@@ -1,7 +1,6 @@
 package ru.doggohub.servlet;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -10,20 +9,20 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import ru.doggohub.dto.health.HealthStoryRequestDto;
 import ru.doggohub.dto.health.HealthStoryResponseDto;
 import ru.doggohub.exception.ValidationException;
+import ru.doggohub.json.Json;
 import ru.doggohub.mapper.HealthStoryMapper;
 import ru.doggohub.model.Dog;
 import ru.doggohub.model.HealthStory;
 import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.HealthStoryRepository;
 import ru.doggohub.service.health.HealthStoryServiceImpl;
-import ru.doggohub.util.LocalDateTypeAdapter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -41,9 +40,7 @@ class HealthServletTest {
     private HealthStoryRepository healthStoryRepository;
     @Mock
     private DogRepository dogRepository;
-    private final Gson gson = new GsonBuilder()
-            .registerTypeAdapter(LocalDate.class, new LocalDateTypeAdapter())
-            .create();
+    private final Gson gson = Json.GSON;
     private final StringWriter stringWriter = new StringWriter();
     private final PrintWriter writer = new PrintWriter(stringWriter);
     private final MockHttpServletRequest inputStream = new MockHttpServletRequest();
@@ -88,6 +85,11 @@ class HealthServletTest {
 
         when(dogRepository.findById(anyLong())).thenReturn(dog);
         when(healthStoryRepository.findByDogId(anyLong())).thenReturn(stories);
+        doAnswer(invocation -> {
+            Consumer<HealthStory> action = invocation.getArgument(1);
+            stories.forEach(action);
+            return null;
+        }).when(healthStoryRepository).streamByDogId(anyLong(), any());
         when(healthStoryService.getByDogId(anyLong())).thenReturn(expectedResponse);
 
         healthServlet.doGet(request, response);
@@ -126,6 +128,16 @@ class HealthServletTest {
         assertEquals(expectedJsonResponse, actualJsonResponse);
     }
 
+    @Test
+    void doGetTest_UnknownStory_NotFound() throws Exception {
+        when(request.getParameter("id")).thenReturn("999");
+        when(response.getWriter()).thenReturn(writer);
+
+        healthServlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+    }
+
     @Test
     void doPostTest_Success() throws Exception {
         Dog dog = Dog.builder().id(1L).name("Vegas").build();
@@ -0,0 +1,51 @@
+package ru.doggohub.servlet;
+
+import org.junit.jupiter.api.Test;
+import ru.doggohub.cache.RequestCache;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class RequestScopeFilterTest {
+    private final RequestScopeFilter filter = new RequestScopeFilter();
+    private final ServletRequest request = mock(HttpServletRequest.class);
+    private final ServletResponse response = mock(HttpServletResponse.class);
+
+    @Test
+    void doFilter_OpensScopeForChainAndClosesIt() throws Exception {
+        boolean[] active = new boolean[1];
+
+        filter.doFilter(request, response, (req, resp) -> active[0] = RequestCache.isActive());
+
+        assertTrue(active[0]);
+        assertFalse(RequestCache.isActive());
+    }
+
+    @Test
+    void doFilter_NestedDispatch_KeepsOuterScope() throws Exception {
+        FilterChain inner = (req, resp) -> RequestCache.put("dogs", 1L, "Vegas");
+
+        filter.doFilter(request, response, (req, resp) -> {
+            filter.doFilter(req, resp, inner);
+            assertTrue(RequestCache.isActive());
+            assertEquals("Vegas", RequestCache.get("dogs", 1L, () -> "loaded"));
+        });
+
+        assertFalse(RequestCache.isActive());
+    }
+
+    @Test
+    void doFilter_ChainThrows_ScopeClosed() {
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request, response, (req, resp) -> {
+            throw new IllegalStateException("сбой");
+        }));
+
+        assertFalse(RequestCache.isActive());
+    }
+}
@@ -3,6 +3,7 @@ package ru.doggohub.servlet;
 import com.google.gson.Gson;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -16,15 +17,20 @@ import ru.doggohub.repository.DogRepository;
 import ru.doggohub.repository.UserRepository;
 import ru.doggohub.service.user.UserService;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
@@ -68,6 +74,11 @@ class UserServletTest {
         users.add(User.builder().id(2L).name("Toma").email("email1").build());
 
         when(userRepository.findAll()).thenReturn(users);
+        doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(0);
+            users.forEach(action);
+            return null;
+        }).when(userRepository).streamAllWithDogIds(any());
 
         List<UserResponseDto> dtoList = users.stream().map(UserMapper::toDto).collect(Collectors.toList());
 
@@ -99,6 +110,59 @@ class UserServletTest {
         assertEquals(expectedJsonResponse, actualJsonResponse);
     }
 
+    @Test
+    void doGetTest_ById_MatchingETag_NotModified() throws IOException {
+        User user = User.builder().id(userId).name("Borya").email("email").build();
+
+        when(userRepository.findById(userId)).thenReturn(user);
+        when(response.getWriter()).thenReturn(writer);
+        when(request.getParameter("id")).thenReturn(String.valueOf(userId));
+
+        userServlet.doGet(request, response);
+
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("ETag"), etag.capture());
+        when(request.getHeader("If-None-Match")).thenReturn(etag.getValue());
+
+        userServlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(userRepository, times(1)).findById(userId);
+    }
+
+    @Test
+    void doGetTest_ById_AcceptCbor_BinaryBody() throws IOException {
+        User user = User.builder().id(userId).name("Borya").email("email").build();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        when(userRepository.findById(userId)).thenReturn(user);
+        when(dogRepository.findDogIdsByOwnerId(userId)).thenReturn(new long[]{300L});
+        when(request.getHeader("Accept")).thenReturn("application/cbor");
+        when(request.getParameter("id")).thenReturn(String.valueOf(userId));
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+
+        userServlet.doGet(request, response);
+
+        byte[] expected = {(byte) 0x83, 0x01, 0x65, 'B', 'o', 'r', 'y', 'a', (byte) 0x81, 0x19, 0x01, 0x2c};
+        assertArrayEquals(expected, body.toByteArray());
+        verify(response).setContentType("application/cbor");
+        verify(response, never()).getWriter();
+    }
+
     @Test
     void doGetTest_ById_InvalidUserIdFormat() throws IOException {
         when(request.getParameter("id")).thenReturn("invalid");
@@ -113,6 +177,16 @@ class UserServletTest {
         assertEquals(exceptedException, actual);
     }
 
+    @Test
+    void doGetTest_ById_UnknownUser_NotFound() throws IOException {
+        when(request.getParameter("id")).thenReturn("999");
+        when(response.getWriter()).thenReturn(writer);
+
+        userServlet.doGet(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+    }
+
     @Test
     void doPostTest_Success() throws IOException {
         User user = UserMapper.fromDto(requestDto);
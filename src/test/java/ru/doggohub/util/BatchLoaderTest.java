@@ -0,0 +1,117 @@
+package ru.doggohub.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTest {
+    private static final long LONG_WINDOW_MICROS = TimeUnit.SECONDS.toMicros(10);
+
+    private static Map<Long, String> names(long[] ids) {
+        Map<Long, String> found = new HashMap<>();
+        for (long id : ids) {
+            if (id > 0) {
+                found.put(id, "dog" + id);
+            }
+        }
+        return found;
+    }
+
+    @Test
+    void load_Alone_DoesNotWaitForWindow() {
+        BatchLoader<String> loader = new BatchLoader<>("test", BatchLoaderTest::names, value -> value,
+                LONG_WINDOW_MICROS, 64);
+
+        long start = System.nanoTime();
+        String value = loader.load(1);
+
+        assertEquals("dog1", value);
+        assertNull(loader.load(-1));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "ведущий ждал окна без конкуренции");
+        assertEquals(2, loader.getBatchCount());
+    }
+
+    @Test
+    void load_Concurrent_EveryCallerGetsItsValue() throws Exception {
+        BatchLoader<String> loader = new BatchLoader<>("test", BatchLoaderTest::names, value -> value,
+                TimeUnit.MILLISECONDS.toMicros(50), 3);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (long id = 1; id <= 3; id++) {
+                long key = id;
+                results.add(executor.submit(() -> {
+                    release.await();
+                    return loader.load(key);
+                }));
+            }
+            release.countDown();
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals("dog" + (i + 1), results.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(3, loader.getRequestCount());
+            assertEquals(3, loader.getKeyCount());
+            assertTrue(loader.getBatchCount() <= 3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void load_LoaderThrowsError_FailsCallerAndKeepsWorking() {
+        boolean[] broken = {true};
+        BatchLoader<String> loader = new BatchLoader<>("test", ids -> {
+            if (broken[0]) {
+                throw new AssertionError("сбой загрузчика");
+            }
+            return names(ids);
+        }, value -> value, 0, 64);
+
+        AssertionError error = assertThrows(AssertionError.class, () -> loader.load(1));
+        assertEquals("сбой загрузчика", error.getMessage());
+
+        broken[0] = false;
+        assertEquals("dog1", loader.load(1));
+    }
+
+    @Test
+    void load_LoaderThrowsError_CompletesEveryWaiter() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        BatchLoader<String> loader = new BatchLoader<>("test", ids -> {
+            throw new OutOfMemoryError("нет памяти");
+        }, value -> value, LONG_WINDOW_MICROS, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (long id = 1; id <= 2; id++) {
+                long key = id;
+                results.add(executor.submit(() -> {
+                    started.countDown();
+                    started.await();
+                    return loader.load(key);
+                }));
+            }
+
+            for (Future<String> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class,
+                        () -> result.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(OutOfMemoryError.class, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.doggohub.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeflaterPoolTest {
+
+    @Test
+    void acquire_AfterRelease_ReusesInstance() {
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 2);
+        Deflater deflater = pool.acquire();
+
+        pool.release(deflater);
+
+        assertEquals(1, pool.idleCount());
+        assertSame(deflater, pool.acquire());
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    void release_ResetsState() {
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 2);
+        Deflater deflater = pool.acquire();
+        deflater.setInput(new byte[]{1, 2, 3});
+        deflater.finish();
+        deflater.deflate(new byte[64]);
+
+        pool.release(deflater);
+
+        Deflater reused = pool.acquire();
+        assertFalse(reused.finished());
+        assertEquals(0, reused.getBytesRead());
+    }
+
+    @Test
+    void release_OverMaxIdle_EndsExtra() {
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 1);
+        Deflater first = pool.acquire();
+        Deflater second = pool.acquire();
+
+        pool.release(first);
+        pool.release(second);
+
+        assertEquals(1, pool.idleCount());
+        assertSame(first, pool.acquire());
+        assertThrows(NullPointerException.class, second::getBytesRead);
+    }
+}
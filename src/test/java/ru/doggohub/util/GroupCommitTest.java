@@ -0,0 +1,213 @@
+package ru.doggohub.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitTest {
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private GroupCommit<String> groupCommit;
+
+    @AfterEach
+    void tearDown() {
+        if (groupCommit != null) {
+            groupCommit.close();
+        }
+    }
+
+    private GroupCommit<String> groupCommit(Function<List<String>, long[]> writer, long maxWaitMicros,
+                                            int maxRows, int capacity) {
+        groupCommit = new GroupCommit<>("test", items -> {
+            batches.add(List.copyOf(items));
+            return writer.apply(items);
+        }, maxWaitMicros, maxRows, capacity);
+        return groupCommit;
+    }
+
+    private static long[] idsOf(List<String> items) {
+        return items.stream().mapToLong(item -> Long.parseLong(item.substring(1))).toArray();
+    }
+
+    @Test
+    void submit_FullBatch_WrittenTogetherWithoutWaiting() {
+        groupCommit(GroupCommitTest::idsOf, TimeUnit.SECONDS.toMicros(30), 3, 100);
+
+        CompletableFuture<Long> first = groupCommit.submit("r1");
+        CompletableFuture<Long> second = groupCommit.submit("r2");
+        CompletableFuture<Long> third = groupCommit.submit("r3");
+
+        assertEquals(1L, first.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(2L, second.join());
+        assertEquals(3L, third.join());
+        assertEquals(List.of(List.of("r1", "r2", "r3")), batches);
+        assertEquals(1, groupCommit.getBatchCount());
+    }
+
+    @Test
+    void submit_SingleRow_WrittenAfterMaxWait() {
+        groupCommit(GroupCommitTest::idsOf, TimeUnit.MILLISECONDS.toMicros(50), 100, 100);
+        long started = System.nanoTime();
+
+        Long id = groupCommit.submit("r7").orTimeout(5, TimeUnit.SECONDS).join();
+
+        assertEquals(7L, id);
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(List.of(List.of("r7")), batches);
+        assertEquals(1, groupCommit.getBatchCount());
+        assertEquals(1, groupCommit.getRowCount());
+    }
+
+    @Test
+    void submit_QueueFull_Rejected() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        groupCommit(items -> {
+            writing.countDown();
+            await(release);
+            return idsOf(items);
+        }, 1, 1, 1);
+        CompletableFuture<Long> first = groupCommit.submit("r1");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Long> second = groupCommit.submit("r2");
+        CompletableFuture<Long> third = groupCommit.submit("r3");
+
+        assertNotNull(second);
+        assertNull(third);
+        assertEquals(1, groupCommit.getRejectedCount());
+        release.countDown();
+        assertEquals(1L, first.join());
+        assertEquals(2L, second.join());
+    }
+
+    @Test
+    void flush_BatchFails_RetriesRowsOneByOne() {
+        CountDownLatch release = new CountDownLatch(1);
+        groupCommit(items -> {
+            await(release);
+            if (items.contains("bad")) {
+                throw new IllegalArgumentException("Нарушено ограничение");
+            }
+            return idsOf(items);
+        }, TimeUnit.SECONDS.toMicros(30), 3, 100);
+
+        CompletableFuture<Long> first = groupCommit.submit("r1");
+        CompletableFuture<Long> bad = groupCommit.submit("bad");
+        CompletableFuture<Long> third = groupCommit.submit("r3");
+        release.countDown();
+
+        assertEquals(1L, first.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(3L, third.join());
+        CompletionException failure = assertThrows(CompletionException.class, bad::join);
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals(List.of(List.of("r1", "bad", "r3"), List.of("r1"), List.of("bad"), List.of("r3")), batches);
+    }
+
+    @Test
+    void flush_WriterReturnsWrongCount_FailsRow() {
+        groupCommit(items -> new long[0], 1, 1, 100);
+
+        CompletableFuture<Long> future = groupCommit.submit("r1");
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> future.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    @Test
+    void flush_WriterThrowsError_FlusherKeepsRunning() {
+        groupCommit(items -> {
+            if (items.contains("r1")) {
+                throw new AssertionError("boom");
+            }
+            return idsOf(items);
+        }, 1, 1, 100);
+
+        CompletableFuture<Long> failed = groupCommit.submit("r1");
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> failed.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(AssertionError.class, failure.getCause());
+
+        assertEquals(2L, groupCommit.submit("r2").orTimeout(5, TimeUnit.SECONDS).join());
+    }
+
+    @Test
+    void await_NotTakenInTime_WithdrawnForDirectWrite() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        groupCommit(items -> {
+            writing.countDown();
+            await(release);
+            return idsOf(items);
+        }, 1, 1, 100);
+        CompletableFuture<Long> first = groupCommit.submit("r1");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Long> second = groupCommit.submit("r2");
+
+        assertNull(groupCommit.await(second, 20));
+
+        assertEquals(1, groupCommit.getWithdrawnCount());
+        assertEquals(0, groupCommit.getQueuedCount());
+        release.countDown();
+        assertEquals(1L, groupCommit.await(first, 5_000));
+        groupCommit.close();
+        assertEquals(List.of(List.of("r1")), batches);
+    }
+
+    @Test
+    void await_TakenRow_WaitsPastTimeout() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        groupCommit(items -> {
+            writing.countDown();
+            await(release);
+            return idsOf(items);
+        }, 1, 1, 100);
+        CompletableFuture<Long> first = groupCommit.submit("r1");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture.runAsync(release::countDown, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+
+        assertEquals(1L, groupCommit.await(first, 10));
+        assertEquals(0, groupCommit.getWithdrawnCount());
+    }
+
+    @Test
+    void await_WriteFailed_ThrowsCause() {
+        groupCommit(items -> {
+            throw new IllegalArgumentException("Нарушено ограничение");
+        }, 1, 1, 100);
+
+        CompletableFuture<Long> future = groupCommit.submit("r1");
+
+        assertThrows(IllegalArgumentException.class, () -> groupCommit.await(future, 5_000));
+    }
+
+    @Test
+    void close_WritesAcceptedAndRejectsNew() {
+        groupCommit(GroupCommitTest::idsOf, TimeUnit.SECONDS.toMicros(30), 100, 100);
+        CompletableFuture<Long> accepted = groupCommit.submit("r1");
+
+        groupCommit.close();
+
+        assertEquals(1L, accepted.join());
+        assertNull(groupCommit.submit("r2"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}